@@ -1,7 +1,8 @@
 package com.uva.aa;
 
 /**
- * A central class for storing constants to allow easy test configuration.
+ * A central class for storing constants to allow easy test configuration. The constants serve as the defaults for a
+ * configuration instance, which is held by each game so that multiple configurations can be tested side by side.
  */
 public class Config {
 
@@ -49,4 +50,753 @@ public class Config {
 
     /** The reward for escaping the predators as a prey */
     public final static double PREY_ESCAPE_REWARD = 10.0;
+
+    /** The decay of eligibility traces for learning from lambda-returns; 0 for one-step backups */
+    public final static double TRACE_DECAY_LAMBDA = 0;
+
+    /** The maximum amount of eligibility traces that are kept active at once */
+    public final static int MAX_ELIGIBILITY_TRACES = 1000;
+
+    /** The eligibility below which a trace is no longer kept active */
+    public final static double MIN_ELIGIBILITY_TRACE = 0.001;
+
+    /** The amount of simulated backups per real step for Dyna planning */
+    public final static int PLANNING_STEPS = 10;
+
+    /** Whether or not Dyna planning runs on a background thread instead of within each step */
+    public final static boolean BACKGROUND_PLANNING = false;
+
+    /** The amount of transitions kept for experience replay; 0 to update from each transition right away */
+    public final static int REPLAY_CAPACITY = 0;
+
+    /** The amount of transitions replayed after each step when using experience replay */
+    public final static int REPLAY_BATCH_SIZE = 32;
+
+    /** Whether or not replayed transitions are sampled in proportion to their error instead of uniformly */
+    public final static boolean PRIORITIZED_REPLAY = false;
+
+    /** The amount of tilings for approximating action values; 0 to keep the action values of each state */
+    public final static int TILINGS = 0;
+
+    /** The width and height of a single tile when approximating action values */
+    public final static int TILE_WIDTH = 1;
+
+    /** The maximum amount of states in a learning agent's policy; 0 for an unbounded amount */
+    public final static int POLICY_CAPACITY = 0;
+
+    /** The highest action value from which a state is never evicted from a bounded policy */
+    public final static double PROTECTED_ACTION_VALUE = 5.0;
+
+    /** Whether or not a learning agent's policy is stored outside of the heap */
+    public final static boolean OFF_HEAP_POLICY = false;
+
+    /** The file to memory-map an agent's policy to; null to not use a file */
+    public final static String POLICY_FILE = null;
+
+    /** The amount of shards that the policy of a distributed self-play is partitioned into */
+    public final static int POLICY_SHARDS = 4;
+
+    /** The threshold that determines at what point we stop our evaluation */
+    private double mErrorThresholdTheta = ERROR_THRESHOLD_THETA;
+
+    /** The step size for updating algorithms */
+    private double mStepSizeAlpha = STEP_SIZE_ALPHA;
+
+    /** The step size for updating algorithms */
+    private double mStepSizeBeta = STEP_SIZE_BETA;
+
+    /** The step size for the prey's updating algorithms */
+    private double mPreyStepSizeAlpha = PREY_STEP_SIZE_ALPHA;
+
+    /** The discount factor for updating algorithms */
+    private double mDiscountFactorGamma = DISCOUNT_FACTOR_GAMMA;
+
+    /** The discount factor for the prey's updating algorithms */
+    private double mPreyDiscountFactorGamma = PREY_DISCOUNT_FACTOR_GAMMA;
+
+    /** The epsilon for epsilon-greedy selection */
+    private double mEpsilon = EPSILON;
+
+    /** The epsilon for the prey with epsilon-greedy selection */
+    private double mPreyEpsilon = PREY_EPSILON;
+
+    /** The temperature for the softmax selection */
+    private double mTemperature = TEMPERATURE;
+
+    /** The default value for any Q(s,a) in an agent's policy */
+    private double mDefaultActionValue = DEFAULT_ACTION_VALUE;
+
+    /** The default value for any Q(s,a) in an prey's policy */
+    private double mPreyDefaultActionValue = PREY_DEFAULT_ACTION_VALUE;
+
+    /** The reward for killing a prey */
+    private double mKillReward = KILL_REWARD;
+
+    /** The punishment for colliding with another predator */
+    private double mCollisionReward = COLLISION_REWARD;
+
+    /** The punishment for dying as a prey */
+    private double mPreyDieReward = PREY_DIE_REWARD;
+
+    /** The reward for escaping the predators as a prey */
+    private double mPreyEscapeReward = PREY_ESCAPE_REWARD;
+
+    /** The decay of eligibility traces for learning from lambda-returns */
+    private double mTraceDecayLambda = TRACE_DECAY_LAMBDA;
+
+    /** The maximum amount of eligibility traces that are kept active at once */
+    private int mMaxEligibilityTraces = MAX_ELIGIBILITY_TRACES;
+
+    /** The eligibility below which a trace is no longer kept active */
+    private double mMinEligibilityTrace = MIN_ELIGIBILITY_TRACE;
+
+    /** The amount of simulated backups per real step for Dyna planning */
+    private int mPlanningSteps = PLANNING_STEPS;
+
+    /** Whether or not Dyna planning runs on a background thread instead of within each step */
+    private boolean mBackgroundPlanning = BACKGROUND_PLANNING;
+
+    /** The amount of transitions kept for experience replay */
+    private int mReplayCapacity = REPLAY_CAPACITY;
+
+    /** The amount of transitions replayed after each step when using experience replay */
+    private int mReplayBatchSize = REPLAY_BATCH_SIZE;
+
+    /** Whether or not replayed transitions are sampled in proportion to their error instead of uniformly */
+    private boolean mPrioritizedReplay = PRIORITIZED_REPLAY;
+
+    /** The amount of tilings for approximating action values */
+    private int mTilings = TILINGS;
+
+    /** The width and height of a single tile when approximating action values */
+    private int mTileWidth = TILE_WIDTH;
+
+    /** The maximum amount of states in a learning agent's policy */
+    private int mPolicyCapacity = POLICY_CAPACITY;
+
+    /** The highest action value from which a state is never evicted from a bounded policy */
+    private double mProtectedActionValue = PROTECTED_ACTION_VALUE;
+
+    /** Whether or not a learning agent's policy is stored outside of the heap */
+    private boolean mOffHeapPolicy = OFF_HEAP_POLICY;
+
+    /** The file to memory-map an agent's policy to */
+    private String mPolicyFile = POLICY_FILE;
+
+    /** The amount of shards that the policy of a distributed self-play is partitioned into */
+    private int mPolicyShards = POLICY_SHARDS;
+
+    /**
+     * Retrieves the threshold that determines at what point we stop our evaluation.
+     * 
+     * @return The error threshold theta
+     */
+    public double getErrorThresholdTheta() {
+        return mErrorThresholdTheta;
+    }
+
+    /**
+     * Sets the threshold that determines at what point we stop our evaluation.
+     * 
+     * @param errorThresholdTheta
+     *            The error threshold theta
+     */
+    public void setErrorThresholdTheta(final double errorThresholdTheta) {
+        mErrorThresholdTheta = errorThresholdTheta;
+    }
+
+    /**
+     * Retrieves the step size for updating algorithms.
+     * 
+     * @return The step size alpha
+     */
+    public double getStepSizeAlpha() {
+        return mStepSizeAlpha;
+    }
+
+    /**
+     * Sets the step size for updating algorithms.
+     * 
+     * @param stepSizeAlpha
+     *            The step size alpha
+     */
+    public void setStepSizeAlpha(final double stepSizeAlpha) {
+        mStepSizeAlpha = stepSizeAlpha;
+    }
+
+    /**
+     * Retrieves the step size for updating the average reward in R-learning.
+     * 
+     * @return The step size beta
+     */
+    public double getStepSizeBeta() {
+        return mStepSizeBeta;
+    }
+
+    /**
+     * Sets the step size for updating the average reward in R-learning.
+     * 
+     * @param stepSizeBeta
+     *            The step size beta
+     */
+    public void setStepSizeBeta(final double stepSizeBeta) {
+        mStepSizeBeta = stepSizeBeta;
+    }
+
+    /**
+     * Retrieves the step size for the prey's updating algorithms.
+     * 
+     * @return The prey's step size alpha
+     */
+    public double getPreyStepSizeAlpha() {
+        return mPreyStepSizeAlpha;
+    }
+
+    /**
+     * Sets the step size for the prey's updating algorithms.
+     * 
+     * @param preyStepSizeAlpha
+     *            The prey's step size alpha
+     */
+    public void setPreyStepSizeAlpha(final double preyStepSizeAlpha) {
+        mPreyStepSizeAlpha = preyStepSizeAlpha;
+    }
+
+    /**
+     * Retrieves the discount factor for updating algorithms.
+     * 
+     * @return The discount factor gamma
+     */
+    public double getDiscountFactorGamma() {
+        return mDiscountFactorGamma;
+    }
+
+    /**
+     * Sets the discount factor for updating algorithms.
+     * 
+     * @param discountFactorGamma
+     *            The discount factor gamma
+     */
+    public void setDiscountFactorGamma(final double discountFactorGamma) {
+        mDiscountFactorGamma = discountFactorGamma;
+    }
+
+    /**
+     * Retrieves the discount factor for the prey's updating algorithms.
+     * 
+     * @return The prey's discount factor gamma
+     */
+    public double getPreyDiscountFactorGamma() {
+        return mPreyDiscountFactorGamma;
+    }
+
+    /**
+     * Sets the discount factor for the prey's updating algorithms.
+     * 
+     * @param preyDiscountFactorGamma
+     *            The prey's discount factor gamma
+     */
+    public void setPreyDiscountFactorGamma(final double preyDiscountFactorGamma) {
+        mPreyDiscountFactorGamma = preyDiscountFactorGamma;
+    }
+
+    /**
+     * Retrieves the epsilon for epsilon-greedy selection.
+     * 
+     * @return The epsilon
+     */
+    public double getEpsilon() {
+        return mEpsilon;
+    }
+
+    /**
+     * Sets the epsilon for epsilon-greedy selection.
+     * 
+     * @param epsilon
+     *            The epsilon
+     */
+    public void setEpsilon(final double epsilon) {
+        mEpsilon = epsilon;
+    }
+
+    /**
+     * Retrieves the epsilon for the prey with epsilon-greedy selection.
+     * 
+     * @return The prey's epsilon
+     */
+    public double getPreyEpsilon() {
+        return mPreyEpsilon;
+    }
+
+    /**
+     * Sets the epsilon for the prey with epsilon-greedy selection.
+     * 
+     * @param preyEpsilon
+     *            The prey's epsilon
+     */
+    public void setPreyEpsilon(final double preyEpsilon) {
+        mPreyEpsilon = preyEpsilon;
+    }
+
+    /**
+     * Retrieves the temperature for the softmax selection.
+     * 
+     * @return The temperature
+     */
+    public double getTemperature() {
+        return mTemperature;
+    }
+
+    /**
+     * Sets the temperature for the softmax selection.
+     * 
+     * @param temperature
+     *            The temperature
+     */
+    public void setTemperature(final double temperature) {
+        mTemperature = temperature;
+    }
+
+    /**
+     * Retrieves the default value for any Q(s,a) in an agent's policy.
+     * 
+     * @return The default action value
+     */
+    public double getDefaultActionValue() {
+        return mDefaultActionValue;
+    }
+
+    /**
+     * Sets the default value for any Q(s,a) in an agent's policy.
+     * 
+     * @param defaultActionValue
+     *            The default action value
+     */
+    public void setDefaultActionValue(final double defaultActionValue) {
+        mDefaultActionValue = defaultActionValue;
+    }
+
+    /**
+     * Retrieves the default value for any Q(s,a) in a prey's policy.
+     * 
+     * @return The prey's default action value
+     */
+    public double getPreyDefaultActionValue() {
+        return mPreyDefaultActionValue;
+    }
+
+    /**
+     * Sets the default value for any Q(s,a) in a prey's policy.
+     * 
+     * @param preyDefaultActionValue
+     *            The prey's default action value
+     */
+    public void setPreyDefaultActionValue(final double preyDefaultActionValue) {
+        mPreyDefaultActionValue = preyDefaultActionValue;
+    }
+
+    /**
+     * Retrieves the reward for killing a prey.
+     * 
+     * @return The kill reward
+     */
+    public double getKillReward() {
+        return mKillReward;
+    }
+
+    /**
+     * Sets the reward for killing a prey.
+     * 
+     * @param killReward
+     *            The kill reward
+     */
+    public void setKillReward(final double killReward) {
+        mKillReward = killReward;
+    }
+
+    /**
+     * Retrieves the punishment for colliding with another predator.
+     * 
+     * @return The collision reward, which should be negative
+     */
+    public double getCollisionReward() {
+        return mCollisionReward;
+    }
+
+    /**
+     * Sets the punishment for colliding with another predator.
+     * 
+     * @param collisionReward
+     *            The collision reward, which should be negative
+     */
+    public void setCollisionReward(final double collisionReward) {
+        mCollisionReward = collisionReward;
+    }
+
+    /**
+     * Retrieves the punishment for dying as a prey.
+     * 
+     * @return The prey's dying reward, which should be negative
+     */
+    public double getPreyDieReward() {
+        return mPreyDieReward;
+    }
+
+    /**
+     * Sets the punishment for dying as a prey.
+     * 
+     * @param preyDieReward
+     *            The prey's dying reward, which should be negative
+     */
+    public void setPreyDieReward(final double preyDieReward) {
+        mPreyDieReward = preyDieReward;
+    }
+
+    /**
+     * Retrieves the reward for escaping the predators as a prey.
+     * 
+     * @return The prey's escape reward
+     */
+    public double getPreyEscapeReward() {
+        return mPreyEscapeReward;
+    }
+
+    /**
+     * Sets the reward for escaping the predators as a prey.
+     * 
+     * @param preyEscapeReward
+     *            The prey's escape reward
+     */
+    public void setPreyEscapeReward(final double preyEscapeReward) {
+        mPreyEscapeReward = preyEscapeReward;
+    }
+
+    /**
+     * Retrieves the decay of eligibility traces for learning from lambda-returns.
+     * 
+     * @return The trace decay lambda, 0 for one-step backups
+     */
+    public double getTraceDecayLambda() {
+        return mTraceDecayLambda;
+    }
+
+    /**
+     * Sets the decay of eligibility traces for learning from lambda-returns.
+     * 
+     * @param traceDecayLambda
+     *            The trace decay lambda, 0 for one-step backups
+     */
+    public void setTraceDecayLambda(final double traceDecayLambda) {
+        mTraceDecayLambda = traceDecayLambda;
+    }
+
+    /**
+     * Retrieves the maximum amount of eligibility traces that are kept active at once.
+     * 
+     * @return The maximum amount of eligibility traces
+     */
+    public int getMaxEligibilityTraces() {
+        return mMaxEligibilityTraces;
+    }
+
+    /**
+     * Sets the maximum amount of eligibility traces that are kept active at once.
+     * 
+     * @param maxEligibilityTraces
+     *            The maximum amount of eligibility traces
+     */
+    public void setMaxEligibilityTraces(final int maxEligibilityTraces) {
+        mMaxEligibilityTraces = maxEligibilityTraces;
+    }
+
+    /**
+     * Retrieves the eligibility below which a trace is no longer kept active.
+     * 
+     * @return The minimum eligibility trace
+     */
+    public double getMinEligibilityTrace() {
+        return mMinEligibilityTrace;
+    }
+
+    /**
+     * Sets the eligibility below which a trace is no longer kept active.
+     * 
+     * @param minEligibilityTrace
+     *            The minimum eligibility trace
+     */
+    public void setMinEligibilityTrace(final double minEligibilityTrace) {
+        mMinEligibilityTrace = minEligibilityTrace;
+    }
+
+    /**
+     * Retrieves the amount of simulated backups per real step for Dyna planning.
+     * 
+     * @return The amount of planning steps
+     */
+    public int getPlanningSteps() {
+        return mPlanningSteps;
+    }
+
+    /**
+     * Sets the amount of simulated backups per real step for Dyna planning.
+     * 
+     * @param planningSteps
+     *            The amount of planning steps
+     */
+    public void setPlanningSteps(final int planningSteps) {
+        mPlanningSteps = planningSteps;
+    }
+
+    /**
+     * Checks whether Dyna planning runs on a background thread instead of within each step.
+     * 
+     * @return True if planning runs on a background thread, false otherwise
+     */
+    public boolean isBackgroundPlanning() {
+        return mBackgroundPlanning;
+    }
+
+    /**
+     * Sets whether Dyna planning runs on a background thread instead of within each step.
+     * 
+     * @param backgroundPlanning
+     *            True to plan on a background thread, false to plan within each step
+     */
+    public void setBackgroundPlanning(final boolean backgroundPlanning) {
+        mBackgroundPlanning = backgroundPlanning;
+    }
+
+    /**
+     * Retrieves the amount of transitions kept for experience replay.
+     * 
+     * @return The replay capacity, 0 to update from each transition right away
+     */
+    public int getReplayCapacity() {
+        return mReplayCapacity;
+    }
+
+    /**
+     * Sets the amount of transitions kept for experience replay.
+     * 
+     * @param replayCapacity
+     *            The replay capacity, 0 to update from each transition right away
+     */
+    public void setReplayCapacity(final int replayCapacity) {
+        mReplayCapacity = replayCapacity;
+    }
+
+    /**
+     * Retrieves the amount of transitions replayed after each step when using experience replay.
+     * 
+     * @return The replay batch size
+     */
+    public int getReplayBatchSize() {
+        return mReplayBatchSize;
+    }
+
+    /**
+     * Sets the amount of transitions replayed after each step when using experience replay.
+     * 
+     * @param replayBatchSize
+     *            The replay batch size
+     */
+    public void setReplayBatchSize(final int replayBatchSize) {
+        mReplayBatchSize = replayBatchSize;
+    }
+
+    /**
+     * Checks whether replayed transitions are sampled in proportion to their error instead of uniformly.
+     * 
+     * @return True for prioritized replay, false for uniform replay
+     */
+    public boolean isPrioritizedReplay() {
+        return mPrioritizedReplay;
+    }
+
+    /**
+     * Sets whether replayed transitions are sampled in proportion to their error instead of uniformly.
+     * 
+     * @param prioritizedReplay
+     *            True for prioritized replay, false for uniform replay
+     */
+    public void setPrioritizedReplay(final boolean prioritizedReplay) {
+        mPrioritizedReplay = prioritizedReplay;
+    }
+
+    /**
+     * Retrieves the amount of tilings for approximating action values.
+     * 
+     * @return The amount of tilings, 0 to keep the action values of each state
+     */
+    public int getTilings() {
+        return mTilings;
+    }
+
+    /**
+     * Sets the amount of tilings for approximating action values.
+     * 
+     * @param tilings
+     *            The amount of tilings, 0 to keep the action values of each state
+     */
+    public void setTilings(final int tilings) {
+        mTilings = tilings;
+    }
+
+    /**
+     * Retrieves the width and height of a single tile when approximating action values.
+     * 
+     * @return The tile width
+     */
+    public int getTileWidth() {
+        return mTileWidth;
+    }
+
+    /**
+     * Sets the width and height of a single tile when approximating action values.
+     * 
+     * @param tileWidth
+     *            The tile width
+     */
+    public void setTileWidth(final int tileWidth) {
+        mTileWidth = tileWidth;
+    }
+
+    /**
+     * Retrieves the maximum amount of states in a learning agent's policy.
+     * 
+     * @return The policy capacity, 0 for an unbounded amount
+     */
+    public int getPolicyCapacity() {
+        return mPolicyCapacity;
+    }
+
+    /**
+     * Sets the maximum amount of states in a learning agent's policy.
+     * 
+     * @param policyCapacity
+     *            The policy capacity, 0 for an unbounded amount
+     */
+    public void setPolicyCapacity(final int policyCapacity) {
+        mPolicyCapacity = policyCapacity;
+    }
+
+    /**
+     * Retrieves the highest action value from which a state is never evicted from a bounded policy.
+     * 
+     * @return The protected action value
+     */
+    public double getProtectedActionValue() {
+        return mProtectedActionValue;
+    }
+
+    /**
+     * Sets the highest action value from which a state is never evicted from a bounded policy.
+     * 
+     * @param protectedActionValue
+     *            The protected action value
+     */
+    public void setProtectedActionValue(final double protectedActionValue) {
+        mProtectedActionValue = protectedActionValue;
+    }
+
+    /**
+     * Retrieves whether or not a learning agent's policy is stored outside of the heap.
+     * 
+     * @return True if the policy is stored off-heap, false if it's mapped on the heap
+     */
+    public boolean isOffHeapPolicy() {
+        return mOffHeapPolicy;
+    }
+
+    /**
+     * Sets whether or not a learning agent's policy is stored outside of the heap.
+     * 
+     * @param offHeapPolicy
+     *            True to store the policy off-heap, false to map it on the heap
+     */
+    public void setOffHeapPolicy(final boolean offHeapPolicy) {
+        mOffHeapPolicy = offHeapPolicy;
+    }
+
+    /**
+     * Retrieves the file to memory-map an agent's policy to.
+     * 
+     * @return The path of the policy file, null to not use a file
+     */
+    public String getPolicyFile() {
+        return mPolicyFile;
+    }
+
+    /**
+     * Sets the file to memory-map an agent's policy to. Both learning and dynamic programming agents keep the states
+     * with all agents in it, so the state-space can be larger than the memory. Every agent maps its own file, named
+     * after this path with a dot, the agent's role and its index among the agents of that role appended, e.g.
+     * "policy.bin.predator0".
+     * 
+     * @param policyFile
+     *            The path of the policy file, null to not use a file
+     */
+    public void setPolicyFile(final String policyFile) {
+        mPolicyFile = policyFile;
+    }
+
+    /**
+     * Retrieves the amount of shards that the policy of a distributed self-play is partitioned into.
+     * 
+     * @return The amount of shards
+     */
+    public int getPolicyShards() {
+        return mPolicyShards;
+    }
+
+    /**
+     * Sets the amount of shards that the policy of a distributed self-play is partitioned into. Each shard is updated
+     * by its own thread.
+     * 
+     * @param policyShards
+     *            The amount of shards
+     */
+    public void setPolicyShards(final int policyShards) {
+        mPolicyShards = policyShards;
+    }
+
+    /**
+     * Creates an identical clone of this configuration.
+     * 
+     * @return A configuration with the same values
+     */
+    public Config clone() {
+        final Config clone = new Config();
+        clone.mErrorThresholdTheta = mErrorThresholdTheta;
+        clone.mStepSizeAlpha = mStepSizeAlpha;
+        clone.mStepSizeBeta = mStepSizeBeta;
+        clone.mPreyStepSizeAlpha = mPreyStepSizeAlpha;
+        clone.mDiscountFactorGamma = mDiscountFactorGamma;
+        clone.mPreyDiscountFactorGamma = mPreyDiscountFactorGamma;
+        clone.mEpsilon = mEpsilon;
+        clone.mPreyEpsilon = mPreyEpsilon;
+        clone.mTemperature = mTemperature;
+        clone.mDefaultActionValue = mDefaultActionValue;
+        clone.mPreyDefaultActionValue = mPreyDefaultActionValue;
+        clone.mKillReward = mKillReward;
+        clone.mCollisionReward = mCollisionReward;
+        clone.mPreyDieReward = mPreyDieReward;
+        clone.mPreyEscapeReward = mPreyEscapeReward;
+        clone.mTraceDecayLambda = mTraceDecayLambda;
+        clone.mMaxEligibilityTraces = mMaxEligibilityTraces;
+        clone.mMinEligibilityTrace = mMinEligibilityTrace;
+        clone.mPlanningSteps = mPlanningSteps;
+        clone.mBackgroundPlanning = mBackgroundPlanning;
+        clone.mReplayCapacity = mReplayCapacity;
+        clone.mReplayBatchSize = mReplayBatchSize;
+        clone.mPrioritizedReplay = mPrioritizedReplay;
+        clone.mTilings = mTilings;
+        clone.mTileWidth = mTileWidth;
+        clone.mPolicyCapacity = mPolicyCapacity;
+        clone.mProtectedActionValue = mProtectedActionValue;
+        clone.mOffHeapPolicy = mOffHeapPolicy;
+        clone.mPolicyFile = mPolicyFile;
+        clone.mPolicyShards = mPolicyShards;
+        return clone;
+    }
 }
@@ -1,6 +1,5 @@
 package com.uva.aa;
 
-import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -13,12 +12,17 @@ import java.util.Set;
 import com.uva.aa.agents.Agent;
 import com.uva.aa.agents.PredatorAgent;
 import com.uva.aa.agents.PreyAgent;
+import com.uva.aa.enums.InstrumentationEvent;
+import com.uva.aa.metrics.Instrumentation;
 
 /**
  * The environment which holds the agents and state.
  */
 public class Environment {
 
+    /** The separator between the lines of a frame of the UI */
+    private static final String UI_LINE_SEPARATOR = System.getProperty("line.separator");
+
     /** The width of the environment */
     private final int mWidth;
 
@@ -46,6 +50,9 @@ public class Environment {
     /** The possible states that can occur, including terminal state */
     private Set<State> mAllPossibleStates;
 
+    /** The snapshot of the current state, or null if an agent moved, arrived or left since it was taken */
+    private State mCurrentState;
+
     /**
      * Creates a new environment within the specified game with the given dimensions.
      * 
@@ -79,6 +86,7 @@ public class Environment {
         }
 
         mAgents.add(agent);
+        mCurrentState = null;
 
         if (PreyAgent.class.isInstance(agent)) {
             mPreys.add((PreyAgent) agent);
@@ -95,6 +103,7 @@ public class Environment {
      */
     public void removeAgent(final Agent agent) {
         mAgents.remove(agent);
+        mCurrentState = null;
 
         if (PreyAgent.class.isInstance(agent)) {
             mPreys.remove(agent);
@@ -112,6 +121,7 @@ public class Environment {
         mAgents.clear();
         mPreys.clear();
         mPredators.clear();
+        mCurrentState = null;
     }
 
     /**
@@ -137,7 +147,8 @@ public class Environment {
      * Retrieves the list of all possible states that the environment can be in, considering all the agents that are
      * currently in it.
      * 
-     * This method does NOT support more than one predator or prey yet.
+     * This method does NOT support more than one predator or prey; use {@link #getStateEnumerator(boolean)} to
+     * enumerate the states of more agents without holding them all in memory.
      * 
      * @param includeTerminal
      *            Whether or not the terminal states should also be included in the list
@@ -148,25 +159,22 @@ public class Environment {
         Set<State> possibleStates = (includeTerminal ? mAllPossibleStates : mNonTerminalPossibleStates);
 
         if (possibleStates == null) {
+            final long startTime = (Instrumentation.isEnabled() ? System.nanoTime() : 0);
             possibleStates = new HashSet<State>();
             final PredatorAgent predator = mPredators.get(0);
             final PreyAgent prey = mPreys.get(0);
 
-            // Loop over the possible locations of the predator
-            for (int xPred = 0; xPred < mWidth; ++xPred) {
-                for (int yPred = 0; yPred < mHeight; ++yPred) {
-                    final Location predatorLocation = new Location(this, xPred, yPred);
-
-                    // Loop over the possible locations of the prey
-                    for (int xPrey = 0; xPrey < mWidth; ++xPrey) {
-                        for (int yPrey = 0; yPrey < mHeight; ++yPrey) {
-                            final Location preyLocation = new Location(this, xPrey, yPrey);
-
-                            // Only include the state if it's not terminal or if terminal states should be included
-                            if (includeTerminal || !predatorLocation.equals(preyLocation)) {
-                                possibleStates.add(State.buildState(predator, predatorLocation, prey, preyLocation));
-                            }
-                        }
+            // The enumerator only creates the representatives of the non-terminal states
+            for (final State state : getStateEnumerator(false)) {
+                possibleStates.add(state);
+            }
+
+            // The terminal states only hold the predator as the prey has been caught
+            if (includeTerminal) {
+                for (int x = 0; x < mWidth; ++x) {
+                    for (int y = 0; y < mHeight; ++y) {
+                        final Location location = new Location(this, x, y);
+                        possibleStates.add(State.buildState(predator, location, prey, location));
                     }
                 }
             }
@@ -176,24 +184,55 @@ public class Environment {
             } else {
                 mNonTerminalPossibleStates = possibleStates;
             }
+
+            if (Instrumentation.isEnabled()) {
+                Instrumentation.emit(InstrumentationEvent.STATE_ENUMERATION, System.nanoTime() - startTime,
+                        possibleStates.size(), 0);
+            }
         }
 
         return possibleStates;
     }
 
     /**
-     * Retrieves the state that the environment is currently in.
+     * Creates an enumerator over the states of all agents currently in the environment, which supports any amount of
+     * predators and preys and creates the states on demand.
+     * 
+     * @param includeTerminal
+     *            Whether or not states in which agents share a location should also be enumerated
+     * 
+     * @return The state enumerator
+     */
+    public StateEnumerator getStateEnumerator(final boolean includeTerminal) {
+        return new StateEnumerator(this, includeTerminal);
+    }
+
+    /**
+     * Retrieves the state that the environment is currently in. The state is a snapshot that's shared by all callers
+     * until an agent moves, arrives or leaves, so it must not be modified.
      * 
      * @return The environment's current state
      */
     public State getState() {
-        final Map<Agent, Location> stateMap = new LinkedHashMap<Agent, Location>();
+        if (mCurrentState == null) {
+            final Map<Agent, Location> stateMap = new LinkedHashMap<Agent, Location>();
 
-        for (final Agent agent : mAgents) {
-            stateMap.put(agent, agent.getLocation());
+            for (final Agent agent : mAgents) {
+                stateMap.put(agent, agent.getLocation());
+            }
+
+            mCurrentState = new State(stateMap);
         }
 
-        return new State(stateMap);
+        return mCurrentState;
+    }
+
+    /**
+     * Discards the snapshot of the current state, so that the next one reflects the changes of the agents. Must be
+     * called whenever an agent changes its location.
+     */
+    public void invalidateState() {
+        mCurrentState = null;
     }
 
     /**
@@ -416,46 +455,54 @@ public class Environment {
     }
 
     /**
-     * Prints the current environment state to the console.
+     * Prints the current environment state to the console as a single frame.
      */
     public void printUi() {
-        final PrintStream out = System.out;
+        final char[] frame = new char[getUiFrameLength()];
+        drawUi(frame);
+        System.out.print(frame);
+    }
 
-        // Print the top border
-        out.print(" ");
-        for (int x = 0; x < mWidth; ++x) {
-            out.print("-");
-        }
-        out.print(" ");
-        out.println();
-
-        // Print each row
-        for (int y = 0; y < mHeight; ++y) {
-            out.print("|");
-
-            // Print each column
-            for (int x = 0; x < mWidth; ++x) {
-                final Location location = new Location(null, x, y);
-                if (isOccupiedByPredator(location)) {
-                    out.print("X");
-                } else if (isOccupiedByPrey(location)) {
-                    out.print("O");
-                } else {
-                    out.print(" ");
-                }
-            }
+    /**
+     * Retrieves the amount of characters in a frame of the UI, including the borders and line separators.
+     * 
+     * @return The length of a frame
+     */
+    public int getUiFrameLength() {
+        return (mHeight + 2) * (mWidth + 2 + UI_LINE_SEPARATOR.length());
+    }
 
-            out.print("|");
-            out.println();
+    /**
+     * Draws the current environment state into a frame of the UI. Predators are drawn as X, preys as O and the
+     * environment is surrounded by a border.
+     * 
+     * @param frame
+     *            The frame to draw into, at least getUiFrameLength() characters long
+     */
+    public void drawUi(final char[] frame) {
+        final int lineLength = mWidth + 2 + UI_LINE_SEPARATOR.length();
+
+        // Draw the borders and empty cells
+        for (int y = 0; y < mHeight + 2; ++y) {
+            final int lineStart = y * lineLength;
+            final boolean border = (y == 0 || y == mHeight + 1);
+            frame[lineStart] = (border ? ' ' : '|');
+            for (int x = 1; x <= mWidth; ++x) {
+                frame[lineStart + x] = (border ? '-' : ' ');
+            }
+            frame[lineStart + mWidth + 1] = (border ? ' ' : '|');
+            UI_LINE_SEPARATOR.getChars(0, UI_LINE_SEPARATOR.length(), frame, lineStart + mWidth + 2);
         }
 
-        // Print the bottom border
-        out.print(" ");
-        for (int x = 0; x < mWidth; ++x) {
-            out.print("-");
+        // Draw the predators over the preys, as a predator on a prey's location is what's seen
+        for (final PreyAgent prey : mPreys) {
+            final Location location = prey.getLocation();
+            frame[(location.getY() + 1) * lineLength + location.getX() + 1] = 'O';
+        }
+        for (final PredatorAgent predator : mPredators) {
+            final Location location = predator.getLocation();
+            frame[(location.getY() + 1) * lineLength + location.getX() + 1] = 'X';
         }
-        out.print(" ");
-        out.println();
     }
 
     /**
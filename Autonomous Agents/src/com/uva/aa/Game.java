@@ -3,6 +3,8 @@ package com.uva.aa;
 import java.util.List;
 
 import com.uva.aa.agents.Agent;
+import com.uva.aa.agents.DistributedQLearningPredatorAgent;
+import com.uva.aa.agents.DynaQPredatorAgent;
 import com.uva.aa.agents.OffPolicyMCPredatorAgent;
 import com.uva.aa.agents.OnPolicyMCPredatorAgent;
 import com.uva.aa.agents.ParallelMinimaxQPredatorAgent;
@@ -21,6 +23,11 @@ import com.uva.aa.agents.QLearningSoftmaxPredatorAgent;
 import com.uva.aa.agents.SarsaPredatorAgent;
 import com.uva.aa.agents.ValueIteratingPredatorAgent;
 import com.uva.aa.enums.GameState;
+import com.uva.aa.enums.InstrumentationEvent;
+import com.uva.aa.metrics.EpisodeMetricsRecorder;
+import com.uva.aa.metrics.Instrumentation;
+import com.uva.aa.policies.OffHeapPolicyStore;
+import com.uva.aa.policies.Policy;
 
 /**
  * The game which maintains the environment and agents.
@@ -33,6 +40,9 @@ public class Game {
     /** The environment for this game */
     private final Environment mEnvironment;
 
+    /** The configuration used by the game and its agents */
+    private Config mConfig;
+
     /** The state of the game which indicates if it's running */
     private GameState mGameState = GameState.PREPARATION;
 
@@ -45,15 +55,27 @@ public class Game {
     /** The amount of turns taken in the game */
     private int mTurnsPlayed = 0;
 
+    /** The cumulative reward given to the first predator in the game, only kept while recording metrics */
+    private double mPredatorReward = 0;
+
     /** True if we should see the states of the game, false otherwise */
     private boolean mHumanTest = true;
 
     /** Whether to print the UI or just a simple textual state when performing a human test */
     private boolean mPrintUi = true;
 
+    /** Whether the UI is rendered on a separate thread without pacing the game when performing a human test */
+    private boolean mAsyncUi = false;
+
+    /** The renderer of the UI on a separate thread, created when it's first needed */
+    private UiRenderer mUiRenderer;
+
     /** Whether or not the game should run in parallel */
     private boolean mParallelActions = false;
 
+    /** The recorder that the metrics of each game are recorded to, or null if they shouldn't be recorded */
+    private EpisodeMetricsRecorder mMetricsRecorder;
+
     /**
      * Creates a new game with an environment with the specified dimensions.
      * 
@@ -63,7 +85,22 @@ public class Game {
      *            The height of the game's environment
      */
     public Game(final int width, final int height) {
+        this(width, height, new Config());
+    }
+
+    /**
+     * Creates a new game with an environment with the specified dimensions and configuration.
+     * 
+     * @param width
+     *            The width of the game's environment
+     * @param height
+     *            The height of the game's environment
+     * @param config
+     *            The configuration used by the game and its agents
+     */
+    public Game(final int width, final int height, final Config config) {
         mEnvironment = new Environment(this, width, height);
+        mConfig = config;
     }
 
     /**
@@ -175,6 +212,31 @@ public class Game {
         mEnvironment.addAgent(new QLearningEGreedyPredatorAgent(new Location(mEnvironment, x, y)));
     }
 
+    /**
+     * Adds a Q-Learning e-Greedy predator that collects its transitions for a distributed self-play to the environment
+     * at the specified coordinates.
+     * 
+     * @param x
+     *            The x coordinate where the predator is located at
+     * @param y
+     *            The y coordinate where the predator is located at
+     */
+    public void addDistributedQLearningPredator(final int x, final int y) {
+        mEnvironment.addAgent(new DistributedQLearningPredatorAgent(new Location(mEnvironment, x, y)));
+    }
+
+    /**
+     * Adds a Dyna-Q predator to the environment at the specified coordinates.
+     * 
+     * @param x
+     *            The x coordinate where the predator is located at
+     * @param y
+     *            The y coordinate where the predator is located at
+     */
+    public void addDynaQPredator(final int x, final int y) {
+        mEnvironment.addAgent(new DynaQPredatorAgent(new Location(mEnvironment, x, y)));
+    }
+
     /**
      * Adds a Q-Learning Softmax predator to the environment at the specified coordinates.
      * 
@@ -357,6 +419,7 @@ public class Game {
                 throw new RuntimeException("This game is already running or finished.");
         }
 
+        final long startTime = System.nanoTime();
         mInitialState = mEnvironment.getState();
         State roundStartState = mInitialState;
 
@@ -364,6 +427,10 @@ public class Game {
         mGameState = GameState.RUNNING;
         mRoundsPlayed = 0;
         mTurnsPlayed = 0;
+        mPredatorReward = 0;
+
+        // The rewards of the first predator are summed up for the metrics
+        final PredatorAgent rewardedPredator = (mMetricsRecorder != null ? mEnvironment.getPredators().get(0) : null);
 
         // Let each agent take turns in performing actions
         final List<Agent> agents = mEnvironment.getAgents();
@@ -373,11 +440,22 @@ public class Game {
             ++mTurnsPlayed;
 
             // Make a move
+            final State turnStartState = (activeAgent == rewardedPredator && !mParallelActions ? mEnvironment
+                    .getState() : null);
             activeAgent.performAction(mParallelActions ? roundStartState : null);
+            if (turnStartState != null) {
+                mPredatorReward += rewardedPredator.getImmediateReward(turnStartState, mEnvironment.getState(),
+                        rewardedPredator.getLastAction());
+            }
 
             // Show the current state of the environment
             if (mHumanTest) {
-                if (mPrintUi) {
+                if (mPrintUi && mAsyncUi) {
+                    if (mUiRenderer == null) {
+                        mUiRenderer = new UiRenderer(mEnvironment, TURN_DELAY);
+                    }
+                    mUiRenderer.submitFrame();
+                } else if (mPrintUi) {
                     mEnvironment.printUi();
                 } else {
                     mEnvironment.printSimple();
@@ -393,30 +471,67 @@ public class Game {
                 if (mParallelActions) {
                     // Update the environment, can end the game
                     mEnvironment.updateParallelActionState();
+                    final State previousRoundStartState = roundStartState;
                     roundStartState = mEnvironment.getState();
+                    if (rewardedPredator != null) {
+                        mPredatorReward += rewardedPredator.getImmediateReward(previousRoundStartState,
+                                roundStartState, rewardedPredator.getLastAction());
+                    }
                 }
             }
             activeAgent = agents.get(nextAgent);
 
-            // Make sure that humans can see the game's state changes develop
-            if (mHumanTest) {
+            // Make sure that humans can see the game's state changes develop, unless the renderer paces itself
+            if (mHumanTest && !(mPrintUi && mAsyncUi)) {
                 try {
                     Thread.sleep(TURN_DELAY);
                 } catch (InterruptedException e) {}
             }
         }
 
-        // Let agents finish up
+        // Let agents finish up and write their policies back to their files
         for (final Agent agent : agents) {
             agent.postGameCallback();
+
+            final OffHeapPolicyStore offHeapStore = agent.getPolicy().getOffHeapStore();
+            if (offHeapStore != null) {
+                offHeapStore.flush();
+            }
+        }
+
+        final Policy policy = mEnvironment.getPredators().get(0).getPolicy();
+        final int statesVisited = policy.getStateCount();
+        if (mMetricsRecorder != null) {
+            mMetricsRecorder.record(mRoundsPlayed, mPredatorReward, statesVisited, System.nanoTime() - startTime);
+        }
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.emit(InstrumentationEvent.EPISODE, System.nanoTime() - startTime, mRoundsPlayed,
+                    statesVisited);
         }
 
         System.out.println((mEnvironment.getPreys().isEmpty() ? "Predators" : "Preys") + " win!");
-        System.out.println(mEnvironment.getPredators().get(0).getPolicy().getStateMap().size() + " states visited.");
+        System.out.println(statesVisited + " states visited.");
         System.out.println(mRoundsPlayed + " rounds played with a total of " + mTurnsPlayed + " turns.");
         System.out.println();
     }
 
+    /**
+     * Writes the policies of the agents back to their files and closes them. Should be called once the game won't be
+     * started anymore.
+     */
+    public void close() {
+        if (mInitialState == null) {
+            return;
+        }
+
+        for (final Agent agent : mInitialState.getAgentLocations().keySet()) {
+            final OffHeapPolicyStore offHeapStore = agent.getPolicy().getOffHeapStore();
+            if (offHeapStore != null) {
+                offHeapStore.close();
+            }
+        }
+    }
+
     /**
      * Resets the game so that it may be ran again. NB: This does not reset policies.
      */
@@ -449,6 +564,46 @@ public class Game {
         mHumanTest = humanTest;
     }
 
+    /**
+     * Sets whether or not the UI of a human test is rendered on a separate thread. The game then runs at full speed
+     * while the renderer shows the latest state at most once per turn delay, dropping the states in between.
+     * 
+     * @param asyncUi
+     *            True to render the UI on a separate thread, false to print it and wait after every turn
+     */
+    public void setAsyncUi(final boolean asyncUi) {
+        mAsyncUi = asyncUi;
+    }
+
+    /**
+     * Sets the recorder that the metrics of each game are recorded to, such as the rounds played and states visited.
+     * 
+     * @param metricsRecorder
+     *            The recorder for the metrics or null to stop recording
+     */
+    public void setMetricsRecorder(final EpisodeMetricsRecorder metricsRecorder) {
+        mMetricsRecorder = metricsRecorder;
+    }
+
+    /**
+     * Returns the configuration used by the game and its agents.
+     * 
+     * @return The configuration for this game
+     */
+    public Config getConfig() {
+        return mConfig;
+    }
+
+    /**
+     * Sets the configuration used by the game and its agents. Should be set before the game is started.
+     * 
+     * @param config
+     *            The configuration for this game
+     */
+    public void setConfig(final Config config) {
+        mConfig = config;
+    }
+
     /**
      * Returns the environment of the game.
      * 
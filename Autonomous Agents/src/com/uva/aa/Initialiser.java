@@ -1,5 +1,18 @@
 package com.uva.aa;
 
+import java.io.File;
+import java.io.IOException;
+
+import com.uva.aa.enums.ConfigParameter;
+import com.uva.aa.metrics.CsvMetricsWriter;
+import com.uva.aa.metrics.EpisodeMetricsRecorder;
+import com.uva.aa.metrics.Instrumentation;
+import com.uva.aa.metrics.InstrumentationSummary;
+import com.uva.aa.testers.BudgetedPolicyIterationStateValueTester;
+import com.uva.aa.testers.CompiledPolicyTester;
+import com.uva.aa.testers.ConcurrentPolicyTester;
+import com.uva.aa.testers.DistributedSelfPlayTester;
+import com.uva.aa.testers.DynaQGameTester;
 import com.uva.aa.testers.GameTester;
 import com.uva.aa.testers.OffPolicyMCGameTester;
 import com.uva.aa.testers.OnPolicyMCGameTester;
@@ -8,11 +21,16 @@ import com.uva.aa.testers.ParallelMinimaxQGameTester;
 import com.uva.aa.testers.ParallelQLearningEGreedyGameTester;
 import com.uva.aa.testers.ParallelRLearningGameTester;
 import com.uva.aa.testers.PolicyEvaluationTester;
+import com.uva.aa.testers.PolicyExportTester;
+import com.uva.aa.testers.PolicyIterationComparisonTester;
 import com.uva.aa.testers.PolicyIterationStateValueTester;
+import com.uva.aa.testers.QLearningEGreedySweepTester;
 import com.uva.aa.testers.QLearningEGreedyGameTester;
 import com.uva.aa.testers.QLearningSoftmaxGameTester;
 import com.uva.aa.testers.SarsaGameTester;
+import com.uva.aa.testers.SnapshotEvaluationTester;
 import com.uva.aa.testers.SimpleGameTester;
+import com.uva.aa.testers.StateEnumerationTester;
 import com.uva.aa.testers.StateSpaceTester;
 import com.uva.aa.testers.StateValueTester;
 import com.uva.aa.testers.ValueIterationGameTester;
@@ -29,25 +47,48 @@ public class Initialiser {
     private static boolean sTestValueIterationGame = false;
     private static boolean sTestValueIterationStateValue = false;
     private static boolean sTestStateSpace = false;
+    private static boolean sTestBudgetedPolicyIteration = false;
+    private static boolean sTestPolicyIterationComparison = false;
+    private static boolean sTestStateEnumeration = false;
+    private static boolean sTestPolicyExport = false;
+    private static boolean sTestConcurrentPolicy = false;
+    private static boolean sTestCompiledPolicy = false;
 
     private static boolean sTestQLearningEGreedyGame = false;
     private static boolean sTestQLearningSoftmaxGame = false;
     private static boolean sTestSarsaGame = false;
+    private static boolean sTestEligibilityTraces = false;
+    private static boolean sTestDynaQGame = false;
     private static boolean sTestOnPolicyMCGame = false;
     private static boolean sTestOffPolicyMCGame = false;
+    private static boolean sTestSnapshotEvaluation = false;
+    private static boolean sTestDistributedSelfPlay = false;
 
     private static boolean sTestParallelGame = false;
     private static boolean sTestParallelQLearningEGreedyGame = false;
     private static boolean sTestParallelRLearningGame = false;
     private static boolean sTestParallelMinimaxQGame = true;
 
+    private static boolean sTestParameterSweep = false;
+    private static boolean sRecordLearningCurves = false;
+    private static boolean sPrintInstrumentation = false;
+
     /**
      * Sets everything in motion.
      * 
      * @param args
      *            Not used
+     * 
+     * @throws IOException
+     *             Thrown when recorded metrics could not be written
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+
+        // Instrument the hot paths of whatever is being run
+        final InstrumentationSummary instrumentationSummary = new InstrumentationSummary();
+        if (sPrintInstrumentation) {
+            Instrumentation.setListener(instrumentationSummary);
+        }
 
         // Task 1.1: Random policy
         if (sTestRandomPolicy) {
@@ -83,6 +124,43 @@ public class Initialiser {
             stateSpaceTester.performTest();
         }
 
+        // Policy iteration within a budget and relative error bound
+        if (sTestBudgetedPolicyIteration) {
+            final StateValueTester budgetedPolicyIterationTester = new BudgetedPolicyIterationStateValueTester();
+            budgetedPolicyIterationTester.performTest();
+        }
+
+        // Policy iteration compared to modified policy iteration and exact policy evaluation
+        if (sTestPolicyIterationComparison) {
+            final PolicyIterationComparisonTester policyIterationComparisonTester = new PolicyIterationComparisonTester();
+            policyIterationComparisonTester.performTest();
+        }
+
+        // Streaming enumeration of the states of several predators
+        if (sTestStateEnumeration) {
+            final StateEnumerationTester stateEnumerationTester = new StateEnumerationTester();
+            stateEnumerationTester.performTest();
+        }
+
+        // Streaming export of a policy
+        if (sTestPolicyExport) {
+            final PolicyExportTester policyExportTester = new PolicyExportTester(new File("policy.bin"), new File(
+                    "policy.csv"));
+            policyExportTester.performTest();
+        }
+
+        // Evaluation threads querying a policy while its values are iterated
+        if (sTestConcurrentPolicy) {
+            final ConcurrentPolicyTester concurrentPolicyTester = new ConcurrentPolicyTester(4);
+            concurrentPolicyTester.performTest();
+        }
+
+        // Serving actions from a compiled policy
+        if (sTestCompiledPolicy) {
+            final CompiledPolicyTester compiledPolicyTester = new CompiledPolicyTester(100, 100);
+            compiledPolicyTester.performTest();
+        }
+
         // Task 2.1: Q-Learning e-Greedy
         if (sTestQLearningEGreedyGame) {
             final GameTester qLearningEGreedyGameTester = new QLearningEGreedyGameTester();
@@ -101,6 +179,30 @@ public class Initialiser {
             sarsaGameTester.runTests(100000);
         }
 
+        // Q(lambda) and Sarsa(lambda), which should need far fewer games than their one-step counterparts
+        if (sTestEligibilityTraces) {
+            final Config lambdaConfig = new Config();
+            lambdaConfig.setTraceDecayLambda(0.9);
+
+            final GameTester qLambdaGameTester = new QLearningEGreedyGameTester();
+            qLambdaGameTester.setConfig(lambdaConfig);
+            qLambdaGameTester.runTests(10000);
+
+            final GameTester sarsaLambdaGameTester = new SarsaGameTester();
+            sarsaLambdaGameTester.setConfig(lambdaConfig);
+            sarsaLambdaGameTester.runTests(10000);
+        }
+
+        // Dyna-Q, planning with a model of the observed transitions on a background thread
+        if (sTestDynaQGame) {
+            final Config dynaConfig = new Config();
+            dynaConfig.setBackgroundPlanning(true);
+
+            final GameTester dynaQGameTester = new DynaQGameTester();
+            dynaQGameTester.setConfig(dynaConfig);
+            dynaQGameTester.runTests(10000);
+        }
+
         // Task 2.4(2): On-policy MC
         if (sTestOnPolicyMCGame) {
             final GameTester onPolicyMCGameTester = new OnPolicyMCGameTester();
@@ -113,6 +215,18 @@ public class Initialiser {
             offPolicyMCGameTester.runTests(1000);
         }
 
+        // Evaluation of policy snapshots while training continues
+        if (sTestSnapshotEvaluation) {
+            final SnapshotEvaluationTester snapshotEvaluationTester = new SnapshotEvaluationTester(1000, 100);
+            snapshotEvaluationTester.performTest();
+        }
+
+        // Q-Learning from the games of several worker processes
+        if (sTestDistributedSelfPlay) {
+            final DistributedSelfPlayTester distributedSelfPlayTester = new DistributedSelfPlayTester(4, 10, 100);
+            distributedSelfPlayTester.performTest();
+        }
+
         // Task 3.1: Parallel
         if (sTestParallelGame) {
             final GameTester parallelTester = new ParallelGameTester();
@@ -136,6 +250,47 @@ public class Initialiser {
             final GameTester parallelMinimaxQTester = new ParallelMinimaxQGameTester();
             parallelMinimaxQTester.runTests(1000);
         }
+
+        // Parameter sweep over Q-Learning e-Greedy
+        if (sTestParameterSweep) {
+            final QLearningEGreedySweepTester sweepTester = new QLearningEGreedySweepTester();
+            sweepTester.setGridValues(ConfigParameter.STEP_SIZE_ALPHA, 0.1, 0.2, 0.5);
+            sweepTester.setGridValues(ConfigParameter.DISCOUNT_FACTOR_GAMMA, 0.1, 0.5, 0.9);
+            sweepTester.runGridSearch(1000);
+        }
+
+        // Learning curves of Q-Learning e-Greedy and Sarsa
+        if (sRecordLearningCurves) {
+            recordLearningCurve(new QLearningEGreedyGameTester(), new File("qlearning-egreedy.csv"), 10000);
+            recordLearningCurve(new SarsaGameTester(), new File("sarsa.csv"), 10000);
+        }
+
+        if (sPrintInstrumentation) {
+            Instrumentation.setListener(null);
+            instrumentationSummary.print();
+        }
+    }
+
+    /**
+     * Runs the tests of a game tester while recording the metrics of each game to a CSV file.
+     * 
+     * @param tester
+     *            The game tester to run
+     * @param file
+     *            The CSV file to write the metrics to
+     * @param numRuns
+     *            The amount of tests to perform
+     * 
+     * @throws IOException
+     *             Thrown when the metrics could not be written
+     */
+    private static void recordLearningCurve(final GameTester tester, final File file, final int numRuns)
+            throws IOException {
+        final EpisodeMetricsRecorder recorder = new EpisodeMetricsRecorder(new CsvMetricsWriter(file));
+        tester.setMetricsRecorder(recorder);
+        tester.runTests(numRuns);
+        tester.setMetricsRecorder(null);
+        recorder.close();
     }
 
 }
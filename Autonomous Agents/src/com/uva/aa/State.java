@@ -1,11 +1,11 @@
 package com.uva.aa;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import com.uva.aa.agents.Agent;
 import com.uva.aa.agents.PredatorAgent;
@@ -19,12 +19,21 @@ public class State {
     /** The map of agents with their locations */
     private final Map<Agent, Location> mAgentLocations;
 
-    /** The map of agents with their locations relative to the most top-left location */
-    private final Map<Agent, Location> mRelativeAgentLocations = new HashMap<Agent, Location>();
+    /** The map of agents with their locations relative to the most top-left location, or null until it's needed */
+    private Map<Agent, Location> mRelativeAgentLocations;
 
     /** The agent from whose perspective the state is considered */
     private final Agent mTargetAgent;
 
+    /** Whether or not the state-space was reduced when the state was created */
+    private final boolean mReducedStateSpace;
+
+    /** The canonical key that identifies the contents of the state */
+    private final long[] mKey;
+
+    /** The hashcode of the canonical key */
+    private final int mHashCode;
+
     /**
      * Builds a state based on a predator and a prey, both with a location. Only supports one predator and one prey.
      * 
@@ -62,7 +71,32 @@ public class State {
         mTargetAgent = targetAgent;
         mAgentLocations = agentLocations;
 
-        // Set relative locations based on the most top-left agent for reducing the state-space
+        if (agentLocations.isEmpty()) {
+            mReducedStateSpace = false;
+        } else {
+            mReducedStateSpace = agentLocations.keySet().iterator().next().getEnvironment().hasReducedStateSpace();
+        }
+        mKey = computeKey();
+        mHashCode = Arrays.hashCode(mKey);
+    }
+
+    /**
+     * Creates a new state with the given mapping.
+     * 
+     * @param agentLocations
+     *            The agents mapped to their locations
+     */
+    public State(final Map<Agent, Location> agentLocations) {
+        this(agentLocations, null);
+    }
+
+    /**
+     * Computes the locations of the agents relative to the most top-left agent for reducing the state-space.
+     * 
+     * @return The mapped agents with relative locations
+     */
+    private Map<Agent, Location> computeRelativeAgentLocations() {
+        final Map<Agent, Location> relativeAgentLocations = new HashMap<Agent, Location>();
         int minX = Integer.MAX_VALUE;
         int minY = Integer.MAX_VALUE;
 
@@ -74,18 +108,9 @@ public class State {
         for (final Map.Entry<Agent, Location> agentLocation : mAgentLocations.entrySet()) {
             final Location location = agentLocation.getValue();
             final Location relativeLocation = new Location(null, location.getX() - minX, location.getY() - minY);
-            mRelativeAgentLocations.put(agentLocation.getKey(), relativeLocation);
+            relativeAgentLocations.put(agentLocation.getKey(), relativeLocation);
         }
-    }
-
-    /**
-     * Creates a new state with the given mapping.
-     * 
-     * @param agentLocations
-     *            The agents mapped to their locations
-     */
-    public State(final Map<Agent, Location> agentLocations) {
-        this(agentLocations, null);
+        return relativeAgentLocations;
     }
 
     /**
@@ -100,6 +125,15 @@ public class State {
         return new State(mAgentLocations, agent);
     }
 
+    /**
+     * Retrieves the agent from whose perspective the state is considered.
+     * 
+     * @return The target agent, or null if there is none
+     */
+    public Agent getTargetAgent() {
+        return mTargetAgent;
+    }
+
     /**
      * Retrieves the mapping of agents to their locations.
      * 
@@ -144,11 +178,37 @@ public class State {
     }
 
     /**
-     * Retrieves the mapping of agents to their relative locations.
+     * Checks whether the game is over in this state, which is when no preys are left or when predators collided. This is
+     * the check that learners use to decide whether a transition ended the game.
+     * 
+     * @return True if the state is terminal, false otherwise
+     */
+    public boolean isTerminal() {
+        boolean hasPreys = false;
+        final List<Location> predatorLocations = new LinkedList<Location>();
+        for (final Map.Entry<Agent, Location> agentLocation : mAgentLocations.entrySet()) {
+            if (agentLocation.getKey() instanceof PreyAgent) {
+                hasPreys = true;
+            } else if (agentLocation.getKey() instanceof PredatorAgent) {
+                if (predatorLocations.contains(agentLocation.getValue())) {
+                    return true;
+                }
+                predatorLocations.add(agentLocation.getValue());
+            }
+        }
+        return !hasPreys;
+    }
+
+    /**
+     * Retrieves the mapping of agents to their relative locations. They're computed when first needed, as only a
+     * reduced state-space uses them.
      * 
      * @return The mapped agents with relative locations
      */
     public Map<Agent, Location> getRelativeAgentLocations() {
+        if (mRelativeAgentLocations == null) {
+            mRelativeAgentLocations = computeRelativeAgentLocations();
+        }
         return mRelativeAgentLocations;
     }
 
@@ -196,16 +256,12 @@ public class State {
     }
 
     /**
-     * Retrieves whether or not the state space should be reduced.
+     * Retrieves whether or not the state space was reduced when the state was created, which determines its equality.
      * 
      * @return True for a reduced state-space, false for the full size
      */
     public boolean hasReducedStateSpace() {
-        if (mAgentLocations.isEmpty()) {
-            return false;
-        }
-
-        return mAgentLocations.entrySet().iterator().next().getKey().getEnvironment().hasReducedStateSpace();
+        return mReducedStateSpace;
     }
 
     /**
@@ -230,7 +286,7 @@ public class State {
     }
 
     /**
-     * Checks if this state matches the given one.
+     * Checks if this state matches the given one by comparing their canonical keys.
      * 
      * @param state
      *            The state to compare
@@ -239,83 +295,74 @@ public class State {
      */
     @Override
     public boolean equals(final Object other) {
+        if (other == this) {
+            return true;
+        }
         if (!(other instanceof State)) {
             return false;
         }
 
         final State state = (State) other;
-
-        final boolean reducedStateSpace = hasReducedStateSpace();
-
-        final Map<Agent, Location> agentLocations = (reducedStateSpace ? mRelativeAgentLocations : mAgentLocations);
-        final Map<Agent, Location> otherAgentLocations = (reducedStateSpace ? state.getRelativeAgentLocations() : state
-                .getAgentLocations());
-
-        // Verify if the number of agents is the same, so as to not miss any after checking each agent from this state's
-        // point of view
-        if (agentLocations.size() != otherAgentLocations.size()) {
-            return false;
-        }
-
-        // Checks if all agents and their locations match with those in the other set
-        if (mTargetAgent != null) {
-            for (final Map.Entry<Agent, Location> agentLocation : agentLocations.entrySet()) {
-                final Agent agent = agentLocation.getKey();
-                final Location location = agentLocation.getValue();
-
-                // If this agent is the target one, check if it's in the right location
-                if (mTargetAgent == agent && !location.equals(otherAgentLocations.get(agent))) {
-                    return false;
-                }
-
-                // For other agents, see if there is an agent of the same class there
-                boolean locationFound = false;
-                for (final Map.Entry<Agent, Location> otherAgentLocation : otherAgentLocations.entrySet()) {
-                    if (agent.getClass().equals(otherAgentLocation.getKey().getClass())
-                            && location.equals(otherAgentLocation.getValue())) {
-                        locationFound = true;
-                    }
-                }
-
-                if (!locationFound) {
-                    // There's a difference found
-                    return false;
-                }
-            }
-        } else {
-            // A simple check is sufficient when we don't have a target agent
-            for (final Map.Entry<Agent, Location> agentLocation : agentLocations.entrySet()) {
-                if (!agentLocation.getValue().equals(otherAgentLocations.get(agentLocation.getKey()))) {
-                    return false;
-                }
-            }
-        }
-
-        return true;
+        return mHashCode == state.mHashCode && Arrays.equals(mKey, state.mKey);
     }
 
     /**
-     * Generates a hashcode for this state based on the hashcodes of the agent location mapping. This makes sure that
-     * different states with the same contents will have matching hashes, even when the agents in the mapping are
-     * ordered differently or have different objects.
+     * Retrieves the hashcode of the canonical key, which was computed when the state was created. States with the same
+     * contents have matching hashes, even when the agents in the mapping are ordered differently.
      * 
      * @return The hashcode for the state
      */
     @Override
     public int hashCode() {
-        final Map<Agent, Location> agentLocations = (hasReducedStateSpace() ? mRelativeAgentLocations : mAgentLocations);
+        return mHashCode;
+    }
+
+    /**
+     * Computes the canonical key of the state. Each agent is encoded as a number holding its identifier and location,
+     * relative to the most top-left agent in a reduced state-space. Without a target agent the agents are identified
+     * by themselves; with a target agent only the target agent is, and every agent is also identified by its kind, as
+     * agents of the same kind are interchangeable. The numbers are sorted so that the order of the agents in the
+     * mapping doesn't matter.
+     * 
+     * @return The canonical key
+     */
+    private long[] computeKey() {
+        int minX = 0;
+        int minY = 0;
+        if (mReducedStateSpace) {
+            minX = Integer.MAX_VALUE;
+            minY = Integer.MAX_VALUE;
+            for (final Location location : mAgentLocations.values()) {
+                minX = Math.min(minX, location.getX());
+                minY = Math.min(minY, location.getY());
+            }
+        }
+
+        // A key with a target agent starts with the target, or -1 if it's not in the state
+        final int offset = (mTargetAgent != null ? 1 : 0);
+        final long[] key = new long[offset + mAgentLocations.size()];
         if (mTargetAgent != null) {
-            // With a target agent, treat every other agent by their class instead of object
-            int hashCode = 0;
-            for (final Entry<Agent, Location> agentLocation : agentLocations.entrySet()) {
-                final Agent agent = agentLocation.getKey();
+            key[0] = -1;
+        }
 
-                hashCode += (agent == mTargetAgent ? agent.hashCode() : agent.getClass().hashCode())
-                        ^ agentLocation.getValue().hashCode();
+        int i = offset;
+        for (final Map.Entry<Agent, Location> agentLocation : mAgentLocations.entrySet()) {
+            final Agent agent = agentLocation.getKey();
+            final Location location = agentLocation.getValue();
+            final long coordinates = ((long) (location.getX() - minX) << 16) | (location.getY() - minY);
+
+            if (mTargetAgent == null) {
+                key[i++] = ((long) agent.getId() << 32) | coordinates;
+            } else {
+                key[i++] = ((long) agent.getKindId() << 32) | coordinates;
+                if (agent == mTargetAgent) {
+                    // The complement keeps the target apart from the kinds and the missing target
+                    key[0] = ((long) ~agent.getId() << 32) | coordinates;
+                }
             }
-            return hashCode;
-        } else {
-            return agentLocations.hashCode();
         }
+
+        Arrays.sort(key, offset, key.length);
+        return key;
     }
 }
@@ -0,0 +1,391 @@
+package com.uva.aa;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.uva.aa.agents.Agent;
+
+/**
+ * Enumerates the states of an environment for any amount of predators and preys without holding them in memory.
+ * 
+ * Every state has an index in which each agent is a digit holding its cell (x + y * width), with the first predator as
+ * the least significant digit and the preys following the predators. States are only created while iterating or when
+ * unindexing, so ranges of indices can be enumerated on demand and split among several threads.
+ * 
+ * When the environment has a reduced state space, only the representatives with the most top-left agent at x = 0 and y
+ * = 0 are enumerated and states are indexed by their relative locations, matching the equality of {@link State}.
+ */
+public class StateEnumerator implements Iterable<State> {
+
+    /** The environment whose states are enumerated */
+    private final Environment mEnvironment;
+
+    /** The agents in the order of their digits within an index */
+    private final Agent[] mAgents;
+
+    /** The amount of cells in the environment */
+    private final int mCellCount;
+
+    /** The amount of indices, being the amount of cells to the power of the amount of agents */
+    private final long mIndexCount;
+
+    /** Whether or not states in which agents share a location are enumerated */
+    private final boolean mIncludeTerminal;
+
+    /** Whether or not only the representatives of the reduced state space are enumerated */
+    private final boolean mReduced;
+
+    /**
+     * Creates an enumerator for the states of all agents currently in the environment.
+     * 
+     * @param environment
+     *            The environment to enumerate the states of
+     * @param includeTerminal
+     *            Whether or not states in which agents share a location should also be enumerated
+     */
+    public StateEnumerator(final Environment environment, final boolean includeTerminal) {
+        mEnvironment = environment;
+        mIncludeTerminal = includeTerminal;
+        mReduced = environment.hasReducedStateSpace();
+        mCellCount = environment.getWidth() * environment.getHeight();
+
+        final List<Agent> agents = new ArrayList<Agent>(environment.getPredators());
+        agents.addAll(environment.getPreys());
+        mAgents = agents.toArray(new Agent[agents.size()]);
+
+        long indexCount = 1;
+        for (int i = 0; i < mAgents.length; ++i) {
+            if (indexCount > Long.MAX_VALUE / mCellCount) {
+                throw new RuntimeException("Too many agents to index the states of " + mAgents.length + " agents.");
+            }
+            indexCount *= mCellCount;
+        }
+        mIndexCount = indexCount;
+    }
+
+    /**
+     * Retrieves the amount of indices. Not every index is enumerated; see {@link #isEnumerated(long)}.
+     * 
+     * @return The amount of indices
+     */
+    public long getIndexCount() {
+        return mIndexCount;
+    }
+
+    /**
+     * Retrieves the environment whose states are enumerated.
+     * 
+     * @return The environment
+     */
+    public Environment getEnvironment() {
+        return mEnvironment;
+    }
+
+    /**
+     * Retrieves the agents in the order of their digits within an index.
+     * 
+     * @return The indexed agents
+     */
+    public Agent[] getAgents() {
+        return mAgents.clone();
+    }
+
+    /**
+     * Determines the index of a state. The state has to contain every agent of the enumerator.
+     * 
+     * @param state
+     *            The state to index
+     * 
+     * @return The index of the state, or of its representative when the state space is reduced
+     */
+    public long index(final State state) {
+        final Map<Agent, Location> locations = (mReduced ? state.getRelativeAgentLocations() : state
+                .getAgentLocations());
+        final int width = mEnvironment.getWidth();
+
+        long index = 0;
+        for (int i = mAgents.length - 1; i >= 0; --i) {
+            final Location location = locations.get(mAgents[i]);
+            if (location == null) {
+                throw new IllegalArgumentException("State does not contain agent " + mAgents[i] + ".");
+            }
+            index = index * mCellCount + location.getX() + location.getY() * width;
+        }
+        return index;
+    }
+
+    /**
+     * Determines the index of the representative of all states that are equal to a state. When the state is considered
+     * from the perspective of a target agent, the other agents of the same kind are interchangeable, so their cells
+     * are sorted before they're composed into the index. The state has to contain every agent of the enumerator.
+     * 
+     * @param state
+     *            The state to index
+     * 
+     * @return The index shared by all states equal to the state
+     */
+    public long canonicalIndex(final State state) {
+        final Agent targetAgent = state.getTargetAgent();
+        if (targetAgent == null) {
+            return index(state);
+        }
+
+        final Map<Agent, Location> locations = (mReduced ? state.getRelativeAgentLocations() : state
+                .getAgentLocations());
+        final int width = mEnvironment.getWidth();
+        final int[] cells = new int[mAgents.length];
+        for (int i = 0; i < mAgents.length; ++i) {
+            final Location location = locations.get(mAgents[i]);
+            if (location == null) {
+                throw new IllegalArgumentException("State does not contain agent " + mAgents[i] + ".");
+            }
+            cells[i] = location.getX() + location.getY() * width;
+        }
+
+        // Sort the cells among the other agents of each kind, leaving the target agent in place
+        for (int i = 0; i < mAgents.length; ++i) {
+            if (mAgents[i] == targetAgent) {
+                continue;
+            }
+            for (int j = i + 1; j < mAgents.length; ++j) {
+                if (mAgents[j] != targetAgent && mAgents[j].getKindId() == mAgents[i].getKindId()
+                        && cells[j] < cells[i]) {
+                    final int cell = cells[i];
+                    cells[i] = cells[j];
+                    cells[j] = cell;
+                }
+            }
+        }
+
+        long index = 0;
+        for (int i = mAgents.length - 1; i >= 0; --i) {
+            index = index * mCellCount + cells[i];
+        }
+        return index;
+    }
+
+    /**
+     * Creates the state belonging to an index.
+     * 
+     * @param index
+     *            The index of the state
+     * 
+     * @return The state with each agent at the cell of its digit
+     */
+    public State unindex(final long index) {
+        if (index < 0 || index >= mIndexCount) {
+            throw new IllegalArgumentException("Index " + index + " is not within [0, " + mIndexCount + ").");
+        }
+
+        final int[] cells = new int[mAgents.length];
+        decode(index, cells);
+        return buildState(cells);
+    }
+
+    /**
+     * Checks whether the state belonging to an index is enumerated, i.e. whether it's the representative of its reduced
+     * state and, unless terminal states are included, whether no agents share a location.
+     * 
+     * @param index
+     *            The index of the state
+     * 
+     * @return True if the state is enumerated, false otherwise
+     */
+    public boolean isEnumerated(final long index) {
+        final int[] cells = new int[mAgents.length];
+        decode(index, cells);
+        return isEnumerated(cells);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Iterator<State> iterator() {
+        return iterator(0, mIndexCount);
+    }
+
+    /**
+     * Creates an iterator over the enumerated states within a range of indices.
+     * 
+     * @param fromIndex
+     *            The first index of the range, inclusive
+     * @param toIndex
+     *            The last index of the range, exclusive
+     * 
+     * @return The iterator over the states within the range
+     */
+    public Iterator<State> iterator(final long fromIndex, final long toIndex) {
+        return new RangeIterator(Math.max(0, fromIndex), Math.min(mIndexCount, toIndex));
+    }
+
+    /**
+     * Splits the indices into consecutive ranges of about the same size, so that each can be enumerated by a different
+     * thread.
+     * 
+     * @param parts
+     *            The amount of ranges to split into
+     * 
+     * @return The states within each range
+     */
+    public List<Iterable<State>> split(final int parts) {
+        if (parts < 1) {
+            throw new IllegalArgumentException("Cannot split into " + parts + " parts.");
+        }
+
+        final List<Iterable<State>> ranges = new ArrayList<Iterable<State>>(parts);
+        final long rangeSize = (mIndexCount + parts - 1) / parts;
+        for (int i = 0; i < parts; ++i) {
+            final long fromIndex = Math.min(mIndexCount, i * rangeSize);
+            final long toIndex = Math.min(mIndexCount, fromIndex + rangeSize);
+            ranges.add(new Iterable<State>() {
+                @Override
+                public Iterator<State> iterator() {
+                    return StateEnumerator.this.iterator(fromIndex, toIndex);
+                }
+            });
+        }
+        return ranges;
+    }
+
+    /**
+     * Decodes an index into the cell of each agent.
+     * 
+     * @param index
+     *            The index to decode
+     * @param cells
+     *            The array to fill with the cell of each agent
+     */
+    private void decode(long index, final int[] cells) {
+        for (int i = 0; i < cells.length; ++i) {
+            cells[i] = (int) (index % mCellCount);
+            index /= mCellCount;
+        }
+    }
+
+    /**
+     * Checks whether the state with the agents at the given cells is enumerated.
+     * 
+     * @param cells
+     *            The cell of each agent
+     * 
+     * @return True if the state is enumerated, false otherwise
+     */
+    private boolean isEnumerated(final int[] cells) {
+        if (!mIncludeTerminal) {
+            for (int i = 0; i < cells.length; ++i) {
+                for (int j = i + 1; j < cells.length; ++j) {
+                    if (cells[i] == cells[j]) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        if (mReduced) {
+            final int width = mEnvironment.getWidth();
+            boolean leftMost = false;
+            boolean topMost = false;
+            for (final int cell : cells) {
+                leftMost |= (cell % width == 0);
+                topMost |= (cell < width);
+            }
+            return leftMost && topMost;
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates the state with the agents at the given cells.
+     * 
+     * @param cells
+     *            The cell of each agent
+     * 
+     * @return The state
+     */
+    private State buildState(final int[] cells) {
+        final int width = mEnvironment.getWidth();
+        final Map<Agent, Location> stateMap = new LinkedHashMap<Agent, Location>();
+        for (int i = 0; i < mAgents.length; ++i) {
+            stateMap.put(mAgents[i], new Location(mEnvironment, cells[i] % width, cells[i] / width));
+        }
+        return new State(stateMap);
+    }
+
+    /**
+     * Iterates over the enumerated states within a range of indices, creating each state when it's requested.
+     */
+    private class RangeIterator implements Iterator<State> {
+
+        /** The cells of the agents for the next index */
+        private final int[] mCells = new int[mAgents.length];
+
+        /** The last index of the range, exclusive */
+        private final long mToIndex;
+
+        /** The index of the next enumerated state, or the last index if there is none */
+        private long mNextIndex;
+
+        /**
+         * Creates an iterator over a range of indices.
+         * 
+         * @param fromIndex
+         *            The first index of the range, inclusive
+         * @param toIndex
+         *            The last index of the range, exclusive
+         */
+        public RangeIterator(final long fromIndex, final long toIndex) {
+            mToIndex = toIndex;
+            mNextIndex = fromIndex;
+            advance();
+        }
+
+        /**
+         * Moves to the first enumerated index from the current index onwards.
+         */
+        private void advance() {
+            while (mNextIndex < mToIndex) {
+                decode(mNextIndex, mCells);
+                if (isEnumerated(mCells)) {
+                    return;
+                }
+                ++mNextIndex;
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext() {
+            return mNextIndex < mToIndex;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public State next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            final State state = buildState(mCells);
+            ++mNextIndex;
+            advance();
+            return state;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("States cannot be removed from an enumeration.");
+        }
+    }
+}
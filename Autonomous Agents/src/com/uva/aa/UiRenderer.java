@@ -0,0 +1,151 @@
+package com.uva.aa;
+
+import java.io.PrintStream;
+
+/**
+ * Renders the UI of an environment on a dedicated thread, so that the game doesn't wait for the console. The game
+ * thread draws each frame into a back buffer and hands it over by swapping it with the pending frame. The render
+ * thread takes the pending frame, writes it to the console in one call and then waits for the frame interval. A
+ * pending frame that's replaced before the render thread takes it is dropped, so the game never waits for rendering.
+ */
+public class UiRenderer {
+
+    /** The environment to render */
+    private final Environment mEnvironment;
+
+    /** The least amount of time between rendered frames in ms */
+    private final long mFrameInterval;
+
+    /** The frame that the game thread draws into */
+    private char[] mBackFrame;
+
+    /** The frame that's waiting to be rendered, only swapped while holding the lock on this renderer */
+    private char[] mPendingFrame;
+
+    /** The frame that the render thread writes to the console */
+    private char[] mFrontFrame;
+
+    /** The bytes of the frame that's written to the console */
+    private final byte[] mFrontBytes;
+
+    /** Whether or not the pending frame hasn't been rendered yet */
+    private boolean mFramePending = false;
+
+    /** The amount of submitted frames */
+    private long mSubmittedFrames = 0;
+
+    /** The amount of frames that were replaced before they could be rendered */
+    private long mDroppedFrames = 0;
+
+    /**
+     * Creates a renderer for an environment and starts its render thread. The size of the environment must not change.
+     * 
+     * @param environment
+     *            The environment to render
+     * @param frameInterval
+     *            The least amount of time between rendered frames in ms
+     */
+    public UiRenderer(final Environment environment, final long frameInterval) {
+        mEnvironment = environment;
+        mFrameInterval = frameInterval;
+
+        final int frameLength = environment.getUiFrameLength();
+        mBackFrame = new char[frameLength];
+        mPendingFrame = new char[frameLength];
+        mFrontFrame = new char[frameLength];
+        mFrontBytes = new byte[frameLength];
+
+        final Thread renderThread = new Thread(new Runnable() {
+            public void run() {
+                while (true) {
+                    try {
+                        takePendingFrame();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+
+                    renderFrontFrame();
+
+                    try {
+                        Thread.sleep(mFrameInterval);
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "UI renderer");
+        renderThread.setDaemon(true);
+        renderThread.start();
+    }
+
+    /**
+     * Draws the current environment state and hands it to the render thread. Should be called from the game thread.
+     */
+    public void submitFrame() {
+        mEnvironment.drawUi(mBackFrame);
+
+        synchronized (this) {
+            final char[] frame = mPendingFrame;
+            mPendingFrame = mBackFrame;
+            mBackFrame = frame;
+
+            ++mSubmittedFrames;
+            if (mFramePending) {
+                ++mDroppedFrames;
+            }
+            mFramePending = true;
+            notify();
+        }
+    }
+
+    /**
+     * Retrieves the amount of submitted frames.
+     * 
+     * @return The amount of frames
+     */
+    public synchronized long getSubmittedFrames() {
+        return mSubmittedFrames;
+    }
+
+    /**
+     * Retrieves the amount of submitted frames that were dropped because the render thread was behind.
+     * 
+     * @return The amount of dropped frames
+     */
+    public synchronized long getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    /**
+     * Waits for a pending frame and makes it the front frame.
+     * 
+     * @throws InterruptedException
+     *             Thrown when the render thread is interrupted while waiting
+     */
+    private synchronized void takePendingFrame() throws InterruptedException {
+        while (!mFramePending) {
+            wait();
+        }
+
+        final char[] frame = mFrontFrame;
+        mFrontFrame = mPendingFrame;
+        mPendingFrame = frame;
+        mFramePending = false;
+    }
+
+    /**
+     * Writes the front frame to the console in a single call.
+     */
+    private void renderFrontFrame() {
+        // The UI only consists of ASCII characters
+        for (int i = 0; i < mFrontFrame.length; ++i) {
+            mFrontBytes[i] = (byte) mFrontFrame[i];
+        }
+
+        final PrintStream out = System.out;
+        synchronized (out) {
+            out.write(mFrontBytes, 0, mFrontBytes.length);
+            out.flush();
+        }
+    }
+}
@@ -1,19 +1,43 @@
 package com.uva.aa.agents;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.uva.aa.Config;
 import com.uva.aa.Environment;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
+import com.uva.aa.policies.CompiledPolicy;
+import com.uva.aa.policies.OffHeapPolicyStore;
 import com.uva.aa.policies.Policy;
+import com.uva.aa.policies.TileCodedActionValues;
 
 /**
  * An agent that will act within the environment.
  */
 public abstract class Agent {
 
+    /** The identifier that the next agent gets */
+    private static final AtomicInteger sNextId = new AtomicInteger();
+
+    /** The identifiers of the kinds of agents, by their class */
+    private static final Map<Class<?>, Integer> sKindIds = new HashMap<Class<?>, Integer>();
+
+    /** The identifier that's unique to this agent */
+    private final int mId = sNextId.getAndIncrement();
+
+    /** The identifier that's shared by all agents of the same class */
+    private final int mKindId = lookupKindId(getClass());
+
     /** The policy that the agent should follow */
     protected final Policy mPolicy = new Policy();
 
+    /** The compiled policy that the agent follows instead while frozen, or null if it isn't frozen */
+    private CompiledPolicy mCompiledPolicy = null;
+
     /** The current location of the agent within the environment */
     private Location mLocation;
     
@@ -30,17 +54,92 @@ public abstract class Agent {
         mLocation = location;
     }
 
+    /**
+     * Retrieves the identifier of a kind of agents, assigning a new one to kinds that haven't been seen yet.
+     * 
+     * @param kind
+     *            The class of the agents
+     * 
+     * @return The identifier of the kind
+     */
+    private static synchronized int lookupKindId(final Class<?> kind) {
+        Integer kindId = sKindIds.get(kind);
+        if (kindId == null) {
+            kindId = sKindIds.size();
+            sKindIds.put(kind, kindId);
+        }
+        return kindId;
+    }
+
+    /**
+     * Retrieves the identifier that's unique to this agent, so that states can refer to it by a number.
+     * 
+     * @return The agent's identifier
+     */
+    public int getId() {
+        return mId;
+    }
+
+    /**
+     * Retrieves the identifier that's shared by all agents of the same class, so that states can refer to the kind of
+     * an agent by a number.
+     * 
+     * @return The identifier of the agent's kind
+     */
+    public int getKindId() {
+        return mKindId;
+    }
+
     /**
      * Performs an action during the agent's turn based on the policy.
      * 
      * @param roundStartState The state that we act for, or null to act for the environment's current state
      */
     public void performAction(final State roundStartState) {
+        final State state = (roundStartState != null ? roundStartState : getEnvironment().getState());
+
         // Move to a location based on an action determined by the policy
-    	lastAction = mPolicy.getActionBasedOnProbability(
-                roundStartState != null ? roundStartState : getEnvironment().getState());
+        lastAction = getActionBasedOnPolicy(state);
         moveTo(lastAction.getLocation(this));
     }
+
+    /**
+     * Picks an action from the compiled policy if the agent is frozen, or based on the probabilities of the policy
+     * otherwise. A frozen agent waits in states in which the compiled policy has no actions.
+     * 
+     * @param state
+     *            The state to pick an action for
+     * 
+     * @return The action to perform
+     */
+    protected Action getActionBasedOnPolicy(final State state) {
+        if (mCompiledPolicy == null) {
+            return mPolicy.getActionBasedOnProbability(state);
+        }
+
+        final Action action = mCompiledPolicy.getAction(state);
+        return (action != null ? action : Action.WAIT);
+    }
+
+    /**
+     * Freezes the agent, so that it serves its actions from a compiled policy and no longer learns. Should be done
+     * between games.
+     * 
+     * @param compiledPolicy
+     *            The compiled policy to follow or null to unfreeze the agent
+     */
+    public void setCompiledPolicy(final CompiledPolicy compiledPolicy) {
+        mCompiledPolicy = compiledPolicy;
+    }
+
+    /**
+     * Checks whether the agent is frozen, serving its actions from a compiled policy without learning.
+     * 
+     * @return True if the agent is frozen, false otherwise
+     */
+    public boolean isFrozen() {
+        return mCompiledPolicy != null;
+    }
     
     /**
      * @return the last performed action of the agent within the environment
@@ -71,7 +170,11 @@ public abstract class Agent {
             }
         }
 
+        final boolean moved = !location.equals(mLocation);
         mLocation = location;
+        if (moved) {
+            getEnvironment().invalidateState();
+        }
     }
 
     /**
@@ -90,6 +193,15 @@ public abstract class Agent {
         return mLocation.getEnvironment();
     }
 
+    /**
+     * Retrieves the configuration of the game that the agent is in.
+     * 
+     * @return The game's configuration
+     */
+    public Config getConfig() {
+        return getEnvironment().getGame().getConfig();
+    }
+
     /**
      * Retrieves the location that the agent is at within its environment.
      * 
@@ -104,6 +216,43 @@ public abstract class Agent {
      */
     public abstract void prepare();
 
+    /**
+     * Sets up how the policy stores its states according to the configuration, so that its memory doesn't have to grow
+     * with the amount of states. Lets the policy approximate its action values with tile coding if there are any
+     * tilings, keeps the states off-heap or in the policy file if configured, and bounds the amount of mapped states
+     * otherwise. Should be called when preparing learning agents.
+     */
+    protected void preparePolicyStorage() {
+        final Config config = getConfig();
+        mPolicy.setApproximator(config.getTilings() > 0 ? new TileCodedActionValues(this, config.getTilings(), config
+                .getTileWidth(), config.getDefaultActionValue()) : null);
+        mPolicy.setOffHeapStore(createOffHeapStore());
+        mPolicy.setCapacity(config.getPolicyCapacity(), config.getProtectedActionValue());
+    }
+
+    /**
+     * Creates a store to keep the policy's states outside of the heap according to the configuration. The store is
+     * kept in the policy file if there is one, and in direct memory if the policy should only be off-heap. Every agent
+     * has its own file, named after the policy file with the agent's role and its index among the agents of that role
+     * appended, so the same agent finds its file again in later runs.
+     * 
+     * @return The store, or null to map the states on the heap
+     */
+    protected OffHeapPolicyStore createOffHeapStore() {
+        final Config config = getConfig();
+        if (config.getPolicyFile() != null) {
+            final Environment environment = getEnvironment();
+            final String suffix = this instanceof PreyAgent ? "prey" + environment.getPreys().indexOf(this)
+                    : "predator" + environment.getPredators().indexOf(this);
+            return new OffHeapPolicyStore(environment.getStateEnumerator(false), new File(config.getPolicyFile() + "."
+                    + suffix));
+        }
+        if (config.isOffHeapPolicy()) {
+            return new OffHeapPolicyStore(getEnvironment().getStateEnumerator(false));
+        }
+        return null;
+    }
+
     /**
      * Retrieves the probability of going from initialState to resultingState when this agent performs action.
      * 
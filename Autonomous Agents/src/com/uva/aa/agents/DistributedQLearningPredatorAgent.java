@@ -0,0 +1,64 @@
+package com.uva.aa.agents;
+
+import com.uva.aa.Location;
+import com.uva.aa.State;
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.distributed.TransitionBatch;
+import com.uva.aa.enums.Action;
+
+/**
+ * An agent that acts as a predator within the environment. Will learn about the prey by following its policy in an
+ * epsilon-greedy manner using Q-Learning, while collecting its transitions in a batch so that a worker can ship them
+ * to the coordinator of a distributed self-play. Its own updates only last until the coordinator replies with the
+ * authoritative values of the shipped states.
+ */
+public class DistributedQLearningPredatorAgent extends QLearningEGreedyPredatorAgent {
+
+    /** The transitions observed since the batch was last shipped */
+    private final TransitionBatch mBatch = new TransitionBatch();
+
+    /** The enumerator used to index the states of the transitions */
+    private StateEnumerator mEnumerator;
+
+    /**
+     * Creates a new predator on the specified coordinates within the environment.
+     * 
+     * @param location
+     *            The location to place the predator at
+     */
+    public DistributedQLearningPredatorAgent(final Location location) {
+        super(location);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepare() {
+        super.prepare();
+        mEnumerator = getEnvironment().getStateEnumerator(false);
+    }
+
+    /**
+     * Retrieves the transitions observed since the batch was last cleared.
+     * 
+     * @return The batch of transitions
+     */
+    public TransitionBatch getTransitionBatch() {
+        return mBatch;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Also adds the transition to the batch.
+     */
+    @Override
+    protected void postActionCallback(final State initialState, final State resultingState,
+            final Action previousAction, final Action nextAction) {
+        super.postActionCallback(initialState, resultingState, previousAction, nextAction);
+
+        mBatch.add(mEnumerator, initialState, previousAction, getTransitionReward(initialState, resultingState,
+                previousAction), resultingState);
+    }
+}
@@ -0,0 +1,227 @@
+package com.uva.aa.agents;
+
+import java.util.concurrent.Semaphore;
+
+import com.uva.aa.Config;
+import com.uva.aa.Location;
+import com.uva.aa.State;
+import com.uva.aa.enums.Action;
+import com.uva.aa.policies.DynaModel;
+import com.uva.aa.policies.PolicySnapshot;
+
+/**
+ * An agent that acts as a predator within the environment. Will learn about the prey by following its policy in an
+ * epsilon-greedy manner using Dyna-Q: every real step is followed by several Q-Learning backups of transitions
+ * simulated from a model of the observed ones.
+ * 
+ * Planning can run on a background thread during each game, in which case each real step hands out a number of
+ * backups to the planner and continues acting right away. The planner samples the model under the model's own lock and
+ * determines its targets from a snapshot of the policy, so the policy is only locked to apply each batch of backups.
+ * The planner is stopped when the game ends, so the policy is no longer changed once the game has finished.
+ */
+public class DynaQPredatorAgent extends QLearningEGreedyPredatorAgent {
+
+    /** The amount of backups after which the background planner takes a new snapshot of the policy */
+    private static final int SNAPSHOT_INTERVAL = 1000;
+
+    /** The model of the observed transitions */
+    private DynaModel mModel;
+
+    /** The backups handed out to the background planner, or null if planning runs within each step */
+    private Semaphore mPendingBackups;
+
+    /** The background planner of the current game, or null if it isn't running */
+    private Thread mPlannerThread;
+
+    /**
+     * Creates a new predator on the specified coordinates within the environment.
+     * 
+     * @param location
+     *            The location to place the predator at
+     */
+    public DynaQPredatorAgent(final Location location) {
+        super(location);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Also prepares an empty model.
+     */
+    @Override
+    public void prepare() {
+        super.prepare();
+
+        final Config config = getConfig();
+        if (config.isBackgroundPlanning() && config.getTilings() > 0) {
+            throw new RuntimeException("Background planning can't be combined with approximated action values.");
+        }
+
+        mModel = new DynaModel(getEnvironment().getStateEnumerator(false));
+        mPendingBackups = (config.isBackgroundPlanning() ? new Semaphore(0) : null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Also starts the background planner at the first action of a game if configured.
+     */
+    @Override
+    public void performAction(final State roundStartState) {
+        if (mPendingBackups != null && mPlannerThread == null && !isFrozen()) {
+            startPlanner();
+        }
+
+        synchronized (mPolicy) {
+            super.performAction(roundStartState);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Also stops the background planner, dropping the backups it didn't get to.
+     */
+    @Override
+    public void postGameCallback() {
+        stopPlanner();
+        super.postGameCallback();
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Also records the transition in the model and plans with it.
+     */
+    @Override
+    protected void postActionCallback(final State initialState, final State resultingState,
+            final Action previousAction, final Action nextAction) {
+        super.postActionCallback(initialState, resultingState, previousAction, nextAction);
+
+        mModel.record(initialState, previousAction, getTransitionReward(initialState, resultingState, previousAction),
+                resultingState);
+
+        final int planningSteps = getConfig().getPlanningSteps();
+        if (mPendingBackups == null) {
+            for (int i = 0; i < planningSteps; ++i) {
+                planBackups(null, 1);
+            }
+        } else if (mPendingBackups.availablePermits() < planningSteps) {
+            // Backups are dropped rather than queued up when the planner can't keep up
+            mPendingBackups.release(planningSteps);
+        }
+    }
+
+    /**
+     * Starts a background planner that performs the handed out backups in batches until it's stopped.
+     */
+    private void startPlanner() {
+        mPendingBackups.drainPermits();
+
+        mPlannerThread = new Thread(new Runnable() {
+            public void run() {
+                PolicySnapshot snapshot = null;
+                int backupsSinceSnapshot = 0;
+
+                while (true) {
+                    try {
+                        mPendingBackups.acquire();
+                    } catch (final InterruptedException e) {
+                        return;
+                    }
+                    final int backups = 1 + mPendingBackups.drainPermits();
+
+                    if (snapshot == null || backupsSinceSnapshot >= SNAPSHOT_INTERVAL) {
+                        synchronized (mPolicy) {
+                            snapshot = mPolicy.snapshot();
+                        }
+                        backupsSinceSnapshot = 0;
+                    }
+
+                    planBackups(snapshot, backups);
+                    backupsSinceSnapshot += backups;
+                }
+            }
+        }, "Dyna planner");
+        mPlannerThread.setDaemon(true);
+        mPlannerThread.start();
+    }
+
+    /**
+     * Stops the background planner if it's running and waits for it to finish its current batch.
+     */
+    private void stopPlanner() {
+        if (mPlannerThread == null) {
+            return;
+        }
+
+        mPlannerThread.interrupt();
+        try {
+            mPlannerThread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mPlannerThread = null;
+    }
+
+    /**
+     * Performs a batch of Q-Learning backups of transitions simulated from the model. The targets are determined
+     * without locking the policy, after which the policy is locked once to apply all backups.
+     * 
+     * @param snapshot
+     *            The snapshot to find the best next action values in, or null to use the policy itself
+     * @param count
+     *            The amount of backups to perform
+     */
+    private void planBackups(final PolicySnapshot snapshot, final int count) {
+        final Config config = getConfig();
+        final State[] states = new State[count];
+        final Action[] actions = new Action[count];
+        final double[] targets = new double[count];
+
+        for (int i = 0; i < count; ++i) {
+            final double reward;
+            final State nextState;
+            synchronized (mModel) {
+                final int observation = mModel.getRandomObservation();
+                states[i] = mModel.getState(observation);
+                actions[i] = mModel.getAction(observation);
+                reward = mModel.getReward(observation);
+                nextState = mModel.getNextState(observation);
+            }
+
+            targets[i] = reward + config.getDiscountFactorGamma()
+                    * (nextState != null ? getBestActionValue(snapshot, nextState) : 0);
+        }
+
+        synchronized (mPolicy) {
+            for (int i = 0; i < count; ++i) {
+                final double actionValue = mPolicy.getActionValue(states[i], actions[i]);
+                mPolicy.setActionValue(states[i], actions[i], actionValue + config.getStepSizeAlpha()
+                        * (targets[i] - actionValue));
+            }
+        }
+    }
+
+    /**
+     * Finds the value of the best action in a state, which is 0 for terminal states.
+     * 
+     * @param snapshot
+     *            The snapshot to find the action values in, or null to use the policy itself
+     * @param state
+     *            The state to find the best action value for
+     * 
+     * @return The highest action value, but at least 0
+     */
+    private double getBestActionValue(final PolicySnapshot snapshot, final State state) {
+        if (snapshot == null) {
+            return getBestActionValue(state);
+        }
+
+        double bestActionValue = 0;
+        for (final Action action : Action.values()) {
+            bestActionValue = Math.max(bestActionValue, snapshot.getActionValue(state, action));
+        }
+        return bestActionValue;
+    }
+}
@@ -4,6 +4,9 @@ import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
+import com.uva.aa.policies.EligibilityTraces;
+import com.uva.aa.policies.StatePolicyInitialiser;
+import com.uva.aa.policies.StatePolicyProperties;
 
 /**
  * An agent that acts as a predator within the environment. Will learn about the prey by following its policy.
@@ -13,6 +16,9 @@ public abstract class LearningPredatorAgent extends PredatorAgent {
     private State mLastState;
     private Action mLastAction;
 
+    /** The eligibility traces of the recently visited state-action pairs, or null for one-step backups */
+    private EligibilityTraces mTraces;
+
     /**
      * Creates a new predator on the specified coordinates within the environment.
      * 
@@ -24,15 +30,30 @@ public abstract class LearningPredatorAgent extends PredatorAgent {
     }
 
     /**
-     * Starts with a random policy but will evaluate that to improve.
+     * Starts with a random policy but will evaluate that to improve. States are initialised when they're first used.
      */
     @Override
     public void prepare() {
-        for (final State state : getEnvironment().getPossibleStates(false)) {
-            for (final Action action : Action.values()) {
-                mPolicy.setActionValue(state, action, Config.DEFAULT_ACTION_VALUE);
+        final double defaultActionValue = getConfig().getDefaultActionValue();
+        mPolicy.setInitialiser(new StatePolicyInitialiser() {
+            public void initialise(final State state, final StatePolicyProperties properties) {
+                // Terminal states have no actions, so their action values remain 0
+                if (state.getPreys().isEmpty()) {
+                    return;
+                }
+
+                for (final Action action : Action.values()) {
+                    properties.setActionValue(action, defaultActionValue);
+                }
             }
-        }
+        });
+
+        // Only keep traces when learning from lambda-returns
+        final Config config = getConfig();
+        mTraces = (config.getTraceDecayLambda() > 0 ? new EligibilityTraces(config.getMaxEligibilityTraces(),
+                config.getMinEligibilityTrace()) : null);
+
+        preparePolicyStorage();
     }
 
     /**
@@ -40,9 +61,18 @@ public abstract class LearningPredatorAgent extends PredatorAgent {
      */
     @Override
     public void performAction(final State roundStartState) {
+        // A frozen agent doesn't learn
+        if (isFrozen()) {
+            super.performAction(roundStartState);
+            return;
+        }
+
         final State currentState = getEnvironment().getState();
         Action nextAction = null;
 
+        // Keep a bounded policy from evicting the state before it's learned from in the next step
+        mPolicy.pinState(currentState);
+
         // Pick an action if it should be picked before the learning step
         if (shouldPickActionBeforeCallback()) {
             nextAction = getActionToPerform(currentState);
@@ -61,6 +91,9 @@ public abstract class LearningPredatorAgent extends PredatorAgent {
         // Move to a location based on an action determined by the policy
         moveTo(nextAction.getLocation(this));
 
+        if (mLastState != null) {
+            mPolicy.unpinState(mLastState);
+        }
         mLastAction = nextAction;
         mLastState = currentState;
     }
@@ -69,9 +102,55 @@ public abstract class LearningPredatorAgent extends PredatorAgent {
      * {@inheritDoc}
      */
     public void postGameCallback() {
+        if (isFrozen()) {
+            return;
+        }
+
         if (mLastState != null) {
             postActionCallback(mLastState, getEnvironment().getState(), mLastAction, null);
         }
+
+        // The next game starts a new episode, which shouldn't be linked to this one
+        if (mLastState != null) {
+            mPolicy.unpinState(mLastState);
+        }
+        mLastState = null;
+        mLastAction = null;
+        clearTraces();
+    }
+
+    /**
+     * Updates the value of an action by a temporal-difference error. When learning from lambda-returns, the error is
+     * applied to all recently visited state-action pairs in proportion to their eligibility instead.
+     * 
+     * @param state
+     *            The state from which the action was performed
+     * @param action
+     *            The action to update the value of
+     * @param tdError
+     *            The temporal-difference error of the action's value
+     */
+    protected void updateActionValue(final State state, final Action action, final double tdError) {
+        final Config config = getConfig();
+
+        if (mTraces == null) {
+            mPolicy.setActionValue(state, action, mPolicy.getActionValue(state, action) + config.getStepSizeAlpha()
+                    * tdError);
+            return;
+        }
+
+        mTraces.visit(state, action);
+        mTraces.update(mPolicy, config.getStepSizeAlpha() * tdError);
+        mTraces.decay(config.getDiscountFactorGamma() * config.getTraceDecayLambda());
+    }
+
+    /**
+     * Drops all eligibility traces, so that the next error is only applied to the next visited state-action pair.
+     */
+    protected void clearTraces() {
+        if (mTraces != null) {
+            mTraces.clear();
+        }
     }
 
     /**
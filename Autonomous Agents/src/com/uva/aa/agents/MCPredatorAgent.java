@@ -1,10 +1,11 @@
 package com.uva.aa.agents;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.Episode;
 import com.uva.aa.enums.Action;
+import com.uva.aa.policies.StatePolicyInitialiser;
+import com.uva.aa.policies.StatePolicyProperties;
 
 /**
  * An agent that acts as a predator within the environment. Will learn about the prey by following a Monte Carlo based
@@ -26,18 +27,26 @@ public abstract class MCPredatorAgent extends PredatorAgent {
     }
 
     /**
-     * Starts with a random policy but will evaluate that to improve.
+     * Starts with a random policy but will evaluate that to improve. States are initialised when they're first used.
      */
     @Override
     public void prepare() {
-        for (final State state : getEnvironment().getPossibleStates(false)) {
-            for (final Action action : Action.values()) {
-                // initialize action values
-                mPolicy.setActionValue(state, action, Config.DEFAULT_ACTION_VALUE);
-                // initialize action probabilities
-                mPolicy.setActionProbability(state, action, 1.0 / Action.values().length);
+        final double defaultActionValue = getConfig().getDefaultActionValue();
+        mPolicy.setInitialiser(new StatePolicyInitialiser() {
+            public void initialise(final State state, final StatePolicyProperties properties) {
+                // Terminal states have no actions
+                if (state.getPreys().isEmpty()) {
+                    return;
+                }
+
+                for (final Action action : Action.values()) {
+                    // initialize action values
+                    properties.setActionValue(action, defaultActionValue);
+                    // initialize action probabilities
+                    properties.setActionProbability(action, 1.0 / Action.values().length);
+                }
             }
-        }
+        });
     }
 
     /**
@@ -45,6 +54,12 @@ public abstract class MCPredatorAgent extends PredatorAgent {
      */
     @Override
     public void performAction(final State roundStartState) {
+        // A frozen agent doesn't learn
+        if (isFrozen()) {
+            super.performAction(roundStartState);
+            return;
+        }
+
         // Log state
         final State currentState = getEnvironment().getState();
         mEpisode.addState(currentState);
@@ -65,6 +80,10 @@ public abstract class MCPredatorAgent extends PredatorAgent {
      */
     @Override
     public void postGameCallback() {
+        if (isFrozen()) {
+            return;
+        }
+
         // Log the last state
         mEpisode.addState(getEnvironment().getState());
 
@@ -88,7 +107,8 @@ public abstract class MCPredatorAgent extends PredatorAgent {
     protected double getDiscountedReturn(final Episode episode, final int timestep) {
         double R = 0.0;
         for (int tempTimestep = timestep; tempTimestep < episode.getLength(); tempTimestep++) {
-            R += Math.pow(Config.DISCOUNT_FACTOR_GAMMA, tempTimestep - timestep) * episode.getReward(tempTimestep);
+            R += Math.pow(getConfig().getDiscountFactorGamma(), tempTimestep - timestep)
+                    * episode.getReward(tempTimestep);
         }
         return R;
     }
@@ -6,6 +6,7 @@ import com.uva.aa.Episode;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
+import com.uva.aa.policies.PolicySnapshot;
 
 /**
  * An agent that acts as a predator within the environment. Will learn about the prey by following Off-Policy Monte
@@ -21,6 +22,9 @@ public class OffPolicyMCPredatorAgent extends MCPredatorAgent {
 
     private boolean mTraining = true;
 
+    /** The snapshot of the trained policy to exploit, or null to exploit the policy itself */
+    private PolicySnapshot mEvaluationSnapshot = null;
+
     /**
      * Creates a new predator on the specified coordinates within the environment.
      * 
@@ -32,7 +36,7 @@ public class OffPolicyMCPredatorAgent extends MCPredatorAgent {
     }
 
     /**
-     * Initialize Numerator and Denominator.
+     * Initialize Numerator and Denominator. States are added when they're first updated.
      */
     @Override
     public void prepare() {
@@ -40,14 +44,29 @@ public class OffPolicyMCPredatorAgent extends MCPredatorAgent {
 
         Qn = new HashMap<State, HashMap<Action, Double>>();
         Qd = new HashMap<State, HashMap<Action, Double>>();
-        for (State state : getEnvironment().getPossibleStates(false)) {
-            Qn.put(state, new HashMap<Action, Double>());
-            Qd.put(state, new HashMap<Action, Double>());
-            for (Action action : Action.values()) {
-                Qn.get(state).put(action, 0.0);
-                Qd.get(state).put(action, 0.0);
+    }
+
+    /**
+     * Retrieves the values mapped to actions for a state, initialising them to 0 if the state wasn't mapped yet.
+     * 
+     * @param values
+     *            The values mapped to state-action pairs, either the numerator or denominator
+     * @param state
+     *            The state to get the values for
+     * 
+     * @return The values mapped to actions
+     */
+    private HashMap<Action, Double> getActionValues(final HashMap<State, HashMap<Action, Double>> values,
+            final State state) {
+        HashMap<Action, Double> actionValues = values.get(state);
+        if (actionValues == null) {
+            actionValues = new HashMap<Action, Double>();
+            for (final Action action : Action.values()) {
+                actionValues.put(action, 0.0);
             }
+            values.put(state, actionValues);
         }
+        return actionValues;
     }
 
     /**
@@ -60,6 +79,17 @@ public class OffPolicyMCPredatorAgent extends MCPredatorAgent {
         mTraining = isTraining;
     }
 
+    /**
+     * Sets the snapshot of the trained policy to exploit when not training, so that evaluation doesn't map new states
+     * in the trained policy.
+     * 
+     * @param evaluationSnapshot
+     *            The snapshot to exploit or null to exploit the policy itself
+     */
+    public void setEvaluationSnapshot(final PolicySnapshot evaluationSnapshot) {
+        mEvaluationSnapshot = evaluationSnapshot;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -70,7 +100,8 @@ public class OffPolicyMCPredatorAgent extends MCPredatorAgent {
             return Action.values()[(int) (Math.random() * Action.values().length)];
         } else {
             // Exploit the trained policy
-            return mPolicy.getActionBasedOnProbability(state);
+            return (mEvaluationSnapshot != null ? mEvaluationSnapshot.getActionBasedOnProbability(state) : mPolicy
+                    .getActionBasedOnProbability(state));
         }
     }
 
@@ -124,13 +155,15 @@ public class OffPolicyMCPredatorAgent extends MCPredatorAgent {
             }
 
             // Update Numerator: $N_{sa} += w * R_t$
-            Qn.get(state).put(action, Qn.get(state).get(action) + w * getDiscountedReturn(episode, t));
+            final HashMap<Action, Double> numerator = getActionValues(Qn, state);
+            numerator.put(action, numerator.get(action) + w * getDiscountedReturn(episode, t));
 
             // Update Denominator: $D_{sa} += w$
-            Qd.get(state).put(action, Qd.get(state).get(action) + w);
+            final HashMap<Action, Double> denominator = getActionValues(Qd, state);
+            denominator.put(action, denominator.get(action) + w);
 
             // Update Q(s,a)
-            double Q = Qn.get(state).get(action) / Qd.get(state).get(action);
+            double Q = numerator.get(action) / denominator.get(action);
             if (Double.isNaN(Q)) {
                 // This may happen for extreme values of either Qn or Qd
                 Q = 0;
@@ -138,8 +171,9 @@ public class OffPolicyMCPredatorAgent extends MCPredatorAgent {
             mPolicy.setActionValue(state, action, Q);
         }
 
-        // Make the policy greedy with respect to Q
-        for (State state : getEnvironment().getPossibleStates(false)) {
+        // Make the policy greedy with respect to Q; only the states following tau have changed values
+        for (int i = tau; i < episode.getLength(); i++) {
+            final State state = episode.getState(i);
             double bestActionValue = Integer.MIN_VALUE;
             double countBest = 0;
 
@@ -4,7 +4,6 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 
-import com.uva.aa.Config;
 import com.uva.aa.Episode;
 import com.uva.aa.Location;
 import com.uva.aa.State;
@@ -82,8 +81,8 @@ public class OnPolicyMCPredatorAgent extends MCPredatorAgent {
             }
 
             for (final Action action : Action.values()) {
-                double p = (Config.EPSILON / Action.values().length)
-                        + (bestActions.contains(action) ? (1 - Config.EPSILON) / bestActions.size() : 0);
+                double p = (getConfig().getEpsilon() / Action.values().length)
+                        + (bestActions.contains(action) ? (1 - getConfig().getEpsilon()) / bestActions.size() : 0);
                 mPolicy.setActionProbability(loopState, action, p);
             }
         }
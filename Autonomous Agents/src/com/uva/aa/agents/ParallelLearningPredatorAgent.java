@@ -22,13 +22,31 @@ public abstract class ParallelLearningPredatorAgent extends ParallelPredatorAgen
         super(location);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void prepare() {
+        super.prepare();
+        preparePolicyStorage();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void performAction(final State roundStartState) {
+        // A frozen agent doesn't learn
+        if (isFrozen()) {
+            super.performAction(roundStartState);
+            return;
+        }
+
         Action nextAction = null;
 
+        // Keep a bounded policy from evicting the state before it's learned from in the next round
+        mPolicy.pinState(roundStartState);
+
         // Pick an action if it should be picked before the learning step
         if (shouldPickActionBeforeCallback()) {
             nextAction = getActionToPerform(roundStartState);
@@ -47,6 +65,9 @@ public abstract class ParallelLearningPredatorAgent extends ParallelPredatorAgen
         // Move to a location based on an action determined by the policy
         moveTo(nextAction.getLocation(this));
 
+        if (mLastState != null) {
+            mPolicy.unpinState(mLastState);
+        }
         mLastAction = nextAction;
         mLastState = roundStartState;
     }
@@ -55,6 +76,10 @@ public abstract class ParallelLearningPredatorAgent extends ParallelPredatorAgen
      * {@inheritDoc}
      */
     public void postGameCallback() {
+        if (isFrozen()) {
+            return;
+        }
+
         if (mLastState != null) {
             postActionCallback(mLastState, getEnvironment().getState(), mLastAction, null);
         }
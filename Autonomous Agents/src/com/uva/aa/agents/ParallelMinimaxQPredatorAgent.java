@@ -1,6 +1,5 @@
 package com.uva.aa.agents;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
@@ -37,7 +36,7 @@ public class ParallelMinimaxQPredatorAgent extends ParallelLearningPredatorAgent
 	
 	@Override
 	protected Action getActionToPerform(State state) {
-        return mPolicy.getActionBasedOnPolicyOrRandom(state, Config.EPSILON);
+        return mPolicy.getActionBasedOnPolicyOrRandom(state, getConfig().getEpsilon());
 	}
 
 	@Override
@@ -1,6 +1,5 @@
 package com.uva.aa.agents;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
@@ -37,7 +36,7 @@ public class ParallelMinimaxQPreyAgent extends ParallelLearningPreyAgent {
 
     @Override
     protected Action getActionToPerform(State state) {
-        return mPolicy.getActionBasedOnPolicyOrRandom(state, Config.EPSILON);
+        return mPolicy.getActionBasedOnPolicyOrRandom(state, getConfig().getEpsilon());
     }
 
     /**
@@ -50,8 +49,7 @@ public class ParallelMinimaxQPreyAgent extends ParallelLearningPreyAgent {
     @Override
     public void performAction(final State roundStartState) {
         // Move to a location based on an action determined by the policy
-        lastAction = mPolicy.getActionBasedOnProbability(roundStartState != null ? roundStartState : getEnvironment()
-                .getState());
+        lastAction = getActionBasedOnPolicy(roundStartState != null ? roundStartState : getEnvironment().getState());
 
         // Trip with a chance of 0.2
         final double decision = Math.random();
@@ -3,7 +3,6 @@ package com.uva.aa.agents;
 import java.util.LinkedList;
 import java.util.List;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
@@ -42,7 +41,7 @@ public class ParallelPredatorAgent extends PredatorAgent {
         final double moveProbability = 1.0 / possibleActions.size();
         for (final Action action : possibleActions) {
             defaultProperties.setActionProbability(action, moveProbability);
-            defaultProperties.setActionValue(action, Config.DEFAULT_ACTION_VALUE);
+            defaultProperties.setActionValue(action, getConfig().getDefaultActionValue());
         }
     }
 
@@ -58,7 +57,7 @@ public class ParallelPredatorAgent extends PredatorAgent {
             final Location location = resultingState.getAgentLocation(predator);
             if (predatorLocations.contains(location)) {
                 // The predators get punished when they end up in the same location
-                return Config.COLLISION_REWARD;
+                return getConfig().getCollisionReward();
             }
             predatorLocations.add(location);
         }
@@ -67,7 +66,7 @@ public class ParallelPredatorAgent extends PredatorAgent {
         for (final PreyAgent prey : initialState.getPreys()) {
             final Location location = resultingState.getAgentLocation(prey);
             if (location == null || predatorLocations.contains(location)) {
-                return Config.KILL_REWARD;
+                return getConfig().getKillReward();
             }
         }
 
@@ -3,7 +3,6 @@ package com.uva.aa.agents;
 import java.util.LinkedList;
 import java.util.List;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
@@ -48,7 +47,7 @@ public class ParallelPreyAgent extends PreyAgent {
         final double moveProbability = MOVE_PROBABILITY / possibleActions.size();
         for (final Action action : possibleActions) {
             defaultProperties.setActionProbability(action, moveProbability);
-            defaultProperties.setActionValue(action, Config.PREY_DEFAULT_ACTION_VALUE);
+            defaultProperties.setActionValue(action, getConfig().getPreyDefaultActionValue());
         }
     }
 
@@ -64,7 +63,7 @@ public class ParallelPreyAgent extends PreyAgent {
             final Location location = resultingState.getAgentLocation(predator);
             if (predatorLocations.contains(location)) {
                 // The prey gets rewarded when prey end up in the same location
-                return Config.PREY_ESCAPE_REWARD;
+                return getConfig().getPreyEscapeReward();
             }
             predatorLocations.add(location);
         }
@@ -73,7 +72,7 @@ public class ParallelPreyAgent extends PreyAgent {
         for (final PreyAgent prey : initialState.getPreys()) {
             final Location location = resultingState.getAgentLocation(prey);
             if (location == null || predatorLocations.contains(location)) {
-                return Config.PREY_DIE_REWARD;
+                return getConfig().getPreyDieReward();
             }
         }
 
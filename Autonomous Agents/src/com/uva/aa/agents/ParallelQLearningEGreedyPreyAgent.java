@@ -1,6 +1,5 @@
 package com.uva.aa.agents;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
@@ -29,7 +28,7 @@ public class ParallelQLearningEGreedyPreyAgent extends ParallelQLearningPreyAgen
         if (decision <= 0.2) {
             return Action.WAIT;
         } else {
-            return mPolicy.getActionBasedOnValueEpsilonGreedy(state, Config.PREY_EPSILON);
+            return mPolicy.getActionBasedOnValueEpsilonGreedy(state, getConfig().getPreyEpsilon());
         }
     }
 }
@@ -4,6 +4,7 @@ import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
+import com.uva.aa.policies.ReplayBuffer;
 
 /**
  * An agent that acts as a predator within the environment. Will learn about the prey by following its policy using
@@ -11,6 +12,9 @@ import com.uva.aa.enums.Action;
  */
 public abstract class ParallelQLearningPredatorAgent extends ParallelLearningPredatorAgent {
 
+    /** The transitions to replay, or null if updates are made from each transition right away */
+    private ReplayBuffer mReplayBuffer;
+
     /**
      * Creates a new predator on the specified coordinates within the environment.
      * 
@@ -21,6 +25,20 @@ public abstract class ParallelQLearningPredatorAgent extends ParallelLearningPre
         super(location);
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * Also prepares the replay buffer if experience replay is configured.
+     */
+    @Override
+    public void prepare() {
+        super.prepare();
+
+        final Config config = getConfig();
+        mReplayBuffer = (config.getReplayCapacity() > 0 ? new ReplayBuffer(getEnvironment().getStateEnumerator(false),
+                config.getReplayCapacity(), config.isPrioritizedReplay()) : null);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -29,6 +47,14 @@ public abstract class ParallelQLearningPredatorAgent extends ParallelLearningPre
 
         // Determine the transaction's details
         final double reward = getImmediateReward(initialState, resultingState, previousAction);
+
+        // With experience replay, the transition is only learned from when it's sampled
+        if (mReplayBuffer != null) {
+            mReplayBuffer.add(initialState, previousAction, reward, resultingState, resultingState.isTerminal());
+            mReplayBuffer.replay(mPolicy, getConfig().getReplayBatchSize(), getConfig().getStepSizeAlpha(),
+                    getConfig().getDiscountFactorGamma());
+            return;
+        }
         final double initialActionValue = mPolicy.getActionValue(initialState, previousAction);
 
         // Find the value of the best possible next action
@@ -38,8 +64,8 @@ public abstract class ParallelQLearningPredatorAgent extends ParallelLearningPre
         }
 
         // Update the value for the action we previously took
-        mPolicy.setActionValue(initialState, previousAction, initialActionValue + Config.STEP_SIZE_ALPHA
-                * (reward + Config.DISCOUNT_FACTOR_GAMMA * bestResultingActionValue - initialActionValue));
+        mPolicy.setActionValue(initialState, previousAction, initialActionValue + getConfig().getStepSizeAlpha()
+                * (reward + getConfig().getDiscountFactorGamma() * bestResultingActionValue - initialActionValue));
     }
 
     /**
@@ -1,6 +1,5 @@
 package com.uva.aa.agents;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
@@ -38,8 +37,8 @@ public abstract class ParallelQLearningPreyAgent extends ParallelLearningPreyAge
         }
 
         // Update the value for the action we previously took
-        mPolicy.setActionValue(initialState, previousAction, initialActionValue + Config.PREY_STEP_SIZE_ALPHA
-                * (reward + Config.PREY_DISCOUNT_FACTOR_GAMMA * bestResultingActionValue - initialActionValue));
+        mPolicy.setActionValue(initialState, previousAction, initialActionValue + getConfig().getPreyStepSizeAlpha()
+                * (reward + getConfig().getPreyDiscountFactorGamma() * bestResultingActionValue - initialActionValue));
     }
 
     /**
@@ -1,6 +1,5 @@
 package com.uva.aa.agents;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
@@ -44,12 +43,12 @@ public class ParallelRLearningPredatorAgent extends ParallelLearningPredatorAgen
         final double actionValueUpdate = reward - mRho + bestResultingActionValue - initialActionValue;
 
         // Update the value for the action we previously took
-        mPolicy.setActionValue(initialState, previousAction, initialActionValue + Config.STEP_SIZE_ALPHA
+        mPolicy.setActionValue(initialState, previousAction, initialActionValue + getConfig().getStepSizeAlpha()
                 * actionValueUpdate);
 
         // Update rho
         if (bestResultingActionValue == initialActionValue) {
-            mRho += Config.STEP_SIZE_BETA * actionValueUpdate;
+            mRho += getConfig().getStepSizeBeta() * actionValueUpdate;
         }
     }
 
@@ -66,6 +65,6 @@ public class ParallelRLearningPredatorAgent extends ParallelLearningPredatorAgen
      */
     @Override
     protected Action getActionToPerform(final State state) {
-        return mPolicy.getActionBasedOnValueEpsilonGreedy(state, Config.EPSILON);
+        return mPolicy.getActionBasedOnValueEpsilonGreedy(state, getConfig().getEpsilon());
     }
 }
@@ -29,6 +29,7 @@ public class PolicyIteratingPredatorAgent extends PredatorAgent {
     @Override
     public void prepare() {
         super.prepare();
+        mPolicy.setOffHeapStore(createOffHeapStore());
 
         mPolicyManager.iteratePolicy();
     }
@@ -2,10 +2,11 @@ package com.uva.aa.agents;
 
 import java.util.List;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
+import com.uva.aa.policies.StatePolicyInitialiser;
+import com.uva.aa.policies.StatePolicyProperties;
 
 /**
  * An agent that acts as a predator within the environment. Will randomly move, hoping to catch a prey.
@@ -24,14 +25,21 @@ public class PredatorAgent extends Agent {
 
     /**
      * Initialize the random policy: for each state the predator can be in, every possible action will be chosen with
-     * the same probability.
+     * the same probability. States are initialised when they're first used.
      */
     public void prepare() {
-        for (final State state : getEnvironment().getPossibleStates(false)) {
-            for (final Action action : Action.values()) {
-                mPolicy.setActionProbability(state, action, 1.0 / Action.values().length);
+        mPolicy.setInitialiser(new StatePolicyInitialiser() {
+            public void initialise(final State state, final StatePolicyProperties properties) {
+                // Terminal states have no actions
+                if (state.getPreys().isEmpty()) {
+                    return;
+                }
+
+                for (final Action action : Action.values()) {
+                    properties.setActionProbability(action, 1.0 / Action.values().length);
+                }
             }
-        }
+        });
     }
 
     /**
@@ -71,12 +79,12 @@ public class PredatorAgent extends Agent {
         // TODO: Make this prettier
         final List<PreyAgent> preys = getEnvironment().getPreys();
         if (preys.isEmpty()) {
-            return Config.KILL_REWARD;
+            return getConfig().getKillReward();
         }
 
         final PreyAgent prey = preys.get(0);
         if (resultingState.getAgentLocation(this).equals(initialState.getAgentLocation(prey))) {
-            return Config.KILL_REWARD;
+            return getConfig().getKillReward();
         } else {
             return 0.0;
         }
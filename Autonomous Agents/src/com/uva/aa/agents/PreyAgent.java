@@ -6,6 +6,8 @@ import java.util.List;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
+import com.uva.aa.policies.StatePolicyInitialiser;
+import com.uva.aa.policies.StatePolicyProperties;
 
 /**
  * An agent that acts as a prey within the environment. Will randomly move and won't kill other agents.
@@ -15,6 +17,33 @@ public class PreyAgent extends Agent {
     /** The probability that the prey will move instead of wait */
     protected final static double MOVE_PROBABILITY = 0.2;
 
+    /** The probabilities of the actions indexed by ordinal, for every pattern of occupied neighbouring locations */
+    private final static double[][] ACTION_DISTRIBUTIONS = new double[1 << Action.values().length][];
+
+    static {
+        for (int occupancyPattern = 0; occupancyPattern < ACTION_DISTRIBUTIONS.length; ++occupancyPattern) {
+            // Check which actions are valid moves (i.e., have no other agent on the resulting location)
+            final List<Action> possibleActions = new LinkedList<Action>();
+            for (final Action action : Action.values()) {
+                if (action != Action.WAIT && (occupancyPattern & (1 << action.ordinal())) == 0) {
+                    possibleActions.add(action);
+                }
+            }
+
+            final double[] distribution = new double[Action.values().length];
+
+            // Determine the chance to wait
+            distribution[Action.WAIT.ordinal()] = (possibleActions.isEmpty() ? 1 : 1 - MOVE_PROBABILITY);
+
+            // Assign the changes to move to a different location
+            for (final Action action : possibleActions) {
+                distribution[action.ordinal()] = MOVE_PROBABILITY / possibleActions.size();
+            }
+
+            ACTION_DISTRIBUTIONS[occupancyPattern] = distribution;
+        }
+    }
+
     /**
      * Creates a new prey on the specified coordinates within the environment.
      * 
@@ -30,30 +59,48 @@ public class PreyAgent extends Agent {
      */
     @Override
     public void prepare() {
-        for (final State state : getEnvironment().getPossibleStates(false)) {
-            // Check which actions are valid moves (i.e., have no other agent on the resulting location)
-            final List<Action> possibleActions = new LinkedList<Action>();
-            for (final Action action : Action.values()) {
-                final Location newLocation = action.getLocation(state.getAgentLocation(this));
-                if (!state.isOccupied(newLocation)) {
-                    // Action.WAIT cannot get here as the prey occupies itself, this is wanted behaviour
-                    possibleActions.add(action);
+        // The probabilities depend on the surroundings, so they're determined when a state is first used
+        mPolicy.setInitialiser(new StatePolicyInitialiser() {
+            public void initialise(final State state, final StatePolicyProperties properties) {
+                final Location preyLocation = state.getAgentLocation(PreyAgent.this);
+
+                // Terminal states have no actions
+                if (preyLocation == null) {
+                    return;
                 }
-            }
 
-            // Determine the chance to wait
-            if (possibleActions.isEmpty()) {
-                mPolicy.setActionProbability(state, Action.WAIT, 1);
-            } else {
-                mPolicy.setActionProbability(state, Action.WAIT, 1 - MOVE_PROBABILITY);
+                final double[] distribution = getActionDistribution(state);
+                for (final Action action : Action.values()) {
+                    if (distribution[action.ordinal()] > 0) {
+                        properties.setActionProbability(action, distribution[action.ordinal()]);
+                    }
+                }
             }
+        });
+    }
 
-            // Assign the changes to move to a different location
-            final double moveProbability = MOVE_PROBABILITY / possibleActions.size();
-            for (final Action action : possibleActions) {
-                mPolicy.setActionProbability(state, action, moveProbability);
+    /**
+     * Retrieves the probabilities of all actions of the prey in a non-terminal state at once. The prey waits with a
+     * 0.8 chance and spreads the remaining chance over the free adjacent locations, so the distribution only depends on
+     * which adjacent locations are occupied and is shared between all states with the same occupancy.
+     * 
+     * @param state
+     *            The state in which the prey acts
+     * 
+     * @return The probabilities indexed by action ordinal; shared, so it must not be modified
+     */
+    public double[] getActionDistribution(final State state) {
+        final Location preyLocation = state.getAgentLocation(this);
+
+        int occupancyPattern = 0;
+        for (final Action action : Action.values()) {
+            // Action.WAIT is skipped as the prey occupies its own location
+            if (action != Action.WAIT && state.isOccupied(action.getLocation(preyLocation))) {
+                occupancyPattern |= 1 << action.ordinal();
             }
         }
+
+        return ACTION_DISTRIBUTIONS[occupancyPattern];
     }
 
     /**
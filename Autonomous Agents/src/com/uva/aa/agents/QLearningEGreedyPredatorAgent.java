@@ -1,6 +1,5 @@
 package com.uva.aa.agents;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
@@ -25,6 +24,6 @@ public class QLearningEGreedyPredatorAgent extends QLearningPredatorAgent {
      * {@inheritDoc}
      */
     protected Action getActionToPerform(final State state) {
-        return mPolicy.getActionBasedOnValueEpsilonGreedy(state, Config.EPSILON);
+        return mPolicy.getActionBasedOnValueEpsilonGreedy(state, getConfig().getEpsilon());
     }
 }
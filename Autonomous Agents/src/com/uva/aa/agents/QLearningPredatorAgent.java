@@ -2,17 +2,21 @@ package com.uva.aa.agents;
 
 import java.util.List;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
+import com.uva.aa.Config;
 import com.uva.aa.enums.Action;
+import com.uva.aa.policies.ReplayBuffer;
 
 /**
  * An agent that acts as a predator within the environment. Will learn about the prey by following its policy using
- * Q-Learning.
+ * Q-Learning, or Watkins's Q(lambda) when a trace decay lambda is configured.
  */
 public abstract class QLearningPredatorAgent extends LearningPredatorAgent {
 
+    /** The transitions to replay, or null if updates are made from each transition right away */
+    private ReplayBuffer mReplayBuffer;
+
     /**
      * Creates a new predator on the specified coordinates within the environment.
      * 
@@ -23,30 +27,109 @@ public abstract class QLearningPredatorAgent extends LearningPredatorAgent {
         super(location);
     }
 
+    /**
+     * {@inheritDoc}
+     * 
+     * Also prepares the replay buffer if experience replay is configured.
+     */
+    @Override
+    public void prepare() {
+        super.prepare();
+
+        final Config config = getConfig();
+        mReplayBuffer = (config.getReplayCapacity() > 0 ? new ReplayBuffer(getEnvironment().getStateEnumerator(false),
+                config.getReplayCapacity(), config.isPrioritizedReplay()) : null);
+    }
+
     /**
      * {@inheritDoc}
      */
     protected void postActionCallback(final State initialState, final State resultingState,
             final Action previousAction, final Action nextAction) {
+        // Determine the transation's details
+        final double reward = getTransitionReward(initialState, resultingState, previousAction);
+
+        // With experience replay, the transition is only learned from when it's sampled
+        if (mReplayBuffer != null) {
+            mReplayBuffer.add(initialState, previousAction, reward, resultingState, resultingState.isTerminal());
+            mReplayBuffer.replay(mPolicy, getConfig().getReplayBatchSize(), getConfig().getStepSizeAlpha(),
+                    getConfig().getDiscountFactorGamma());
+            return;
+        }
+
+        final double initialActionValue = mPolicy.getActionValue(initialState, previousAction);
+
+        // Find the value of the best possible next action
+        final double bestResultingActionValue = getBestActionValue(resultingState);
+
+        // Q(lambda) only traces back along greedy actions, so an exploratory action cuts off the earlier ones
+        if (!isGreedyAction(initialState, previousAction)) {
+            clearTraces();
+        }
+
+        // Update the value for the action we previously took
+        updateActionValue(initialState, previousAction, reward + getConfig().getDiscountFactorGamma()
+                * bestResultingActionValue - initialActionValue);
+    }
+
+    /**
+     * Determines the reward for a transition, which depends on the predator's location right after performing the
+     * action, before the prey moves.
+     * 
+     * @param initialState
+     *            The state before performing the action
+     * @param resultingState
+     *            The state after performing the action and the other agents have taken turns
+     * @param previousAction
+     *            The action executed at the initial state
+     * 
+     * @return The reward for the transition
+     */
+    protected double getTransitionReward(final State initialState, final State resultingState,
+            final Action previousAction) {
         // Target our prey
         final List<PreyAgent> preys = getEnvironment().getPreys();
         final PreyAgent prey = (!preys.isEmpty() ? preys.get(0) : null);
 
-        // Determine the transation's details
         final State immediateNextState = State.buildState(this, resultingState.getAgentLocation(this), prey,
                 initialState.getAgentLocation(prey));
-        final double reward = getImmediateReward(initialState, immediateNextState, previousAction);
-        final double initialActionValue = mPolicy.getActionValue(initialState, previousAction);
+        return getImmediateReward(initialState, immediateNextState, previousAction);
+    }
 
-        // Find the value of the best possible next action
-        double bestResultingActionValue = 0;
-        for (double actionValue : mPolicy.getProperties(resultingState).getActionValues().values()) {
-            bestResultingActionValue = Math.max(bestResultingActionValue, actionValue);
+    /**
+     * Finds the value of the best action in a state, which is 0 for terminal states.
+     * 
+     * @param state
+     *            The state to find the best action value for
+     * 
+     * @return The highest action value, but at least 0
+     */
+    protected double getBestActionValue(final State state) {
+        double bestActionValue = 0;
+        for (double actionValue : mPolicy.getProperties(state).getActionValues().values()) {
+            bestActionValue = Math.max(bestActionValue, actionValue);
         }
+        return bestActionValue;
+    }
 
-        // Update the value for the action we previously took
-        mPolicy.setActionValue(initialState, previousAction, initialActionValue + Config.STEP_SIZE_ALPHA
-                * (reward + Config.DISCOUNT_FACTOR_GAMMA * bestResultingActionValue - initialActionValue));
+    /**
+     * Checks whether an action has the highest value of all actions in a state.
+     * 
+     * @param state
+     *            The state from which the action is performed
+     * @param action
+     *            The action to check
+     * 
+     * @return True if no other action has a higher value, false otherwise
+     */
+    private boolean isGreedyAction(final State state, final Action action) {
+        final double actionValue = mPolicy.getActionValue(state, action);
+        for (final double otherActionValue : mPolicy.getProperties(state).getActionValues().values()) {
+            if (otherActionValue > actionValue) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -2,14 +2,13 @@ package com.uva.aa.agents;
 
 import java.util.List;
 
-import com.uva.aa.Config;
 import com.uva.aa.Location;
 import com.uva.aa.State;
 import com.uva.aa.enums.Action;
 
 /**
  * An agent that acts as a predator within the environment. Will learn about the prey by following its policy using
- * Sarsa
+ * Sarsa, or Sarsa(lambda) when a trace decay lambda is configured.
  */
 public class SarsaPredatorAgent extends LearningPredatorAgent {
 
@@ -27,7 +26,7 @@ public class SarsaPredatorAgent extends LearningPredatorAgent {
      * {@inheritDoc}
      */
     protected Action getActionToPerform(final State state) {
-        return mPolicy.getActionBasedOnValueEpsilonGreedy(state, Config.EPSILON);
+        return mPolicy.getActionBasedOnValueEpsilonGreedy(state, getConfig().getEpsilon());
     }
 
     /**
@@ -47,8 +46,8 @@ public class SarsaPredatorAgent extends LearningPredatorAgent {
         final double nextActionValue = mPolicy.getActionValue(resultingState, nextAction);
 
         // Update the value for the action we previously took
-        mPolicy.setActionValue(initialState, previousAction, initialActionValue + Config.STEP_SIZE_ALPHA
-                * (reward + Config.DISCOUNT_FACTOR_GAMMA * nextActionValue - initialActionValue));
+        updateActionValue(initialState, previousAction, reward + getConfig().getDiscountFactorGamma()
+                * nextActionValue - initialActionValue);
     }
 
     /**
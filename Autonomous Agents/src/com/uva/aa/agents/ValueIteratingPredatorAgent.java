@@ -24,6 +24,7 @@ public class ValueIteratingPredatorAgent extends PredatorAgent {
     @Override
     public void prepare() {
         super.prepare();
+        mPolicy.setOffHeapStore(createOffHeapStore());
 
         final PolicyManager policyEvaluator = new PolicyManager(mPolicy, getEnvironment());
         policyEvaluator.iterateValues();
@@ -0,0 +1,283 @@
+package com.uva.aa.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.uva.aa.Config;
+import com.uva.aa.Game;
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.enums.Action;
+
+/**
+ * Coordinates a distributed self-play in which worker processes play games and the coordinator learns from their
+ * transitions. The coordinator owns the authoritative Q-Learning policy, partitioned into a {@link ShardedPolicy}, and
+ * serves every worker on its own thread over a localhost TCP connection.
+ * 
+ * A worker repeatedly sends a {@link TransitionBatch}, after which the coordinator applies a Q-Learning update for each
+ * transition and replies with the action values of every state that changed since that worker's previous reply. A
+ * reply is a count followed by a record per state: a long with the state index and a double per action in order of
+ * their ordinal. A worker sends a count of -1 when it's done.
+ * 
+ * States are exchanged as indices within a {@link StateEnumerator}, so all processes must set up the game with
+ * {@link #createGame()}.
+ */
+public class SelfPlayCoordinator {
+
+    /** The count that a worker sends instead of a batch when it's done */
+    public static final int END_OF_WORK = -1;
+
+    /** The socket that workers connect to */
+    private final ServerSocket mServerSocket;
+
+    /** The amount of workers to serve */
+    private final int mWorkerCount;
+
+    /** The configuration holding the step size and discount factor */
+    private final Config mConfig;
+
+    /** The authoritative policy */
+    private final ShardedPolicy mPolicy;
+
+    /** The changed states per worker since its previous reply, only accessed while holding the lock on this list */
+    private final List<BitSet> mChangedStates = new ArrayList<BitSet>();
+
+    /** The amount of transitions that have been learned from */
+    private long mTransitionCount = 0;
+
+    /** The connections to the accepted workers, only accessed while holding the lock on this list */
+    private final List<Socket> mSockets = new ArrayList<Socket>();
+
+    /** The failures while serving the workers of any kind, only accessed while holding the lock on this list */
+    private final List<Throwable> mFailures = new ArrayList<Throwable>();
+
+    /**
+     * Creates a coordinator that listens on a free localhost port.
+     * 
+     * @param workerCount
+     *            The amount of workers to serve
+     * 
+     * @throws IOException
+     *             Thrown when the socket could not be opened
+     */
+    public SelfPlayCoordinator(final int workerCount) throws IOException {
+        final Game game = createGame();
+        mConfig = game.getConfig();
+        final StateEnumerator enumerator = game.getEnvironment().getStateEnumerator(false);
+        if (enumerator.getIndexCount() > Integer.MAX_VALUE) {
+            throw new RuntimeException("The state-space is too large to track the changed states of.");
+        }
+
+        // The policy starts out like the policies of the workers' predators
+        mPolicy = new ShardedPolicy(enumerator, mConfig.getPolicyShards(), mConfig.getDefaultActionValue());
+
+        mWorkerCount = workerCount;
+        mServerSocket = new ServerSocket(0, workerCount, InetAddress.getByName("127.0.0.1"));
+    }
+
+    /**
+     * Creates the game that's played in the self-play, with a learning predator and a prey. Every process creates its
+     * own game, so that the states are indexed the same.
+     * 
+     * @return The new game
+     */
+    public static Game createGame() {
+        final Game game = new Game(11, 11);
+        game.addPrey(5, 5);
+        game.addDistributedQLearningPredator(0, 0);
+        return game;
+    }
+
+    /**
+     * Retrieves the port that workers should connect to.
+     * 
+     * @return The local port
+     */
+    public int getPort() {
+        return mServerSocket.getLocalPort();
+    }
+
+    /**
+     * Retrieves the authoritative policy. Should only be used once the coordinator has finished.
+     * 
+     * @return The policy
+     */
+    public ShardedPolicy getPolicy() {
+        return mPolicy;
+    }
+
+    /**
+     * Retrieves the amount of transitions that have been learned from.
+     * 
+     * @return The amount of transitions
+     */
+    public long getTransitionCount() {
+        synchronized (mChangedStates) {
+            return mTransitionCount;
+        }
+    }
+
+    /**
+     * Accepts the workers and serves each of them on its own thread until all of them are done or have failed.
+     * 
+     * @throws IOException
+     *             Thrown when a worker could not be accepted or served, with the first failure as its cause
+     */
+    public void run() throws IOException {
+        final List<Thread> threads = new ArrayList<Thread>();
+        try {
+            for (int i = 0; i < mWorkerCount; ++i) {
+                final Socket socket = mServerSocket.accept();
+                synchronized (mSockets) {
+                    mSockets.add(socket);
+                }
+                final BitSet changedStates = new BitSet();
+                synchronized (mChangedStates) {
+                    mChangedStates.add(changedStates);
+                }
+
+                final Thread thread = new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            serveWorker(socket, changedStates);
+                        } catch (final Throwable e) {
+                            // Without this worker the self-play can't finish, so the other workers are stopped as well
+                            synchronized (mFailures) {
+                                mFailures.add(e);
+                            }
+                            close();
+                        }
+                    }
+                }, "Self-play worker " + i);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+        } catch (final IOException e) {
+            // Without all workers the self-play can't finish, so the accepted ones are stopped as well
+            synchronized (mFailures) {
+                mFailures.add(e);
+            }
+            close();
+        } finally {
+            mServerSocket.close();
+        }
+
+        try {
+            for (final Thread thread : threads) {
+                thread.join();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            mPolicy.shutdown();
+        }
+
+        synchronized (mFailures) {
+            if (!mFailures.isEmpty()) {
+                throw new IOException("Could not serve all workers, failing " + mFailures.size() + " times.",
+                        mFailures.get(0));
+            }
+        }
+    }
+
+    /**
+     * Stops accepting workers and closes the connections to the accepted ones, so that a failed self-play doesn't keep
+     * waiting for them. The threads serving the workers then fail, which makes {@link #run()} throw.
+     */
+    public void close() {
+        try {
+            mServerSocket.close();
+        } catch (final IOException e) {
+            // The self-play is stopped either way
+        }
+
+        synchronized (mSockets) {
+            for (final Socket socket : mSockets) {
+                try {
+                    socket.close();
+                } catch (final IOException e) {
+                    // The self-play is stopped either way
+                }
+            }
+        }
+    }
+
+    /**
+     * Learns from the batches of a worker and replies with the changed action values until the worker is done.
+     * 
+     * @param socket
+     *            The connection to the worker
+     * @param changedStates
+     *            The states that changed since the worker's previous reply
+     * 
+     * @throws IOException
+     *             Thrown when the connection failed
+     */
+    private void serveWorker(final Socket socket, final BitSet changedStates) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        final TransitionBatch batch = new TransitionBatch();
+
+        try {
+            int count;
+            while ((count = in.readInt()) != END_OF_WORK) {
+                batch.read(in, count, mPolicy.getIndexCount());
+                try {
+                    mPolicy.apply(batch, mConfig.getStepSizeAlpha(), mConfig.getDiscountFactorGamma());
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                // Only mark the states once they're updated, so that no reply can send their old values
+                final BitSet statesToSend;
+                synchronized (mChangedStates) {
+                    for (int i = 0; i < batch.size(); ++i) {
+                        for (final BitSet workerChangedStates : mChangedStates) {
+                            workerChangedStates.set((int) batch.getState(i));
+                        }
+                    }
+                    mTransitionCount += batch.size();
+
+                    statesToSend = (BitSet) changedStates.clone();
+                    changedStates.clear();
+                }
+
+                writeChanges(out, statesToSend);
+                out.flush();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Writes the action values of the changed states of a worker.
+     * 
+     * @param out
+     *            The stream to the worker
+     * @param changedStates
+     *            The states that changed since the worker's previous reply
+     * 
+     * @throws IOException
+     *             Thrown when the reply could not be written
+     */
+    private void writeChanges(final DataOutputStream out, final BitSet changedStates) throws IOException {
+        out.writeInt(changedStates.cardinality());
+        for (int index = changedStates.nextSetBit(0); index >= 0; index = changedStates.nextSetBit(index + 1)) {
+            out.writeLong(index);
+            for (final Action action : Action.values()) {
+                out.writeDouble(mPolicy.getActionValue(index, action));
+            }
+        }
+    }
+}
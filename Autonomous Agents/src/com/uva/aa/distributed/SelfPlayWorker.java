@@ -0,0 +1,153 @@
+package com.uva.aa.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import com.uva.aa.Game;
+import com.uva.aa.State;
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.agents.DistributedQLearningPredatorAgent;
+import com.uva.aa.enums.Action;
+import com.uva.aa.policies.Policy;
+
+/**
+ * Plays games for a {@link SelfPlayCoordinator} in its own process. After every batch of games the observed
+ * transitions are shipped to the coordinator, and the action values it replies with replace those of the predator's
+ * policy, so that the worker keeps playing with what all workers have learned so far.
+ * 
+ * The predator also learns from its own transitions while playing a batch, so that it doesn't repeat its mistakes
+ * until the batch is shipped. These local updates are only provisional: every state of a shipped batch is part of the
+ * reply, so the coordinator's values replace all of them.
+ */
+public class SelfPlayWorker {
+
+    /** The port of the coordinator on localhost */
+    private final int mPort;
+
+    /** The amount of batches to play */
+    private final int mBatches;
+
+    /** The amount of games per batch */
+    private final int mGamesPerBatch;
+
+    /**
+     * Prepares a worker.
+     * 
+     * @param port
+     *            The port of the coordinator on localhost
+     * @param batches
+     *            The amount of batches to play
+     * @param gamesPerBatch
+     *            The amount of games per batch
+     */
+    public SelfPlayWorker(final int port, final int batches, final int gamesPerBatch) {
+        mPort = port;
+        mBatches = batches;
+        mGamesPerBatch = gamesPerBatch;
+    }
+
+    /**
+     * Runs a worker in its own process.
+     * 
+     * @param args
+     *            The port of the coordinator, the amount of batches and the amount of games per batch
+     * 
+     * @throws IOException
+     *             Thrown when the connection to the coordinator failed
+     */
+    public static void main(final String[] args) throws IOException {
+        new SelfPlayWorker(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2])).run();
+    }
+
+    /**
+     * Plays all batches, synchronising with the coordinator after each of them. Prints out the mean amount of rounds
+     * per game of each batch.
+     * 
+     * @throws IOException
+     *             Thrown when the connection to the coordinator failed
+     */
+    public void run() throws IOException {
+        final Game game = SelfPlayCoordinator.createGame();
+        game.setHumanTest(false);
+
+        final DistributedQLearningPredatorAgent predator = (DistributedQLearningPredatorAgent) game.getEnvironment()
+                .getPredators().get(0);
+        final TransitionBatch batch = predator.getTransitionBatch();
+
+        // Enumerate before playing, as a finished game no longer holds the caught prey
+        final StateEnumerator enumerator = game.getEnvironment().getStateEnumerator(false);
+
+        final Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), mPort);
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        // The game reports every finished game, which is of no use here
+        final PrintStream console = System.out;
+        final PrintStream silence = new PrintStream(new OutputStream() {
+            public void write(final int b) {
+            }
+
+            public void write(final byte[] b, final int off, final int len) {
+            }
+        });
+
+        try {
+            for (int i = 0; i < mBatches; ++i) {
+                long rounds = 0;
+                System.setOut(silence);
+                try {
+                    for (int j = 0; j < mGamesPerBatch; ++j) {
+                        game.resetGame();
+                        game.start();
+                        rounds += game.getRoundsPlayed();
+                    }
+                } finally {
+                    System.setOut(console);
+                }
+                console.println("Batch " + (i + 1) + ": " + (double) rounds / mGamesPerBatch + " rounds on average");
+
+                batch.write(out);
+                out.flush();
+                batch.clear();
+
+                applyChanges(in, predator.getPolicy(), enumerator);
+            }
+
+            out.writeInt(SelfPlayCoordinator.END_OF_WORK);
+            out.flush();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Reads the changed action values replied by the coordinator and stores them in a policy.
+     * 
+     * @param in
+     *            The stream from the coordinator
+     * @param policy
+     *            The policy to store the action values in
+     * @param enumerator
+     *            The enumerator used to index the states
+     * 
+     * @throws IOException
+     *             Thrown when the reply could not be read
+     */
+    private void applyChanges(final DataInputStream in, final Policy policy, final StateEnumerator enumerator)
+            throws IOException {
+        final int count = in.readInt();
+        for (int i = 0; i < count; ++i) {
+            final State state = enumerator.unindex(in.readLong());
+            for (final Action action : Action.values()) {
+                policy.setActionValue(state, action, in.readDouble());
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.uva.aa.distributed;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.enums.Action;
+
+/**
+ * A Q-Learning policy whose state-index space is partitioned into contiguous ranges, or shards. Each shard keeps the
+ * action values of its range in a primitive array that only its own thread writes to. Transitions are routed to the
+ * shard that owns their initial state through a queue, in one message per shard per batch, so that writers never
+ * share a cache line.
+ * 
+ * A shard reads the values of the next state from whichever shard owns it, without waiting for that shard. Such a read
+ * may see a slightly stale value, like in asynchronous Q-Learning.
+ */
+public class ShardedPolicy {
+
+    /** The amount of actions per state */
+    private static final int ACTION_COUNT = Action.values().length;
+
+    /** The message that stops a shard's thread */
+    private static final Update STOP = new Update(null, 0, 0, null);
+
+    /** The amount of state indices */
+    private final long mIndexCount;
+
+    /** The amount of state indices per shard */
+    private final long mRangeSize;
+
+    /** The shards in order of their ranges */
+    private final Shard[] mShards;
+
+    /**
+     * Creates a sharded policy for the states of an enumerator and starts the thread of each shard.
+     * 
+     * @param enumerator
+     *            The enumerator used to index the states
+     * @param shardCount
+     *            The amount of shards
+     * @param defaultActionValue
+     *            The initial value of every action
+     */
+    public ShardedPolicy(final StateEnumerator enumerator, final int shardCount, final double defaultActionValue) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("At least one shard is needed.");
+        }
+
+        final long indexCount = enumerator.getIndexCount();
+        mIndexCount = indexCount;
+        mRangeSize = (indexCount + shardCount - 1) / shardCount;
+        if (mRangeSize * ACTION_COUNT > Integer.MAX_VALUE) {
+            throw new RuntimeException("Too many states to fit in " + shardCount + " shards.");
+        }
+
+        mShards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; ++i) {
+            final long fromIndex = Math.min(i * mRangeSize, indexCount);
+            mShards[i] = new Shard(fromIndex, (int) (Math.min(fromIndex + mRangeSize, indexCount) - fromIndex),
+                    defaultActionValue);
+
+            final Thread thread = new Thread(mShards[i], "Policy shard " + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Retrieves the amount of state indices, which every state index has to be below.
+     * 
+     * @return The amount of indices
+     */
+    public long getIndexCount() {
+        return mIndexCount;
+    }
+
+    /**
+     * Retrieves the amount of shards.
+     * 
+     * @return The amount of shards
+     */
+    public int getShardCount() {
+        return mShards.length;
+    }
+
+    /**
+     * Determines which shard owns a state.
+     * 
+     * @param index
+     *            The index of the state
+     * 
+     * @return The number of the owning shard
+     */
+    public int getShard(final long index) {
+        return (int) (index / mRangeSize);
+    }
+
+    /**
+     * Retrieves the value of an action in a state. May be stale while the owning shard is updating.
+     * 
+     * @param index
+     *            The index of the state
+     * @param action
+     *            The action to get the value of
+     * 
+     * @return The action value
+     */
+    public double getActionValue(final long index, final Action action) {
+        return mShards[getShard(index)].getActionValue(index, action);
+    }
+
+    /**
+     * Finds the value of the best action in a state, which is 0 for terminal states.
+     * 
+     * @param index
+     *            The index of the state, or TERMINAL
+     * 
+     * @return The highest action value, but at least 0
+     */
+    public double getBestActionValue(final long index) {
+        double bestActionValue = 0;
+        if (index != TransitionBatch.TERMINAL) {
+            for (final Action action : Action.values()) {
+                bestActionValue = Math.max(bestActionValue, getActionValue(index, action));
+            }
+        }
+        return bestActionValue;
+    }
+
+    /**
+     * Retrieves the amount of states that have been updated at least once.
+     * 
+     * @return The amount of states
+     */
+    public int getStateCount() {
+        int stateCount = 0;
+        for (final Shard shard : mShards) {
+            stateCount += shard.mStateCount;
+        }
+        return stateCount;
+    }
+
+    /**
+     * Routes the transitions of a batch to their owning shards and waits until each shard has applied a Q-Learning
+     * update for them. Several threads may apply batches at the same time. If a shard fails to apply its part, the
+     * other parts are still applied and the failure is rethrown once all shards are done.
+     * 
+     * @param batch
+     *            The transitions to learn from
+     * @param stepSizeAlpha
+     *            The step size of the updates
+     * @param discountFactorGamma
+     *            The discount factor of the updates
+     * 
+     * @throws InterruptedException
+     *             Thrown when interrupted while waiting for the shards
+     */
+    public void apply(final TransitionBatch batch, final double stepSizeAlpha, final double discountFactorGamma)
+            throws InterruptedException {
+        // Split the batch so that every shard receives a single message
+        final TransitionBatch[] shardBatches = new TransitionBatch[mShards.length];
+        int messageCount = 0;
+        for (int i = 0; i < batch.size(); ++i) {
+            final int shard = getShard(batch.getState(i));
+            if (shardBatches[shard] == null) {
+                shardBatches[shard] = new TransitionBatch();
+                ++messageCount;
+            }
+            shardBatches[shard].add(batch.getState(i), batch.getAction(i), batch.getReward(i), batch.getNextState(i));
+        }
+
+        final CountDownLatch applied = new CountDownLatch(messageCount);
+        final Update[] updates = new Update[mShards.length];
+        for (int i = 0; i < mShards.length; ++i) {
+            if (shardBatches[i] != null) {
+                updates[i] = new Update(shardBatches[i], stepSizeAlpha, discountFactorGamma, applied);
+                mShards[i].mQueue.add(updates[i]);
+            }
+        }
+        applied.await();
+
+        for (int i = 0; i < mShards.length; ++i) {
+            if (updates[i] != null && updates[i].mFailure != null) {
+                throw new RuntimeException("Shard " + i + " failed to apply its transitions.", updates[i].mFailure);
+            }
+        }
+    }
+
+    /**
+     * Stops the threads of the shards once they've applied the batches that were routed to them.
+     */
+    public void shutdown() {
+        for (final Shard shard : mShards) {
+            shard.mQueue.add(STOP);
+        }
+    }
+
+    /**
+     * A message with the transitions that a shard should learn from.
+     */
+    private static class Update {
+
+        /** The transitions whose initial states are owned by the shard */
+        private final TransitionBatch mBatch;
+
+        /** The step size of the updates */
+        private final double mStepSizeAlpha;
+
+        /** The discount factor of the updates */
+        private final double mDiscountFactorGamma;
+
+        /** The latch to count down once the transitions have been learned from */
+        private final CountDownLatch mApplied;
+
+        /** The failure of the shard while learning from the transitions, or null if there was none */
+        private volatile Throwable mFailure = null;
+
+        /**
+         * Creates a message for a shard.
+         * 
+         * @param batch
+         *            The transitions whose initial states are owned by the shard
+         * @param stepSizeAlpha
+         *            The step size of the updates
+         * @param discountFactorGamma
+         *            The discount factor of the updates
+         * @param applied
+         *            The latch to count down once the transitions have been learned from
+         */
+        private Update(final TransitionBatch batch, final double stepSizeAlpha, final double discountFactorGamma,
+                final CountDownLatch applied) {
+            mBatch = batch;
+            mStepSizeAlpha = stepSizeAlpha;
+            mDiscountFactorGamma = discountFactorGamma;
+            mApplied = applied;
+        }
+    }
+
+    /**
+     * A range of states whose action values are only written by the shard's own thread.
+     */
+    private class Shard implements Runnable {
+
+        /** The index of the first state in the range */
+        private final long mFromIndex;
+
+        /** The action values per state in the range, in order of the actions' ordinals */
+        private final double[] mActionValues;
+
+        /** The states in the range that have been updated at least once */
+        private final BitSet mUpdatedStates = new BitSet();
+
+        /** The amount of states in the range that have been updated at least once */
+        private volatile int mStateCount = 0;
+
+        /** The updates waiting to be applied */
+        private final BlockingQueue<Update> mQueue = new LinkedBlockingQueue<Update>();
+
+        /**
+         * Creates a shard for a range of states.
+         * 
+         * @param fromIndex
+         *            The index of the first state in the range
+         * @param stateCount
+         *            The amount of states in the range
+         * @param defaultActionValue
+         *            The initial value of every action
+         */
+        private Shard(final long fromIndex, final int stateCount, final double defaultActionValue) {
+            mFromIndex = fromIndex;
+            mActionValues = new double[stateCount * ACTION_COUNT];
+            Arrays.fill(mActionValues, defaultActionValue);
+        }
+
+        /**
+         * Retrieves the value of an action in a state within the range.
+         * 
+         * @param index
+         *            The index of the state
+         * @param action
+         *            The action to get the value of
+         * 
+         * @return The action value
+         */
+        private double getActionValue(final long index, final Action action) {
+            return mActionValues[(int) (index - mFromIndex) * ACTION_COUNT + action.ordinal()];
+        }
+
+        /**
+         * Applies the updates routed to this shard until it's stopped. A failing update is recorded on the update and
+         * doesn't stop the shard, and its latch is always counted down so that the waiting thread is released.
+         */
+        public void run() {
+            while (true) {
+                final Update update;
+                try {
+                    update = mQueue.take();
+                } catch (final InterruptedException e) {
+                    return;
+                }
+                if (update == STOP) {
+                    return;
+                }
+
+                try {
+                    applyUpdate(update);
+                } catch (final Throwable e) {
+                    update.mFailure = e;
+                } finally {
+                    update.mApplied.countDown();
+                }
+            }
+        }
+
+        /**
+         * Applies a Q-Learning update for each transition of an update.
+         * 
+         * @param update
+         *            The update to apply
+         */
+        private void applyUpdate(final Update update) {
+            final TransitionBatch batch = update.mBatch;
+            for (int i = 0; i < batch.size(); ++i) {
+                final int state = (int) (batch.getState(i) - mFromIndex);
+                final int position = state * ACTION_COUNT + batch.getAction(i).ordinal();
+                final double bestNextActionValue = getBestActionValue(batch.getNextState(i));
+
+                mActionValues[position] += update.mStepSizeAlpha
+                        * (batch.getReward(i) + update.mDiscountFactorGamma * bestNextActionValue
+                        - mActionValues[position]);
+
+                if (!mUpdatedStates.get(state)) {
+                    mUpdatedStates.set(state);
+                    ++mStateCount;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.uva.aa.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.uva.aa.State;
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.enums.Action;
+
+/**
+ * A batch of observed transitions that a worker ships to the coordinator. Transitions are stored as state indices
+ * within a {@link StateEnumerator} in primitive arrays that grow when needed, and are written as a count followed by a
+ * fixed-size record per transition: a long with the state index, a byte with the action ordinal, a double with the
+ * reward and a long with the index of the next state, or -1 if the transition ended the game.
+ */
+public class TransitionBatch {
+
+    /** The index of the next state of a transition that ended the game */
+    public static final long TERMINAL = -1;
+
+    /** The index of the initial state per transition */
+    private long[] mStates = new long[256];
+
+    /** The ordinal of the performed action per transition */
+    private byte[] mActions = new byte[256];
+
+    /** The reward per transition */
+    private double[] mRewards = new double[256];
+
+    /** The index of the resulting state per transition, or TERMINAL */
+    private long[] mNextStates = new long[256];
+
+    /** The amount of transitions in the batch */
+    private int mSize = 0;
+
+    /**
+     * Adds an observed transition to the batch.
+     * 
+     * @param enumerator
+     *            The enumerator used to index the states
+     * @param state
+     *            The state before performing the action
+     * @param action
+     *            The action performed in the state
+     * @param reward
+     *            The reward received for the transition
+     * @param nextState
+     *            The state after the transition
+     */
+    public void add(final StateEnumerator enumerator, final State state, final Action action, final double reward,
+            final State nextState) {
+        add(enumerator.index(state), action, reward, (nextState.isTerminal() ? TERMINAL : enumerator
+                .index(nextState)));
+    }
+
+    /**
+     * Adds an observed transition between indexed states to the batch.
+     * 
+     * @param state
+     *            The index of the state before performing the action
+     * @param action
+     *            The action performed in the state
+     * @param reward
+     *            The reward received for the transition
+     * @param nextState
+     *            The index of the state after the transition, or TERMINAL if it ended the game
+     */
+    public void add(final long state, final Action action, final double reward, final long nextState) {
+        if (mSize == mStates.length) {
+            final int capacity = 2 * mSize;
+            mStates = Arrays.copyOf(mStates, capacity);
+            mActions = Arrays.copyOf(mActions, capacity);
+            mRewards = Arrays.copyOf(mRewards, capacity);
+            mNextStates = Arrays.copyOf(mNextStates, capacity);
+        }
+
+        mStates[mSize] = state;
+        mActions[mSize] = (byte) action.ordinal();
+        mRewards[mSize] = reward;
+        mNextStates[mSize] = nextState;
+        ++mSize;
+    }
+
+    /**
+     * Retrieves the amount of transitions in the batch.
+     * 
+     * @return The amount of transitions
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Retrieves the index of the initial state of a transition.
+     * 
+     * @param transition
+     *            The position of the transition in the batch
+     * 
+     * @return The state index
+     */
+    public long getState(final int transition) {
+        return mStates[transition];
+    }
+
+    /**
+     * Retrieves the performed action of a transition.
+     * 
+     * @param transition
+     *            The position of the transition in the batch
+     * 
+     * @return The action
+     */
+    public Action getAction(final int transition) {
+        return Action.values()[mActions[transition]];
+    }
+
+    /**
+     * Retrieves the reward of a transition.
+     * 
+     * @param transition
+     *            The position of the transition in the batch
+     * 
+     * @return The reward
+     */
+    public double getReward(final int transition) {
+        return mRewards[transition];
+    }
+
+    /**
+     * Retrieves the index of the resulting state of a transition.
+     * 
+     * @param transition
+     *            The position of the transition in the batch
+     * 
+     * @return The state index, or TERMINAL if the transition ended the game
+     */
+    public long getNextState(final int transition) {
+        return mNextStates[transition];
+    }
+
+    /**
+     * Removes all transitions from the batch.
+     */
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Writes the batch to a stream.
+     * 
+     * @param out
+     *            The stream to write to
+     * 
+     * @throws IOException
+     *             Thrown when the batch could not be written
+     */
+    public void write(final DataOutputStream out) throws IOException {
+        out.writeInt(mSize);
+        for (int i = 0; i < mSize; ++i) {
+            out.writeLong(mStates[i]);
+            out.writeByte(mActions[i]);
+            out.writeDouble(mRewards[i]);
+            out.writeLong(mNextStates[i]);
+        }
+    }
+
+    /**
+     * Replaces the contents of the batch with transitions read from a stream. Every transition is validated, so that a
+     * malformed batch never reaches the policy.
+     * 
+     * @param in
+     *            The stream to read from
+     * @param count
+     *            The amount of transitions to read, which has already been read from the stream
+     * @param indexCount
+     *            The amount of state indices, which every state index has to be below
+     * 
+     * @throws IOException
+     *             Thrown when the batch could not be read or is malformed
+     */
+    public void read(final DataInputStream in, final int count, final long indexCount) throws IOException {
+        clear();
+        if (count < 0) {
+            throw new IOException("Received a batch of " + count + " transitions.");
+        }
+
+        // The arrays grow with the transitions that actually arrive, rather than with the announced count
+        for (int i = 0; i < count; ++i) {
+            final long state = in.readLong();
+            final byte action = in.readByte();
+            final double reward = in.readDouble();
+            final long nextState = in.readLong();
+
+            if (state < 0 || state >= indexCount) {
+                throw new IOException("Received transition " + i + " from state index " + state + ".");
+            }
+            if (action < 0 || action >= Action.values().length) {
+                throw new IOException("Received transition " + i + " with action ordinal " + action + ".");
+            }
+            if (nextState != TERMINAL && (nextState < 0 || nextState >= indexCount)) {
+                throw new IOException("Received transition " + i + " to state index " + nextState + ".");
+            }
+            add(state, Action.values()[action], reward, nextState);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.uva.aa.enums;
+
+import com.uva.aa.Config;
+
+/**
+ * Denotes the different parameters of a configuration that can be tuned, e.g. during a parameter sweep.
+ */
+public enum ConfigParameter {
+
+    ERROR_THRESHOLD_THETA {
+        public double getValue(final Config config) {
+            return config.getErrorThresholdTheta();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setErrorThresholdTheta(value);
+        }
+    },
+    STEP_SIZE_ALPHA {
+        public double getValue(final Config config) {
+            return config.getStepSizeAlpha();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setStepSizeAlpha(value);
+        }
+    },
+    STEP_SIZE_BETA {
+        public double getValue(final Config config) {
+            return config.getStepSizeBeta();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setStepSizeBeta(value);
+        }
+    },
+    PREY_STEP_SIZE_ALPHA {
+        public double getValue(final Config config) {
+            return config.getPreyStepSizeAlpha();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setPreyStepSizeAlpha(value);
+        }
+    },
+    DISCOUNT_FACTOR_GAMMA {
+        public double getValue(final Config config) {
+            return config.getDiscountFactorGamma();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setDiscountFactorGamma(value);
+        }
+    },
+    PREY_DISCOUNT_FACTOR_GAMMA {
+        public double getValue(final Config config) {
+            return config.getPreyDiscountFactorGamma();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setPreyDiscountFactorGamma(value);
+        }
+    },
+    EPSILON {
+        public double getValue(final Config config) {
+            return config.getEpsilon();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setEpsilon(value);
+        }
+    },
+    PREY_EPSILON {
+        public double getValue(final Config config) {
+            return config.getPreyEpsilon();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setPreyEpsilon(value);
+        }
+    },
+    TEMPERATURE {
+        public double getValue(final Config config) {
+            return config.getTemperature();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setTemperature(value);
+        }
+    },
+    DEFAULT_ACTION_VALUE {
+        public double getValue(final Config config) {
+            return config.getDefaultActionValue();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setDefaultActionValue(value);
+        }
+    },
+    PREY_DEFAULT_ACTION_VALUE {
+        public double getValue(final Config config) {
+            return config.getPreyDefaultActionValue();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setPreyDefaultActionValue(value);
+        }
+    },
+    KILL_REWARD {
+        public double getValue(final Config config) {
+            return config.getKillReward();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setKillReward(value);
+        }
+    },
+    COLLISION_REWARD {
+        public double getValue(final Config config) {
+            return config.getCollisionReward();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setCollisionReward(value);
+        }
+    },
+    PREY_DIE_REWARD {
+        public double getValue(final Config config) {
+            return config.getPreyDieReward();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setPreyDieReward(value);
+        }
+    },
+    PREY_ESCAPE_REWARD {
+        public double getValue(final Config config) {
+            return config.getPreyEscapeReward();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setPreyEscapeReward(value);
+        }
+    },
+    TRACE_DECAY_LAMBDA {
+        public double getValue(final Config config) {
+            return config.getTraceDecayLambda();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setTraceDecayLambda(value);
+        }
+    },
+    MAX_ELIGIBILITY_TRACES {
+        public double getValue(final Config config) {
+            return config.getMaxEligibilityTraces();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setMaxEligibilityTraces((int) Math.round(value));
+        }
+    },
+    MIN_ELIGIBILITY_TRACE {
+        public double getValue(final Config config) {
+            return config.getMinEligibilityTrace();
+        }
+
+        public void setValue(final Config config, final double value) {
+            config.setMinEligibilityTrace(value);
+        }
+    };
+
+    /**
+     * Retrieves the value of this parameter within the given configuration.
+     * 
+     * @param config
+     *            The configuration to read from
+     * 
+     * @return The parameter's value
+     */
+    public abstract double getValue(Config config);
+
+    /**
+     * Sets the value of this parameter within the given configuration.
+     * 
+     * @param config
+     *            The configuration to modify
+     * @param value
+     *            The parameter's new value
+     */
+    public abstract void setValue(Config config, double value);
+}
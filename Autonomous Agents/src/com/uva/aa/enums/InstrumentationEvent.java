@@ -0,0 +1,23 @@
+package com.uva.aa.enums;
+
+/**
+ * Denotes the different points in the hot paths of training that can be instrumented. Each event carries a count and a
+ * value whose meaning depends on the event.
+ */
+public enum InstrumentationEvent {
+
+    /** A game played from start to finish; the count is the amount of rounds played and the value the states seen */
+    EPISODE,
+
+    /** A single sweep over all states while updating state values; the count is the iteration and the value max delta */
+    STATE_VALUE_SWEEP,
+
+    /** A linear program solved by Minimax-Q; the count is the result code of the solver and the value the objective */
+    LP_SOLVE,
+
+    /** A new state added to a policy; the count is the new amount of states in the policy */
+    POLICY_GROWTH,
+
+    /** An enumeration of all possible states in the environment; the count is the amount of states enumerated */
+    STATE_ENUMERATION;
+}
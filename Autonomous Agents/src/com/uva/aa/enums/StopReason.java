@@ -0,0 +1,22 @@
+package com.uva.aa.enums;
+
+/**
+ * Denotes why a policy manager stopped updating state values or iterating policies.
+ */
+public enum StopReason {
+
+    /** Indicates that the largest change of a state value dropped below the error threshold theta */
+    ERROR_THRESHOLD,
+
+    /** Indicates that the distance to the true state values is guaranteed to be within the relative error bound */
+    RELATIVE_ERROR_BOUND,
+
+    /** Indicates that the greedy policy didn't change anymore during an improvement step */
+    POLICY_STABLE,
+
+    /** Indicates that the maximum amount of sweeps was reached */
+    MAX_SWEEPS,
+
+    /** Indicates that the wall-clock budget ran out */
+    TIME_BUDGET;
+}
@@ -0,0 +1,78 @@
+package com.uva.aa.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes per-episode metrics to a binary columnar file. The file is a sequence of blocks in big-endian byte order,
+ * each consisting of an int with the number of episodes n, followed by the columns: n longs with the episode numbers,
+ * n ints with the rounds, n doubles with the rewards, n ints with the states visited and n longs with the wall times.
+ */
+public class ColumnarMetricsWriter implements EpisodeMetricsWriter {
+
+    /** The number of bytes needed per episode in a block */
+    private static final int BYTES_PER_EPISODE = 8 + 4 + 8 + 4 + 8;
+
+    /** The channel to the binary file */
+    private final FileChannel mChannel;
+
+    /** The buffer that a block is assembled in before being written, grows when needed */
+    private ByteBuffer mBuffer = ByteBuffer.allocateDirect(4 + 1024 * BYTES_PER_EPISODE);
+
+    /**
+     * Creates the binary file.
+     * 
+     * @param file
+     *            The file to write to, will be overwritten
+     * 
+     * @throws IOException
+     *             Thrown when the file could not be created
+     */
+    public ColumnarMetricsWriter(final File file) throws IOException {
+        mChannel = new FileOutputStream(file).getChannel();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeBlock(final int count, final long[] episodes, final int[] rounds, final double[] rewards,
+            final int[] statesVisited, final long[] wallTimes) throws IOException {
+        final int blockSize = 4 + count * BYTES_PER_EPISODE;
+        if (mBuffer.capacity() < blockSize) {
+            mBuffer = ByteBuffer.allocateDirect(blockSize);
+        }
+        mBuffer.clear();
+
+        mBuffer.putInt(count);
+        for (int i = 0; i < count; ++i) {
+            mBuffer.putLong(episodes[i]);
+        }
+        for (int i = 0; i < count; ++i) {
+            mBuffer.putInt(rounds[i]);
+        }
+        for (int i = 0; i < count; ++i) {
+            mBuffer.putDouble(rewards[i]);
+        }
+        for (int i = 0; i < count; ++i) {
+            mBuffer.putInt(statesVisited[i]);
+        }
+        for (int i = 0; i < count; ++i) {
+            mBuffer.putLong(wallTimes[i]);
+        }
+
+        mBuffer.flip();
+        while (mBuffer.hasRemaining()) {
+            mChannel.write(mBuffer);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        mChannel.close();
+    }
+}
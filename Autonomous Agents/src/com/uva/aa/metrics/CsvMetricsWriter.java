@@ -0,0 +1,54 @@
+package com.uva.aa.metrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes per-episode metrics as comma-separated values with a header row.
+ */
+public class CsvMetricsWriter implements EpisodeMetricsWriter {
+
+    /** The buffered output of the CSV file */
+    private final Writer mWriter;
+
+    /**
+     * Creates a CSV file and writes the header row.
+     * 
+     * @param file
+     *            The file to write to, will be overwritten
+     * 
+     * @throws IOException
+     *             Thrown when the file could not be created
+     */
+    public CsvMetricsWriter(final File file) throws IOException {
+        mWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "US-ASCII"), 1 << 16);
+        mWriter.write("episode,rounds,reward,states_visited,wall_time_ns\n");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void writeBlock(final int count, final long[] episodes, final int[] rounds, final double[] rewards,
+            final int[] statesVisited, final long[] wallTimes) throws IOException {
+        final StringBuilder builder = new StringBuilder(count * 32);
+        for (int i = 0; i < count; ++i) {
+            builder.append(episodes[i]).append(',');
+            builder.append(rounds[i]).append(',');
+            builder.append(rewards[i]).append(',');
+            builder.append(statesVisited[i]).append(',');
+            builder.append(wallTimes[i]).append('\n');
+        }
+        mWriter.write(builder.toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        mWriter.close();
+    }
+}
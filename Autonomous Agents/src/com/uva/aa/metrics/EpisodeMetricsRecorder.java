@@ -0,0 +1,225 @@
+package com.uva.aa.metrics;
+
+import java.io.IOException;
+
+/**
+ * Records metrics for each episode of a game to draw learning curves. The metrics are buffered in primitive ring
+ * buffers by the game thread and written asynchronously by a separate flushing thread, so recording never waits for
+ * I/O. When the flushing thread falls behind and the buffers are full, new episodes are dropped and counted instead.
+ * 
+ * Only a single game thread may record to a recorder.
+ */
+public class EpisodeMetricsRecorder {
+
+    /** The default amount of episodes that can be buffered; must be a power of two */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** The time in ms that the flushing thread waits when there's nothing to write */
+    private static final int FLUSH_INTERVAL = 50;
+
+    /** The writer that the buffered episodes are flushed to */
+    private final EpisodeMetricsWriter mWriter;
+
+    /** The amount of episodes that can be buffered */
+    private final int mCapacity;
+
+    /** The mask to map a sequence number onto a buffer index */
+    private final int mMask;
+
+    /** The ring buffer with the episode numbers */
+    private final long[] mEpisodes;
+
+    /** The ring buffer with the rounds per episode */
+    private final int[] mRounds;
+
+    /** The ring buffer with the cumulative rewards per episode */
+    private final double[] mRewards;
+
+    /** The ring buffer with the states visited after each episode */
+    private final int[] mStatesVisited;
+
+    /** The ring buffer with the wall times per episode */
+    private final long[] mWallTimes;
+
+    /** The sequence number of the next episode to record; only written by the game thread */
+    private volatile long mHead = 0;
+
+    /** The sequence number of the next episode to flush; only written by the flushing thread */
+    private volatile long mTail = 0;
+
+    /** Whether the recorder is closed and the flushing thread should stop once the buffers are empty */
+    private volatile boolean mClosed = false;
+
+    /** The number of the next episode */
+    private long mEpisodeCount = 0;
+
+    /** The amount of episodes dropped because the buffers were full */
+    private long mDropped = 0;
+
+    /** The error that stopped the flushing thread, if any */
+    private volatile IOException mError;
+
+    /** The thread that flushes the buffers to the writer */
+    private final Thread mFlushThread;
+
+    /**
+     * Creates a recorder with the default capacity and starts flushing to the writer.
+     * 
+     * @param writer
+     *            The writer to flush the episodes to
+     */
+    public EpisodeMetricsRecorder(final EpisodeMetricsWriter writer) {
+        this(writer, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a recorder and starts flushing to the writer.
+     * 
+     * @param writer
+     *            The writer to flush the episodes to
+     * @param capacity
+     *            The amount of episodes that can be buffered; must be a power of two
+     */
+    public EpisodeMetricsRecorder(final EpisodeMetricsWriter writer, final int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a power of two.");
+        }
+
+        mWriter = writer;
+        mCapacity = capacity;
+        mMask = capacity - 1;
+        mEpisodes = new long[capacity];
+        mRounds = new int[capacity];
+        mRewards = new double[capacity];
+        mStatesVisited = new int[capacity];
+        mWallTimes = new long[capacity];
+
+        mFlushThread = new Thread(new Runnable() {
+            public void run() {
+                flushLoop();
+            }
+        }, "EpisodeMetricsFlusher");
+        mFlushThread.setDaemon(true);
+        mFlushThread.start();
+    }
+
+    /**
+     * Records the metrics of a finished episode. Never blocks; drops the episode when the buffers are full. Fails once
+     * the flushing thread stopped on an error, as the episodes would otherwise be lost without notice.
+     * 
+     * @param rounds
+     *            The amount of rounds played in the episode
+     * @param reward
+     *            The cumulative reward of the predators in the episode
+     * @param statesVisited
+     *            The amount of states in the policy after the episode
+     * @param wallTime
+     *            The wall time of the episode in nanoseconds
+     */
+    public void record(final int rounds, final double reward, final int statesVisited, final long wallTime) {
+        if (mError != null) {
+            throw new RuntimeException("The episode metrics could no longer be written.", mError);
+        }
+
+        final long episode = mEpisodeCount++;
+        final long head = mHead;
+
+        if (head - mTail >= mCapacity) {
+            ++mDropped;
+            return;
+        }
+
+        final int index = (int) (head & mMask);
+        mEpisodes[index] = episode;
+        mRounds[index] = rounds;
+        mRewards[index] = reward;
+        mStatesVisited[index] = statesVisited;
+        mWallTimes[index] = wallTime;
+
+        // Publish the episode to the flushing thread
+        mHead = head + 1;
+    }
+
+    /**
+     * Retrieves the amount of episodes dropped because the buffers were full.
+     * 
+     * @return The amount of dropped episodes
+     */
+    public long getDroppedEpisodes() {
+        return mDropped;
+    }
+
+    /**
+     * Flushes all recorded episodes, stops the flushing thread and closes the writer.
+     * 
+     * @throws IOException
+     *             Thrown when the episodes could not be written
+     */
+    public void close() throws IOException {
+        mClosed = true;
+        try {
+            mFlushThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        mWriter.close();
+
+        if (mDropped > 0) {
+            System.err.println("Dropped the metrics of " + mDropped + " episodes because the buffer was full.");
+        }
+        if (mError != null) {
+            throw mError;
+        }
+    }
+
+    /**
+     * Keeps copying recorded episodes out of the ring buffers and writing them until the recorder is closed.
+     */
+    private void flushLoop() {
+        final long[] episodes = new long[mCapacity];
+        final int[] rounds = new int[mCapacity];
+        final double[] rewards = new double[mCapacity];
+        final int[] statesVisited = new int[mCapacity];
+        final long[] wallTimes = new long[mCapacity];
+
+        while (true) {
+            // Read the closed flag before the head so that no episode recorded before closing is missed
+            final boolean closed = mClosed;
+            final long head = mHead;
+            final long tail = mTail;
+
+            if (head == tail) {
+                if (closed) {
+                    return;
+                }
+                try {
+                    Thread.sleep(FLUSH_INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                continue;
+            }
+
+            // Copy the episodes out so that the slots can be reused while writing
+            final int count = (int) (head - tail);
+            for (int i = 0; i < count; ++i) {
+                final int index = (int) ((tail + i) & mMask);
+                episodes[i] = mEpisodes[index];
+                rounds[i] = mRounds[index];
+                rewards[i] = mRewards[index];
+                statesVisited[i] = mStatesVisited[index];
+                wallTimes[i] = mWallTimes[index];
+            }
+            mTail = head;
+
+            try {
+                mWriter.writeBlock(count, episodes, rounds, rewards, statesVisited, wallTimes);
+            } catch (IOException e) {
+                System.err.println("Failed to write the metrics of " + count + " episodes: " + e.getMessage());
+                mError = e;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.uva.aa.metrics;
+
+import java.io.IOException;
+
+/**
+ * Writes blocks of per-episode metrics to some output. Only called from the flushing thread of an
+ * {@link EpisodeMetricsRecorder}, so implementations don't need to be thread-safe.
+ */
+public interface EpisodeMetricsWriter {
+
+    /**
+     * Writes a block of episodes, with each metric provided as a column.
+     * 
+     * @param count
+     *            The number of episodes in the block; only the first count entries of each column are valid
+     * @param episodes
+     *            The number of each episode
+     * @param rounds
+     *            The amount of rounds played in each episode
+     * @param rewards
+     *            The cumulative reward of the predators in each episode
+     * @param statesVisited
+     *            The amount of states in the policy after each episode
+     * @param wallTimes
+     *            The wall time in nanoseconds of each episode
+     * 
+     * @throws IOException
+     *             Thrown when the block could not be written
+     */
+    void writeBlock(int count, long[] episodes, int[] rounds, double[] rewards, int[] statesVisited, long[] wallTimes)
+            throws IOException;
+
+    /**
+     * Flushes all written blocks and releases the output.
+     * 
+     * @throws IOException
+     *             Thrown when the output could not be closed
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,58 @@
+package com.uva.aa.metrics;
+
+import com.uva.aa.enums.InstrumentationEvent;
+
+/**
+ * Lightweight instrumentation of the hot paths of training. Disabled by default; instrumented code checks
+ * {@link #isEnabled()} before taking any timings, so the only cost while disabled is a single field read.
+ */
+public final class Instrumentation {
+
+    /** The listener that receives all events, or null if instrumentation is disabled */
+    private static volatile InstrumentationListener sListener = null;
+
+    /**
+     * Instrumentation only consists of static methods.
+     */
+    private Instrumentation() {
+    }
+
+    /**
+     * Enables instrumentation by sending all events to the listener.
+     * 
+     * @param listener
+     *            The listener to receive the events or null to disable instrumentation
+     */
+    public static void setListener(final InstrumentationListener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * Checks whether instrumentation is enabled and events should be emitted.
+     * 
+     * @return True if a listener is set, false otherwise
+     */
+    public static boolean isEnabled() {
+        return sListener != null;
+    }
+
+    /**
+     * Emits an event to the listener, if any.
+     * 
+     * @param event
+     *            The type of event
+     * @param duration
+     *            The time in nanoseconds the event took, or 0 for instantaneous events
+     * @param count
+     *            The count belonging to the event
+     * @param value
+     *            The value belonging to the event
+     */
+    public static void emit(final InstrumentationEvent event, final long duration, final long count,
+            final double value) {
+        final InstrumentationListener listener = sListener;
+        if (listener != null) {
+            listener.onEvent(event, duration, count, value);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.uva.aa.metrics;
+
+import com.uva.aa.enums.InstrumentationEvent;
+
+/**
+ * Receives the events emitted through {@link Instrumentation}. May be called from several threads at once when games
+ * are played in parallel.
+ */
+public interface InstrumentationListener {
+
+    /**
+     * Handles an instrumented event.
+     * 
+     * @param event
+     *            The type of event
+     * @param duration
+     *            The time in nanoseconds the event took, or 0 for instantaneous events
+     * @param count
+     *            The count belonging to the event, see {@link InstrumentationEvent}
+     * @param value
+     *            The value belonging to the event, see {@link InstrumentationEvent}
+     */
+    void onEvent(InstrumentationEvent event, long duration, long count, double value);
+}
@@ -0,0 +1,52 @@
+package com.uva.aa.metrics;
+
+import com.uva.aa.enums.InstrumentationEvent;
+
+/**
+ * Aggregates instrumented events per type to show where the time of a training run goes.
+ */
+public class InstrumentationSummary implements InstrumentationListener {
+
+    /** The amount of events per type */
+    private final long[] mCounts = new long[InstrumentationEvent.values().length];
+
+    /** The total duration in nanoseconds per type */
+    private final long[] mTotalDurations = new long[InstrumentationEvent.values().length];
+
+    /** The longest duration in nanoseconds per type */
+    private final long[] mMaxDurations = new long[InstrumentationEvent.values().length];
+
+    /** The count of the latest event per type */
+    private final long[] mLastCounts = new long[InstrumentationEvent.values().length];
+
+    /** The value of the latest event per type */
+    private final double[] mLastValues = new double[InstrumentationEvent.values().length];
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized void onEvent(final InstrumentationEvent event, final long duration, final long count,
+            final double value) {
+        final int index = event.ordinal();
+        ++mCounts[index];
+        mTotalDurations[index] += duration;
+        mMaxDurations[index] = Math.max(mMaxDurations[index], duration);
+        mLastCounts[index] = count;
+        mLastValues[index] = value;
+    }
+
+    /**
+     * Prints the aggregated events as a table with the times in ms.
+     */
+    public synchronized void print() {
+        System.out.println(String.format("%-18s %10s %12s %10s %10s %12s %12s", "event", "amount", "total ms",
+                "mean ms", "max ms", "last count", "last value"));
+        for (final InstrumentationEvent event : InstrumentationEvent.values()) {
+            final int index = event.ordinal();
+            final double meanDuration = (mCounts[index] > 0 ? (double) mTotalDurations[index] / mCounts[index] : 0);
+            System.out.println(String.format("%-18s %10d %12.3f %10.4f %10.4f %12d %12.6f", event, mCounts[index],
+                    mTotalDurations[index] / 1e6, meanDuration / 1e6, mMaxDurations[index] / 1e6, mLastCounts[index],
+                    mLastValues[index]));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.uva.aa.policies;
+
+import com.uva.aa.enums.Action;
+
+/**
+ * Samples actions from a fixed probability distribution in constant time, using Walker's alias method as constructed by
+ * Vose. Each action has a column with the chance of keeping it and an alias to fall back to otherwise, so sampling
+ * takes a single random number: its integer part picks the column and its fraction decides between the column's
+ * action and its alias. The probabilities are normalised by their sum, so rounding errors don't leave any chance of
+ * not choosing an action.
+ */
+public class AliasSampler {
+
+    /** The actions in order of their ordinals */
+    private static final Action[] ACTIONS = Action.values();
+
+    /** The chance of keeping the action of each column */
+    private final double[] mKeepProbabilities = new double[ACTIONS.length];
+
+    /** The ordinal of the action to fall back to per column */
+    private final byte[] mAliases = new byte[ACTIONS.length];
+
+    /**
+     * Builds the alias table of a distribution.
+     * 
+     * @param probabilities
+     *            The probability of each action in order of their ordinals, summing up to a positive amount
+     */
+    public AliasSampler(final double[] probabilities) {
+        final int count = ACTIONS.length;
+
+        double sum = 0;
+        for (int i = 0; i < count; ++i) {
+            sum += probabilities[i];
+        }
+        if (!(sum > 0)) {
+            throw new RuntimeException("Cannot sample from probabilities that sum up to " + sum + ".");
+        }
+
+        // Scale the probabilities so that the columns average to 1, and split them in small and large ones
+        final double[] scaled = new double[count];
+        final int[] small = new int[count];
+        final int[] large = new int[count];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < count; ++i) {
+            scaled[i] = probabilities[i] * count / sum;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        // Fill up each small column with a large one, which may become small itself
+        while (smallCount > 0 && largeCount > 0) {
+            final int column = small[--smallCount];
+            final int alias = large[largeCount - 1];
+
+            mKeepProbabilities[column] = scaled[column];
+            mAliases[column] = (byte) alias;
+
+            scaled[alias] -= 1 - scaled[column];
+            if (scaled[alias] < 1) {
+                --largeCount;
+                small[smallCount++] = alias;
+            }
+        }
+
+        // What remains is full up to rounding errors
+        while (largeCount > 0) {
+            final int column = large[--largeCount];
+            mKeepProbabilities[column] = 1;
+            mAliases[column] = (byte) column;
+        }
+        while (smallCount > 0) {
+            final int column = small[--smallCount];
+            mKeepProbabilities[column] = 1;
+            mAliases[column] = (byte) column;
+        }
+    }
+
+    /**
+     * Samples an action.
+     * 
+     * @return The sampled action
+     */
+    public Action sample() {
+        final double decision = Math.random() * ACTIONS.length;
+        final int column = (int) decision;
+        return ACTIONS[decision - column < mKeepProbabilities[column] ? column : mAliases[column]];
+    }
+}
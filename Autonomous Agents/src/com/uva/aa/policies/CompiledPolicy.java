@@ -0,0 +1,179 @@
+package com.uva.aa.policies;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.uva.aa.State;
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.enums.Action;
+
+/**
+ * A policy compiled into a table for serving actions once it's done learning. The table holds a byte per state index
+ * of an enumerator: the bits of the actions to choose equally between, so that a greedy policy with ties is served by
+ * a single array read. States whose probabilities aren't equal among their actions are marked and get an
+ * {@link AliasSampler} instead.
+ */
+public class CompiledPolicy {
+
+    /** The actions in order of their ordinals */
+    private static final Action[] ACTIONS = Action.values();
+
+    /** The entry of a state without any actions */
+    private static final byte NO_ACTIONS = 0;
+
+    /** The entry of a state that's sampled through its alias sampler */
+    private static final byte SAMPLED = -1;
+
+    /** The tolerance within which probabilities or action values are considered equal */
+    private static final double TOLERANCE = 1e-9;
+
+    /** The actions per set of action bits */
+    private static final Action[][] ACTION_SETS = new Action[1 << ACTIONS.length][];
+
+    static {
+        for (int bits = 0; bits < ACTION_SETS.length; ++bits) {
+            ACTION_SETS[bits] = new Action[Integer.bitCount(bits)];
+            int position = 0;
+            for (final Action action : ACTIONS) {
+                if ((bits & (1 << action.ordinal())) != 0) {
+                    ACTION_SETS[bits][position++] = action;
+                }
+            }
+        }
+    }
+
+    /** The enumerator used to index the states */
+    private final StateEnumerator mEnumerator;
+
+    /** The action bits per state index, NO_ACTIONS or SAMPLED */
+    private final byte[] mTable;
+
+    /** The samplers of the states that are SAMPLED, by their index */
+    private final Map<Long, AliasSampler> mSamplers = new HashMap<Long, AliasSampler>();
+
+    /**
+     * Creates an empty table for the states of an enumerator.
+     * 
+     * @param enumerator
+     *            The enumerator used to index the states
+     */
+    private CompiledPolicy(final StateEnumerator enumerator) {
+        if (enumerator.getIndexCount() > Integer.MAX_VALUE) {
+            throw new RuntimeException("The state-space is too large to compile a policy for.");
+        }
+
+        mEnumerator = enumerator;
+        mTable = new byte[(int) enumerator.getIndexCount()];
+    }
+
+    /**
+     * Compiles the action probabilities of a policy, as found after policy or value iteration.
+     * 
+     * @param policy
+     *            The policy to compile
+     * @param enumerator
+     *            The enumerator used to index the states
+     * 
+     * @return The compiled policy
+     */
+    public static CompiledPolicy compileProbabilities(final Policy policy, final StateEnumerator enumerator) {
+        final CompiledPolicy compiledPolicy = new CompiledPolicy(enumerator);
+        final PolicySnapshot snapshot = policy.snapshot();
+        final double[] probabilities = new double[ACTIONS.length];
+
+        for (final State state : enumerator) {
+            final long index = enumerator.index(state);
+
+            int bits = 0;
+            boolean uniform = true;
+            double firstProbability = 0;
+            for (final Action action : ACTIONS) {
+                probabilities[action.ordinal()] = snapshot.getActionProbability(state, action);
+                if (probabilities[action.ordinal()] > 0) {
+                    if (bits == 0) {
+                        firstProbability = probabilities[action.ordinal()];
+                    } else if (Math.abs(probabilities[action.ordinal()] - firstProbability) > TOLERANCE) {
+                        uniform = false;
+                    }
+                    bits |= 1 << action.ordinal();
+                }
+            }
+
+            if (uniform) {
+                compiledPolicy.mTable[(int) index] = (byte) bits;
+            } else {
+                compiledPolicy.mTable[(int) index] = SAMPLED;
+                compiledPolicy.mSamplers.put(index, new AliasSampler(probabilities));
+            }
+        }
+
+        return compiledPolicy;
+    }
+
+    /**
+     * Compiles the greedy policy with respect to the action values of a policy, as learned by e.g. Q-Learning. Ties
+     * are served by choosing equally between the best actions. Actions without a value are left out, so states without
+     * any action values have no actions.
+     * 
+     * @param policy
+     *            The policy to compile
+     * @param enumerator
+     *            The enumerator used to index the states
+     * 
+     * @return The compiled policy
+     */
+    public static CompiledPolicy compileActionValues(final Policy policy, final StateEnumerator enumerator) {
+        final CompiledPolicy compiledPolicy = new CompiledPolicy(enumerator);
+        final PolicySnapshot snapshot = policy.snapshot();
+
+        for (final State state : enumerator) {
+            final Map<Action, Double> actionValues = snapshot.getActionValues(state);
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (final double value : actionValues.values()) {
+                bestValue = Math.max(bestValue, value);
+            }
+
+            int bits = 0;
+            for (final Map.Entry<Action, Double> actionValue : actionValues.entrySet()) {
+                if (actionValue.getValue() >= bestValue - TOLERANCE) {
+                    bits |= 1 << actionValue.getKey().ordinal();
+                }
+            }
+            compiledPolicy.mTable[(int) enumerator.index(state)] = (byte) bits;
+        }
+
+        return compiledPolicy;
+    }
+
+    /**
+     * Retrieves the enumerator used to index the states.
+     * 
+     * @return The enumerator
+     */
+    public StateEnumerator getEnumerator() {
+        return mEnumerator;
+    }
+
+    /**
+     * Serves the action to perform in a state. The state has to contain every agent of the enumerator.
+     * 
+     * @param state
+     *            The state to choose an action for
+     * 
+     * @return The action, or null if the state has no actions
+     */
+    public Action getAction(final State state) {
+        final long index = mEnumerator.index(state);
+        final byte entry = mTable[(int) index];
+
+        if (entry == SAMPLED) {
+            return mSamplers.get(index).sample();
+        }
+        if (entry == NO_ACTIONS) {
+            return null;
+        }
+
+        final Action[] actions = ACTION_SETS[entry];
+        return (actions.length == 1 ? actions[0] : actions[(int) (Math.random() * actions.length)]);
+    }
+}
@@ -0,0 +1,358 @@
+package com.uva.aa.policies;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.uva.aa.State;
+import com.uva.aa.enums.Action;
+import com.uva.aa.enums.InstrumentationEvent;
+import com.uva.aa.metrics.Instrumentation;
+
+/**
+ * A policy that may be shared between threads, e.g. a learner that updates it and evaluators that query it at the same
+ * time. States are mapped in a concurrent map, and a state that isn't mapped yet is initialised without locking and
+ * inserted only if no other thread inserted it first. The properties of each state are guarded by one of a fixed set
+ * of read-write locks, chosen by the state's hash: reading and choosing actions take the read lock, so readers of
+ * different states, and of the same state, never block each other; writes take the write lock of their stripe only.
+ * 
+ * A concurrent policy can't be bounded, approximated or stored off-heap. Properties retrieved through
+ * {@link #getProperties(State)} should only be changed while holding the write lock of {@link #getLock(State)}.
+ */
+public class ConcurrentPolicy extends Policy {
+
+    /** The amount of locks, a power of two */
+    private static final int STRIPE_COUNT = 64;
+
+    /** The map holding the properties for their state */
+    private final ConcurrentMap<State, StatePolicyProperties> mStateMap;
+
+    /** The locks that guard the properties of the states with the same hash modulo the amount of locks */
+    private final ReadWriteLock[] mStripes = new ReadWriteLock[STRIPE_COUNT];
+
+    /** The amount of retrieved properties of states that were mapped */
+    private final AtomicLong mHits = new AtomicLong();
+
+    /** The amount of retrieved properties of states that weren't mapped yet */
+    private final AtomicLong mMisses = new AtomicLong();
+
+    /**
+     * Creates an empty concurrent policy.
+     */
+    public ConcurrentPolicy() {
+        this(new ConcurrentHashMap<State, StatePolicyProperties>());
+    }
+
+    /**
+     * Creates an empty concurrent policy that maps its states in the given map.
+     * 
+     * @param stateMap
+     *            The empty map to map the states in
+     */
+    private ConcurrentPolicy(final ConcurrentMap<State, StatePolicyProperties> stateMap) {
+        super(stateMap);
+        mStateMap = stateMap;
+        for (int i = 0; i < STRIPE_COUNT; ++i) {
+            mStripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Retrieves the lock that guards the properties of a state.
+     * 
+     * @param state
+     *            The state to get the lock of
+     * 
+     * @return The read-write lock of the state's stripe
+     */
+    public ReadWriteLock getLock(final State state) {
+        return mStripes[getRelativeState(state).hashCode() & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * When several threads need a state that isn't mapped yet, each initialises its own properties but all of them
+     * receive the properties that got mapped first.
+     */
+    @Override
+    public StatePolicyProperties getProperties(final State state) {
+        final State relativeState = getRelativeState(state);
+        final StatePolicyProperties properties = mStateMap.get(relativeState);
+        if (properties != null) {
+            mHits.incrementAndGet();
+            return properties;
+        }
+
+        mMisses.incrementAndGet();
+        final StatePolicyProperties newProperties = createProperties(relativeState);
+        newProperties.makeConcurrent();
+
+        final StatePolicyProperties mappedProperties = mStateMap.putIfAbsent(relativeState, newProperties);
+        if (mappedProperties != null) {
+            return mappedProperties;
+        }
+
+        if (Instrumentation.isEnabled()) {
+            Instrumentation.emit(InstrumentationEvent.POLICY_GROWTH, 0, mStateMap.size(), 0);
+        }
+        return newProperties;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHits() {
+        return mHits.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMisses() {
+        return mMisses.get();
+    }
+
+    /**
+     * Not supported, as a concurrent policy can't be approximated.
+     * 
+     * @param approximator
+     *            Must be null
+     */
+    @Override
+    public void setApproximator(final TileCodedActionValues approximator) {
+        if (approximator != null) {
+            throw new RuntimeException("A concurrent policy can't be approximated.");
+        }
+    }
+
+    /**
+     * Not supported, as a concurrent policy can't be stored off-heap.
+     * 
+     * @param offHeapStore
+     *            Must be null
+     */
+    @Override
+    public void setOffHeapStore(final OffHeapPolicyStore offHeapStore) {
+        if (offHeapStore != null) {
+            throw new RuntimeException("A concurrent policy can't be stored off-heap.");
+        }
+    }
+
+    /**
+     * Not supported, as a concurrent policy can't be bounded.
+     * 
+     * @param capacity
+     *            Must be 0
+     * @param protectedActionValue
+     *            Not used
+     */
+    @Override
+    public void setCapacity(final int capacity, final double protectedActionValue) {
+        if (capacity > 0) {
+            throw new RuntimeException("A concurrent policy can't be bounded.");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getStateValue(final State state) {
+        final Lock lock = getLock(state).readLock();
+        lock.lock();
+        try {
+            return super.getStateValue(state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setStateValue(final State state, final double value) {
+        final Lock lock = getLock(state).writeLock();
+        lock.lock();
+        try {
+            super.setStateValue(state, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getActionProbability(final State state, final Action action) {
+        final Lock lock = getLock(state).readLock();
+        lock.lock();
+        try {
+            return super.getActionProbability(state, action);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getActionValue(final State state, final Action action) {
+        final Lock lock = getLock(state).readLock();
+        lock.lock();
+        try {
+            return super.getActionValue(state, action);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setActionProbability(final State state, final Action action, final double probability) {
+        final Lock lock = getLock(state).writeLock();
+        lock.lock();
+        try {
+            super.setActionProbability(state, action, probability);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean setBestActions(final State state, final List<Action> bestActions) {
+        final Lock lock = getLock(state).writeLock();
+        lock.lock();
+        try {
+            return super.setBestActions(state, bestActions);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setActionValue(final State state, final Action action, final double value) {
+        final Lock lock = getLock(state).writeLock();
+        lock.lock();
+        try {
+            super.setActionValue(state, action, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds to the value of an action for the given state in one step, so that updates of several threads aren't lost.
+     * 
+     * @param state
+     *            The state from which the action is performed
+     * @param action
+     *            The action for which to change the value
+     * @param delta
+     *            The amount to add to the action's value
+     * 
+     * @return The new value of the action
+     */
+    public double addActionValue(final State state, final Action action, final double delta) {
+        final Lock lock = getLock(state).writeLock();
+        lock.lock();
+        try {
+            final StatePolicyProperties properties = getProperties(state);
+            final double value = properties.getActionValue(action) + delta;
+            properties.setActionValue(action, value);
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Holds the read lock of each state while copying it, so that the learner only waits for a single state at a time.
+     */
+    @Override
+    void addToSnapshot(final PolicySnapshot.Builder builder, final State relativeState,
+            final StatePolicyProperties properties) {
+        final Lock lock = getLock(relativeState).readLock();
+        lock.lock();
+        try {
+            super.addToSnapshot(builder, relativeState, properties);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Action getActionBasedOnProbability(final State state) {
+        final Lock lock = getLock(state).readLock();
+        lock.lock();
+        try {
+            return super.getActionBasedOnProbability(state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Action> getActionsBasedOnProbability(final State state) {
+        final Lock lock = getLock(state).readLock();
+        lock.lock();
+        try {
+            return super.getActionsBasedOnProbability(state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Action getActionBasedOnValueEpsilonGreedy(final State state, final double epsilon) {
+        final Lock lock = getLock(state).readLock();
+        lock.lock();
+        try {
+            return super.getActionBasedOnValueEpsilonGreedy(state, epsilon);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Action getActionBasedOnValueSoftmax(final State state, final double epsilon, final double temperature) {
+        final Lock lock = getLock(state).readLock();
+        lock.lock();
+        try {
+            return super.getActionBasedOnValueSoftmax(state, epsilon, temperature);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.uva.aa.policies;
+
+/**
+ * Receives the progress of a policy manager while it converges, so that dynamic programming runs can be monitored.
+ */
+public interface ConvergenceListener {
+
+    /**
+     * Called after every sweep over the state space while updating state values.
+     * 
+     * @param sweep
+     *            The number of the sweep within the current state value update, starting at 1
+     * @param maxDelta
+     *            The largest change of a state value during the sweep
+     * @param meanDelta
+     *            The mean change of the state values during the sweep
+     * @param statesChanged
+     *            The amount of states whose value changed during the sweep
+     */
+    void onSweep(int sweep, double maxDelta, double meanDelta, int statesChanged);
+
+    /**
+     * Called after every policy improvement step.
+     * 
+     * @param iteration
+     *            The number of the policy iteration, starting at 1
+     * @param policyChanges
+     *            The amount of states for which the action probabilities changed
+     */
+    void onPolicyImprovement(int iteration, int policyChanges);
+}
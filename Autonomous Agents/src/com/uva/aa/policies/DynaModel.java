@@ -0,0 +1,228 @@
+package com.uva.aa.policies;
+
+import java.util.Arrays;
+
+import com.uva.aa.State;
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.enums.Action;
+
+/**
+ * A compact model of the environment for Dyna planning. It remembers the reward and the resulting state of the latest
+ * observed transition for each state-action pair. Only the pairs that were actually observed are stored, in primitive
+ * arrays that grow with them, and are found through an open-addressing table on the index of the state within a
+ * {@link StateEnumerator}. No states are kept in memory.
+ * 
+ * The model is locked on itself, so transitions can be recorded while another thread samples them. Lock the model
+ * around several getters to read an observation consistently.
+ */
+public class DynaModel {
+
+    /** The amount of actions per state */
+    private static final int ACTION_COUNT = Action.values().length;
+
+    /** The marker for a transition into a terminal state */
+    private static final long TERMINAL = -1;
+
+    /** The amount of observations that fit before the arrays first grow */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /** The enumerator used to index the states */
+    private final StateEnumerator mEnumerator;
+
+    /** The state-action pair per observation: the index of the state times the amount of actions plus the action */
+    private long[] mPairs = new long[INITIAL_CAPACITY];
+
+    /** The index of the resulting state per observation, or TERMINAL */
+    private long[] mNextStates = new long[INITIAL_CAPACITY];
+
+    /** The reward per observation */
+    private double[] mRewards = new double[INITIAL_CAPACITY];
+
+    /** The observation number plus one per slot, or 0 for empty slots; the amount of slots is a power of two */
+    private int[] mSlots = new int[2 * INITIAL_CAPACITY];
+
+    /** The amount of observed state-action pairs */
+    private int mObservedCount = 0;
+
+    /**
+     * Creates an empty model for the states of an enumerator.
+     * 
+     * @param enumerator
+     *            The enumerator used to index the states
+     */
+    public DynaModel(final StateEnumerator enumerator) {
+        mEnumerator = enumerator;
+    }
+
+    /**
+     * Records an observed transition, replacing any earlier transition for the same state-action pair.
+     * 
+     * @param state
+     *            The state before performing the action
+     * @param action
+     *            The action performed in the state
+     * @param reward
+     *            The reward received for the transition
+     * @param nextState
+     *            The state after the transition
+     */
+    public synchronized void record(final State state, final Action action, final double reward,
+            final State nextState) {
+        final long pair = mEnumerator.index(state) * ACTION_COUNT + action.ordinal();
+
+        int observation = findObservation(pair);
+        if (observation < 0) {
+            observation = addObservation(pair);
+        }
+
+        mNextStates[observation] = (nextState.isTerminal() ? TERMINAL : mEnumerator.index(nextState));
+        mRewards[observation] = reward;
+    }
+
+    /**
+     * Retrieves the amount of observed state-action pairs.
+     * 
+     * @return The amount of observed pairs
+     */
+    public synchronized int getObservedCount() {
+        return mObservedCount;
+    }
+
+    /**
+     * Picks a uniformly random observation of a state-action pair.
+     * 
+     * @return The picked observation, to be used with the other getters
+     */
+    public synchronized int getRandomObservation() {
+        if (mObservedCount == 0) {
+            throw new RuntimeException("No transitions have been observed yet.");
+        }
+        return (int) (Math.random() * mObservedCount);
+    }
+
+    /**
+     * Retrieves the state of an observation.
+     * 
+     * @param observation
+     *            The observation
+     * 
+     * @return The state from which the action was performed
+     */
+    public synchronized State getState(final int observation) {
+        return mEnumerator.unindex(mPairs[observation] / ACTION_COUNT);
+    }
+
+    /**
+     * Retrieves the action of an observation.
+     * 
+     * @param observation
+     *            The observation
+     * 
+     * @return The performed action
+     */
+    public synchronized Action getAction(final int observation) {
+        return Action.values()[(int) (mPairs[observation] % ACTION_COUNT)];
+    }
+
+    /**
+     * Retrieves the reward of the latest transition of an observation.
+     * 
+     * @param observation
+     *            The observation
+     * 
+     * @return The received reward
+     */
+    public synchronized double getReward(final int observation) {
+        return mRewards[observation];
+    }
+
+    /**
+     * Retrieves the resulting state of the latest transition of an observation.
+     * 
+     * @param observation
+     *            The observation
+     * 
+     * @return The resulting state, or null if the transition ended the game
+     */
+    public synchronized State getNextState(final int observation) {
+        final long nextState = mNextStates[observation];
+        return (nextState == TERMINAL ? null : mEnumerator.unindex(nextState));
+    }
+
+    /**
+     * Finds the observation of a state-action pair.
+     * 
+     * @param pair
+     *            The state-action pair
+     * 
+     * @return The observation, or -1 if the pair wasn't observed yet
+     */
+    private int findObservation(final long pair) {
+        final int mask = mSlots.length - 1;
+        for (int slot = getSlot(pair, mask);; slot = (slot + 1) & mask) {
+            final int observation = mSlots[slot] - 1;
+            if (observation < 0 || mPairs[observation] == pair) {
+                return observation;
+            }
+        }
+    }
+
+    /**
+     * Adds an observation for a state-action pair that wasn't observed yet, growing the arrays when they're full.
+     * 
+     * @param pair
+     *            The state-action pair
+     * 
+     * @return The new observation
+     */
+    private int addObservation(final long pair) {
+        if (mObservedCount == mPairs.length) {
+            final int capacity = 2 * mPairs.length;
+            mPairs = Arrays.copyOf(mPairs, capacity);
+            mNextStates = Arrays.copyOf(mNextStates, capacity);
+            mRewards = Arrays.copyOf(mRewards, capacity);
+
+            // Keep the table at most half full
+            mSlots = new int[2 * capacity];
+            for (int observation = 0; observation < mObservedCount; ++observation) {
+                insertSlot(mPairs[observation], observation);
+            }
+        }
+
+        final int observation = mObservedCount++;
+        mPairs[observation] = pair;
+        insertSlot(pair, observation);
+        return observation;
+    }
+
+    /**
+     * Puts an observation in the first free slot for its state-action pair.
+     * 
+     * @param pair
+     *            The state-action pair
+     * @param observation
+     *            The observation
+     */
+    private void insertSlot(final long pair, final int observation) {
+        final int mask = mSlots.length - 1;
+        int slot = getSlot(pair, mask);
+        while (mSlots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        mSlots[slot] = observation + 1;
+    }
+
+    /**
+     * Determines the preferred slot of a state-action pair, spreading out the consecutive pairs of a state.
+     * 
+     * @param pair
+     *            The state-action pair
+     * @param mask
+     *            The amount of slots minus one
+     * 
+     * @return The preferred slot
+     */
+    private static int getSlot(final long pair, final int mask) {
+        return (int) ((pair * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
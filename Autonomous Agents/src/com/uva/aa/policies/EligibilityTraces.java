@@ -0,0 +1,168 @@
+package com.uva.aa.policies;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.uva.aa.State;
+import com.uva.aa.enums.Action;
+
+/**
+ * A bounded set of replacing eligibility traces for learning from lambda-returns. Only the traces that are still
+ * active are stored, so updating all traces costs time in the amount of recently visited states rather than in the
+ * size of the state-space.
+ * 
+ * As the traces are replacing, visiting a state clears the traces of its other actions and each state holds at most a
+ * single trace. Traces are dropped once they decay below the minimum eligibility, and the weakest trace is evicted
+ * when a new state is visited while the set is full.
+ */
+public class EligibilityTraces {
+
+    /** The states of the active traces */
+    private final State[] mStates;
+
+    /** The actions of the active traces */
+    private final Action[] mActions;
+
+    /** The eligibility of the active traces */
+    private final double[] mTraces;
+
+    /** The slots of the active traces per state */
+    private final Map<State, Integer> mSlots = new HashMap<State, Integer>();
+
+    /** The eligibility below which a trace is dropped */
+    private final double mMinTrace;
+
+    /** The amount of active traces */
+    private int mSize = 0;
+
+    /**
+     * Creates an empty set of eligibility traces.
+     * 
+     * @param capacity
+     *            The maximum amount of active traces
+     * @param minTrace
+     *            The eligibility below which a trace is dropped
+     */
+    public EligibilityTraces(final int capacity, final double minTrace) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("At least one trace must be kept active.");
+        }
+
+        mStates = new State[capacity];
+        mActions = new Action[capacity];
+        mTraces = new double[capacity];
+        mMinTrace = minTrace;
+    }
+
+    /**
+     * Marks a state-action pair as visited by setting its trace to 1 and clearing the traces of the state's other
+     * actions.
+     * 
+     * @param state
+     *            The visited state
+     * @param action
+     *            The action performed in the state
+     */
+    public void visit(final State state, final Action action) {
+        Integer slot = mSlots.get(state);
+        if (slot == null) {
+            if (mSize == mStates.length) {
+                remove(getWeakestSlot());
+            }
+
+            slot = mSize++;
+            mStates[slot] = state;
+            mSlots.put(state, slot);
+        }
+
+        mActions[slot] = action;
+        mTraces[slot] = 1;
+    }
+
+    /**
+     * Updates the value of every traced action in proportion to its eligibility.
+     * 
+     * @param policy
+     *            The policy holding the action values
+     * @param scaledError
+     *            The temporal-difference error multiplied by the step size
+     */
+    public void update(final Policy policy, final double scaledError) {
+        for (int i = 0; i < mSize; ++i) {
+            final StatePolicyProperties properties = policy.getProperties(mStates[i]);
+            properties.setActionValue(mActions[i], properties.getActionValue(mActions[i]) + scaledError * mTraces[i]);
+        }
+    }
+
+    /**
+     * Decays all traces and drops the ones that are no longer eligible.
+     * 
+     * @param factor
+     *            The factor to multiply every trace with, usually gamma times lambda
+     */
+    public void decay(final double factor) {
+        // Walk backwards so that the traces moved into dropped slots have been decayed already
+        for (int i = mSize - 1; i >= 0; --i) {
+            mTraces[i] *= factor;
+            if (mTraces[i] < mMinTrace) {
+                remove(i);
+            }
+        }
+    }
+
+    /**
+     * Drops all traces, e.g. at the end of an episode or after an exploratory action in Q(lambda).
+     */
+    public void clear() {
+        Arrays.fill(mStates, 0, mSize, null);
+        Arrays.fill(mActions, 0, mSize, null);
+        mSlots.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Retrieves the amount of active traces.
+     * 
+     * @return The amount of active traces
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Finds the slot of the trace with the lowest eligibility.
+     * 
+     * @return The slot of the weakest trace
+     */
+    private int getWeakestSlot() {
+        int weakestSlot = 0;
+        for (int i = 1; i < mSize; ++i) {
+            if (mTraces[i] < mTraces[weakestSlot]) {
+                weakestSlot = i;
+            }
+        }
+        return weakestSlot;
+    }
+
+    /**
+     * Drops a trace by moving the last trace into its slot.
+     * 
+     * @param slot
+     *            The slot of the trace to drop
+     */
+    private void remove(final int slot) {
+        final int last = --mSize;
+        mSlots.remove(mStates[slot]);
+
+        if (slot != last) {
+            mStates[slot] = mStates[last];
+            mActions[slot] = mActions[last];
+            mTraces[slot] = mTraces[last];
+            mSlots.put(mStates[slot], slot);
+        }
+
+        mStates[last] = null;
+        mActions[last] = null;
+    }
+}
@@ -9,6 +9,8 @@ import com.uva.aa.Config;
 import com.uva.aa.State;
 import com.uva.aa.agents.Agent;
 import com.uva.aa.enums.Action;
+import com.uva.aa.enums.InstrumentationEvent;
+import com.uva.aa.metrics.Instrumentation;
 
 public class MinimaxQ {
 
@@ -36,6 +38,8 @@ public class MinimaxQ {
      * Update policy with Minimax-Q
      */
     public void learn(State initialState, State resultingState, Action previousAction, double reward, Policy policy) {
+        final Config config = mOpponent.getConfig();
+
         // Init action value map
         if (!stateGameValues.containsKey(initialState)) {
             stateGameValues.put(initialState, new HashMap<Action, HashMap<Action, Double>>());
@@ -45,7 +49,7 @@ public class MinimaxQ {
         }
 
         // Q(s,a,o) = (1-alpha) * Q(s,a,o) + alpha * (r + gamma * V(s'))
-        double Q = Config.DEFAULT_ACTION_VALUE;
+        double Q = config.getDefaultActionValue();
         if (stateGameValues.get(initialState).get(mOpponent.getLastAction()).containsKey(previousAction)) {
             Q = stateGameValues.get(initialState).get(mOpponent.getLastAction()).get(previousAction);
         }
@@ -54,7 +58,7 @@ public class MinimaxQ {
                 .get(mOpponent.getLastAction())
                 .put(previousAction,
                         (1 - mAlpha) * Q + mAlpha
-                                * (reward + Config.DISCOUNT_FACTOR_GAMMA * policy.getStateValue(resultingState)));
+                                * (reward + config.getDiscountFactorGamma() * policy.getStateValue(resultingState)));
 
         try {
             // With 1 extra parameter for the value of the minimization
@@ -81,7 +85,7 @@ public class MinimaxQ {
                 for (Action a : Action.values()) {
                     // Init action value if not present
                     if (!stateGameValues.get(initialState).get(o).containsKey(a)) {
-                        stateGameValues.get(initialState).get(o).put(a, Config.DEFAULT_ACTION_VALUE);
+                        stateGameValues.get(initialState).get(o).put(a, config.getDefaultActionValue());
                     }
                     minimizationConstraint[a.ordinal() + 1] = -stateGameValues.get(initialState).get(o).get(a);
                 }
@@ -94,7 +98,12 @@ public class MinimaxQ {
             if (mOpponent.getEnvironment().getPreys().isEmpty()) {
                 solver.printLp();
             }
-            solver.solve();
+            final long solveStartTime = (Instrumentation.isEnabled() ? System.nanoTime() : 0);
+            final int solveResult = solver.solve();
+            if (Instrumentation.isEnabled()) {
+                Instrumentation.emit(InstrumentationEvent.LP_SOLVE, System.nanoTime() - solveStartTime, solveResult,
+                        solver.getObjective());
+            }
 
             // Update
             double R = solver.getObjective();
@@ -0,0 +1,669 @@
+package com.uva.aa.policies;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.uva.aa.Environment;
+import com.uva.aa.State;
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.agents.Agent;
+import com.uva.aa.enums.Action;
+
+/**
+ * Stores the properties of states outside of the heap, so that neither the heap usage nor the garbage collection
+ * pauses grow much with the amount of states. Each state has a fixed-size record at the position of its canonical
+ * index within a {@link StateEnumerator}, so that states that are equal share a record just like they share a mapping.
+ * Records are grouped in pages, which are only allocated once one of their states is used. Only a small view of each
+ * used record is kept on the heap, so that retrieving the properties of a state again doesn't allocate.
+ * Pages are either direct memory or regions of a memory-mapped file. With a file, the state-space may be larger than
+ * the memory, as the operating system pages records in and out; sweeping the states in index order then reads and
+ * writes the file sequentially.
+ * 
+ * A record holds whether it's initialised, the state value and a value and probability per action. Actions without a
+ * value or probability are marked with NaN, so that the properties behave like mapped ones. Visit counts aren't
+ * stored, as off-heap states are never evicted.
+ * 
+ * A file starts with a header describing the grid, the agents and the size of the records, which is checked when the
+ * file is opened again so that its records are never read for another setup. Files are written in little-endian order
+ * regardless of the machine, so they can be moved between machines.
+ */
+public class OffHeapPolicyStore {
+
+    /** The amount of actions, each of which has a value and probability per record */
+    private static final int ACTION_COUNT = Action.values().length;
+
+    /** The position of the initialised flag within a record */
+    private static final int INITIALISED_OFFSET = 0;
+
+    /** The position of the state value within a record */
+    private static final int VALUE_OFFSET = 8;
+
+    /** The position of the first action value within a record */
+    private static final int ACTION_VALUES_OFFSET = 16;
+
+    /** The position of the first action probability within a record */
+    private static final int ACTION_PROBABILITIES_OFFSET = ACTION_VALUES_OFFSET + 8 * ACTION_COUNT;
+
+    /** The size in bytes of a record */
+    private static final int RECORD_SIZE = ACTION_PROBABILITIES_OFFSET + 8 * ACTION_COUNT;
+
+    /** The amount of bits of a state index that denote the record within a page of direct memory */
+    private static final int DIRECT_PAGE_BITS = 12;
+
+    /** The amount of bits of a state index that denote the record within a page of a file, keeping mappings few */
+    private static final int MAPPED_PAGE_BITS = 20;
+
+    /** The number that every policy file starts with */
+    private static final int FILE_MAGIC = 0x41415046;
+
+    /** The byte order of policy files */
+    private static final ByteOrder FILE_BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /** The enumerator used to index the states */
+    private final StateEnumerator mEnumerator;
+
+    /** The agents that need to be in a state for it to be indexed */
+    private final Agent[] mAgents;
+
+    /** The amount of bits of a state index that denote the record within its page */
+    private final int mPageBits;
+
+    /** The pages of records, which are null until one of their states is used */
+    private final ByteBuffer[] mPages;
+
+    /** The views of the records per page, which are null until one of their states is used */
+    private final OffHeapProperties[][] mViews;
+
+    /** The file that the pages are mapped from, or null if they're direct memory */
+    private final File mFile;
+
+    /** The channel of the file that the pages are mapped from, or null if they're direct memory */
+    private final FileChannel mChannel;
+
+    /** The size in bytes of the header that precedes the pages in the file */
+    private final int mHeaderSize;
+
+    /** The amount of initialised records, including those that were already in the file */
+    private int mStateCount = 0;
+
+    /** The indices of the initialised records in the order they were found or initialised, up to the state count */
+    private long[] mStoredIndices = new long[256];
+
+    /**
+     * Creates an empty store in direct memory for the states of an enumerator.
+     * 
+     * @param enumerator
+     *            The enumerator used to index the states
+     */
+    public OffHeapPolicyStore(final StateEnumerator enumerator) {
+        this(enumerator, DIRECT_PAGE_BITS, null);
+    }
+
+    /**
+     * Creates a store in a memory-mapped file for the states of an enumerator. The file is created if it doesn't exist
+     * yet. Records in an existing file are kept, so a policy can be continued in a later run with the same agents.
+     * The file should be closed once the policy is no longer used.
+     * 
+     * @param enumerator
+     *            The enumerator used to index the states
+     * @param file
+     *            The file to map the records from
+     */
+    public OffHeapPolicyStore(final StateEnumerator enumerator, final File file) {
+        this(enumerator, MAPPED_PAGE_BITS, file);
+    }
+
+    /**
+     * Creates a store for the states of an enumerator.
+     * 
+     * @param enumerator
+     *            The enumerator used to index the states
+     * @param pageBits
+     *            The amount of bits of a state index that denote the record within its page
+     * @param file
+     *            The file to map the pages from, or null to allocate them in direct memory
+     */
+    private OffHeapPolicyStore(final StateEnumerator enumerator, final int pageBits, final File file) {
+        final long pageCount = (enumerator.getIndexCount() + (1L << pageBits) - 1) >> pageBits;
+        if (pageCount > Integer.MAX_VALUE) {
+            throw new RuntimeException("The state-space is too large to be stored.");
+        }
+
+        mEnumerator = enumerator;
+        mAgents = enumerator.getAgents();
+        mPageBits = pageBits;
+        mPages = new ByteBuffer[(int) pageCount];
+        mViews = new OffHeapProperties[(int) pageCount][];
+        mFile = file;
+
+        // The header holds the grid, the kind of every agent and the record size, and is kept at a multiple of 8 bytes
+        mHeaderSize = (6 * 4 + 4 * mAgents.length + 7) & ~7;
+        if (file == null) {
+            mChannel = null;
+            return;
+        }
+
+        try {
+            mChannel = new RandomAccessFile(file, "rw").getChannel();
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not open the policy file " + file + ".", e);
+        }
+
+        try {
+            prepareFile();
+        } catch (final IOException e) {
+            closeChannel();
+            throw new RuntimeException("Could not prepare the policy file " + file + ".", e);
+        } catch (final RuntimeException e) {
+            closeChannel();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the header to a new file, or checks the header of an existing file and counts the records that are
+     * already initialised in it.
+     * 
+     * @throws IOException
+     *             If the file couldn't be read or written
+     */
+    private void prepareFile() throws IOException {
+        final ByteBuffer header = createHeader();
+        if (mChannel.size() == 0) {
+            while (header.hasRemaining()) {
+                mChannel.write(header, header.position());
+            }
+            return;
+        }
+
+        final ByteBuffer existingHeader = ByteBuffer.allocate(mHeaderSize).order(FILE_BYTE_ORDER);
+        while (existingHeader.hasRemaining()) {
+            if (mChannel.read(existingHeader, existingHeader.position()) < 0) {
+                break;
+            }
+        }
+        existingHeader.flip();
+        if (!existingHeader.equals(header)) {
+            throw new RuntimeException("The policy file " + mFile
+                    + " was made for another grid, other agents or another record size.");
+        }
+
+        // Map the pages that are already in the file to count their initialised records
+        final long pageSize = (1L << mPageBits) * RECORD_SIZE;
+        final long pageCount = Math.min(mPages.length, (mChannel.size() - mHeaderSize + pageSize - 1) / pageSize);
+        for (int pageIndex = 0; pageIndex < pageCount; ++pageIndex) {
+            final ByteBuffer page = allocatePage(pageIndex);
+            mPages[pageIndex] = page;
+            for (int record = 0; record < (1 << mPageBits); ++record) {
+                if (page.getDouble(record * RECORD_SIZE + INITIALISED_OFFSET) != 0) {
+                    addStoredIndex(((long) pageIndex << mPageBits) + record);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the header that the file should start with.
+     * 
+     * @return The header, ready to be written
+     */
+    private ByteBuffer createHeader() {
+        final Environment environment = mEnumerator.getEnvironment();
+        final ByteBuffer header = ByteBuffer.allocate(mHeaderSize).order(FILE_BYTE_ORDER);
+        header.putInt(FILE_MAGIC);
+        header.putInt(RECORD_SIZE);
+        header.putInt(environment.getWidth());
+        header.putInt(environment.getHeight());
+        header.putInt(environment.hasReducedStateSpace() ? 1 : 0);
+        header.putInt(mAgents.length);
+
+        // The class names identify the kinds of agents across runs, unlike the kind identifiers
+        for (final Agent agent : mAgents) {
+            header.putInt(agent.getClass().getName().hashCode());
+        }
+        header.rewind();
+        return header;
+    }
+
+    /**
+     * Closes the channel of the file, ignoring any failure as the store is already failing.
+     */
+    private void closeChannel() {
+        try {
+            mChannel.close();
+        } catch (final IOException e) {
+            // Nothing more can be done
+        }
+    }
+
+    /**
+     * Retrieves the amount of states whose properties are stored.
+     * 
+     * @return The amount of stored states
+     */
+    public int getStateCount() {
+        return mStateCount;
+    }
+
+    /**
+     * Retrieves the enumerator used to index the states.
+     * 
+     * @return The enumerator
+     */
+    public StateEnumerator getEnumerator() {
+        return mEnumerator;
+    }
+
+    /**
+     * Retrieves the amount of bytes of direct memory or of the file allocated for the records.
+     * 
+     * @return The allocated amount of bytes
+     */
+    public long getAllocatedBytes() {
+        long allocatedBytes = 0;
+        for (final ByteBuffer page : mPages) {
+            if (page != null) {
+                allocatedBytes += page.capacity();
+            }
+        }
+        return allocatedBytes;
+    }
+
+    /**
+     * Writes the changes to the mapped pages back to the file. Does nothing for direct memory.
+     */
+    public void flush() {
+        for (final ByteBuffer page : mPages) {
+            if (page instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) page).force();
+            }
+        }
+    }
+
+    /**
+     * Writes the changes back to the file and closes it. The pages that are already mapped stay usable, but no new
+     * pages can be mapped afterwards. Does nothing for direct memory.
+     */
+    public void close() {
+        if (mChannel == null) {
+            return;
+        }
+
+        flush();
+        try {
+            mChannel.close();
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not close the policy file " + mFile + ".", e);
+        }
+    }
+
+    /**
+     * Retrieves the states whose properties are stored, in the order they were stored. The indices of the initialised
+     * records are kept, so this takes time in the amount of stored states rather than in the size of the state-space.
+     * Every record yields a single state, even though equal states share it.
+     * 
+     * @return The stored states
+     */
+    public List<State> getStoredStates() {
+        final List<State> states = new ArrayList<State>(mStateCount);
+        for (int i = 0; i < mStateCount; ++i) {
+            states.add(mEnumerator.unindex(mStoredIndices[i]));
+        }
+        return states;
+    }
+
+    /**
+     * Checks if the properties of a state are stored.
+     * 
+     * @param state
+     *            The state to check
+     * 
+     * @return True if it's stored, false otherwise
+     */
+    public boolean contains(final State state) {
+        final long index = getIndex(state);
+        if (index < 0) {
+            return false;
+        }
+
+        final ByteBuffer page = mPages[(int) (index >> mPageBits)];
+        return (page != null && page.getDouble(getOffset(index) + INITIALISED_OFFSET) != 0);
+    }
+
+    /**
+     * Retrieves the stored properties of a state. The first time a state is used, its record is filled with the
+     * default properties and then passed to the initialiser, if any.
+     * 
+     * @param state
+     *            The state to retrieve the properties for
+     * @param defaultProperties
+     *            The properties that new states start with
+     * @param initialiser
+     *            The initialiser for new states or null to only use the defaults
+     * 
+     * @return The properties of the state, or null if the state can't be indexed as not all agents are in it
+     */
+    public StatePolicyProperties getProperties(final State state, final StatePolicyProperties defaultProperties,
+            final StatePolicyInitialiser initialiser) {
+        final long index = getIndex(state);
+        if (index < 0) {
+            return null;
+        }
+
+        final int pageIndex = (int) (index >> mPageBits);
+        ByteBuffer page = mPages[pageIndex];
+        if (page == null) {
+            page = allocatePage(pageIndex);
+            mPages[pageIndex] = page;
+        }
+        if (mViews[pageIndex] == null) {
+            mViews[pageIndex] = new OffHeapProperties[1 << mPageBits];
+        }
+
+        // Reuse the view of the record if it was retrieved before
+        final int record = (int) (index & ((1 << mPageBits) - 1));
+        OffHeapProperties properties = mViews[pageIndex][record];
+        if (properties == null) {
+            properties = new OffHeapProperties(page, record * RECORD_SIZE);
+            mViews[pageIndex][record] = properties;
+        }
+
+        if (page.getDouble(properties.mOffset + INITIALISED_OFFSET) == 0) {
+            properties.initialise(defaultProperties);
+            if (initialiser != null) {
+                initialiser.initialise(state, properties);
+            }
+            addStoredIndex(index);
+        }
+        return properties;
+    }
+
+    /**
+     * Keeps track of a newly initialised record, growing the array of indices when it's full.
+     * 
+     * @param index
+     *            The index of the record's state
+     */
+    private void addStoredIndex(final long index) {
+        if (mStateCount == mStoredIndices.length) {
+            mStoredIndices = Arrays.copyOf(mStoredIndices, 2 * mStateCount);
+        }
+        mStoredIndices[mStateCount++] = index;
+    }
+
+    /**
+     * Allocates a page in direct memory or maps it from the file behind the header. New pages are filled with zeros,
+     * which marks their records as uninitialised.
+     * 
+     * @param pageIndex
+     *            The index of the page
+     * 
+     * @return The page
+     */
+    private ByteBuffer allocatePage(final int pageIndex) {
+        final int pageSize = (1 << mPageBits) * RECORD_SIZE;
+        if (mChannel == null) {
+            return ByteBuffer.allocateDirect(pageSize).order(ByteOrder.nativeOrder());
+        }
+
+        try {
+            return mChannel.map(FileChannel.MapMode.READ_WRITE, mHeaderSize + (long) pageIndex * pageSize, pageSize)
+                    .order(FILE_BYTE_ORDER);
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not map page " + pageIndex + " of the policy file.", e);
+        }
+    }
+
+    /**
+     * Determines the canonical index of a state within the enumerator.
+     * 
+     * @param state
+     *            The state to index
+     * 
+     * @return The index of the state, or -1 if not all agents are in the state
+     */
+    private long getIndex(final State state) {
+        for (final Agent agent : mAgents) {
+            if (state.getAgentLocation(agent) == null) {
+                return -1;
+            }
+        }
+        return mEnumerator.canonicalIndex(state);
+    }
+
+    /**
+     * Determines the position of a record within its page.
+     * 
+     * @param index
+     *            The index of the record's state
+     * 
+     * @return The position of the record
+     */
+    private int getOffset(final long index) {
+        return (int) (index & ((1 << mPageBits) - 1)) * RECORD_SIZE;
+    }
+
+    /**
+     * Properties of a single state that read and write its record instead of keeping their own.
+     */
+    private static class OffHeapProperties extends StatePolicyProperties {
+
+        /** The page holding the record */
+        private final ByteBuffer mPage;
+
+        /** The position of the record within the page */
+        private final int mOffset;
+
+        /** The sampler of the action probabilities in the record, or null until it's needed after they changed */
+        private volatile AliasSampler mSampler = null;
+
+        /**
+         * Creates the properties for a record.
+         * 
+         * @param page
+         *            The page holding the record
+         * @param offset
+         *            The position of the record within the page
+         */
+        public OffHeapProperties(final ByteBuffer page, final int offset) {
+            mPage = page;
+            mOffset = offset;
+        }
+
+        /**
+         * Fills the record with the default properties and marks it as initialised.
+         * 
+         * @param defaultProperties
+         *            The properties to copy
+         */
+        private void initialise(final StatePolicyProperties defaultProperties) {
+            mPage.putDouble(mOffset + INITIALISED_OFFSET, 1);
+            mSampler = null;
+            setValue(defaultProperties.getValue());
+            clearActionValues();
+            clearActionProbabilities();
+            for (final Map.Entry<Action, Double> actionValue : defaultProperties.getActionValues().entrySet()) {
+                setActionValue(actionValue.getKey(), actionValue.getValue());
+            }
+            for (final Map.Entry<Action, Double> actionProbability : defaultProperties.getActionProbabilities()
+                    .entrySet()) {
+                setActionProbability(actionProbability.getKey(), actionProbability.getValue());
+            }
+        }
+
+        /**
+         * Reads the present entries from a column of the record.
+         * 
+         * @param columnOffset
+         *            The position of the column within the record
+         * 
+         * @return A snapshot mapping of the actions with an entry
+         */
+        private Map<Action, Double> readColumn(final int columnOffset) {
+            final Map<Action, Double> column = new EnumMap<Action, Double>(Action.class);
+            for (final Action action : Action.values()) {
+                final double entry = mPage.getDouble(mOffset + columnOffset + 8 * action.ordinal());
+                if (!Double.isNaN(entry)) {
+                    column.put(action, entry);
+                }
+            }
+            return column;
+        }
+
+        /**
+         * Marks all entries of a column of the record as absent.
+         * 
+         * @param columnOffset
+         *            The position of the column within the record
+         */
+        private void clearColumn(final int columnOffset) {
+            for (int i = 0; i < ACTION_COUNT; ++i) {
+                mPage.putDouble(mOffset + columnOffset + 8 * i, Double.NaN);
+            }
+        }
+
+        /**
+         * Reads an entry from a column of the record.
+         * 
+         * @param columnOffset
+         *            The position of the column within the record
+         * @param action
+         *            The action of the entry
+         * 
+         * @return The entry or 0 if it's absent
+         */
+        private double readEntry(final int columnOffset, final Action action) {
+            final double entry = mPage.getDouble(mOffset + columnOffset + 8 * action.ordinal());
+            return (Double.isNaN(entry) ? 0.0 : entry);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getValue() {
+            return mPage.getDouble(mOffset + VALUE_OFFSET);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setValue(final double value) {
+            mPage.putDouble(mOffset + VALUE_OFFSET, value);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * The mapping is a snapshot of the record.
+         */
+        @Override
+        public Map<Action, Double> getActionProbabilities() {
+            return readColumn(ACTION_PROBABILITIES_OFFSET);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * The mapping is a snapshot of the record.
+         */
+        @Override
+        public Map<Action, Double> getActionValues() {
+            return readColumn(ACTION_VALUES_OFFSET);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getActionProbability(final Action action) {
+            return readEntry(ACTION_PROBABILITIES_OFFSET, action);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getActionValue(final Action action) {
+            return readEntry(ACTION_VALUES_OFFSET, action);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setActionProbability(final Action action, final double probability) {
+            mPage.putDouble(mOffset + ACTION_PROBABILITIES_OFFSET + 8 * action.ordinal(), probability);
+            mSampler = null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setActionValue(final Action action, final double value) {
+            mPage.putDouble(mOffset + ACTION_VALUES_OFFSET + 8 * action.ordinal(), value);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clearActionProbabilities() {
+            clearColumn(ACTION_PROBABILITIES_OFFSET);
+            mSampler = null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void clearActionValues() {
+            clearColumn(ACTION_VALUES_OFFSET);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * The sampler is kept by the view, which is the only one of its record.
+         */
+        @Override
+        public Action sampleAction() {
+            AliasSampler sampler = mSampler;
+            if (sampler == null) {
+                sampler = createSampler();
+                mSampler = sampler;
+            }
+            return (sampler != null ? sampler.sample() : null);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * The clone is kept on the heap.
+         */
+        @Override
+        public StatePolicyProperties clone() {
+            final StatePolicyProperties clone = new StatePolicyProperties();
+            clone.setValue(getValue());
+            for (final Map.Entry<Action, Double> actionValue : getActionValues().entrySet()) {
+                clone.setActionValue(actionValue.getKey(), actionValue.getValue());
+            }
+            for (final Map.Entry<Action, Double> actionProbability : getActionProbabilities().entrySet()) {
+                clone.setActionProbability(actionProbability.getKey(), actionProbability.getValue());
+            }
+            return clone;
+        }
+    }
+}
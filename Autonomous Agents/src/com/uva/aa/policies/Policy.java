@@ -1,5 +1,6 @@
 package com.uva.aa.policies;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -8,6 +9,8 @@ import java.util.Map;
 import com.uva.aa.State;
 import com.uva.aa.agents.Agent;
 import com.uva.aa.enums.Action;
+import com.uva.aa.enums.InstrumentationEvent;
+import com.uva.aa.metrics.Instrumentation;
 
 /**
  * Holds the values and actions with probabilities for all states within a policy.
@@ -15,7 +18,7 @@ import com.uva.aa.enums.Action;
 public class Policy {
 
     /** The map holding the values actions with probabilities for their state */
-    private Map<State, StatePolicyProperties> mStateMap = new HashMap<State, StatePolicyProperties>();
+    private final Map<State, StatePolicyProperties> mStateMap;
 
     /** The default properties that will be set when an unknown state is required */
     final private StatePolicyProperties mDefaultProperties = new StatePolicyProperties();
@@ -23,6 +26,53 @@ public class Policy {
     /** The agent from whose perspective the state is considered */
     private Agent mTargetAgent = null;
 
+    /** The initialiser for the properties of states that aren't mapped yet, or null to only use the defaults */
+    private StatePolicyInitialiser mInitialiser = null;
+
+    /** The approximation of the action values, or null to map the properties of each state */
+    private TileCodedActionValues mApproximator = null;
+
+    /** The off-heap store for the properties of states with all agents, or null to map the properties of each state */
+    private OffHeapPolicyStore mOffHeapStore = null;
+
+    /** The maximum amount of mapped states, or 0 if the amount is unbounded */
+    private int mCapacity = 0;
+
+    /** The highest action value from which a state is never evicted */
+    private double mProtectedActionValue = Double.POSITIVE_INFINITY;
+
+    /** The mapped states in the order that the clock hand passes them when looking for a state to evict */
+    private List<State> mClockStates = new ArrayList<State>();
+
+    /** The position of the clock hand within the mapped states */
+    private int mClockHand = 0;
+
+    /** The amount of retrieved properties of states that were mapped */
+    private long mHits = 0;
+
+    /** The amount of retrieved properties of states that weren't mapped yet */
+    private long mMisses = 0;
+
+    /** The amount of states that were evicted to stay within the capacity */
+    private long mEvictions = 0;
+
+    /**
+     * Creates an empty policy.
+     */
+    public Policy() {
+        this(new HashMap<State, StatePolicyProperties>());
+    }
+
+    /**
+     * Creates an empty policy that maps the properties of its states in the given map.
+     * 
+     * @param stateMap
+     *            The empty map to map the states in
+     */
+    protected Policy(final Map<State, StatePolicyProperties> stateMap) {
+        mStateMap = stateMap;
+    }
+
     /**
      * Returns the mapped values and actions with probabilities for their state.
      * 
@@ -42,9 +92,115 @@ public class Policy {
         mTargetAgent = agent;
     }
 
+    /**
+     * Sets the initialiser that fills in the properties of a state when it's first needed.
+     * 
+     * @param initialiser
+     *            The initialiser or null to only use the default properties
+     */
+    public void setInitialiser(final StatePolicyInitialiser initialiser) {
+        mInitialiser = initialiser;
+    }
+
+    /**
+     * Sets the approximation to read and write all action values with instead of mapping the properties of each state.
+     * States are no longer mapped while an approximation is set, so only the action values of the properties are kept.
+     * 
+     * @param approximator
+     *            The approximation of the action values or null to map the properties of each state
+     */
+    public void setApproximator(final TileCodedActionValues approximator) {
+        mApproximator = approximator;
+    }
+
+    /**
+     * Sets the off-heap store to keep the properties of states in which all agents are present, so that the heap usage
+     * doesn't grow with the amount of such states. Other states, such as terminal ones, are still mapped.
+     * 
+     * @param offHeapStore
+     *            The off-heap store or null to map the properties of each state
+     */
+    public void setOffHeapStore(final OffHeapPolicyStore offHeapStore) {
+        mOffHeapStore = offHeapStore;
+    }
+
+    /**
+     * Retrieves the off-heap store that keeps the properties of states in which all agents are present.
+     * 
+     * @return The off-heap store or null if the properties of each state are mapped
+     */
+    public OffHeapPolicyStore getOffHeapStore() {
+        return mOffHeapStore;
+    }
+
+    /**
+     * Retrieves the amount of states with properties in this policy, whether mapped or stored off-heap.
+     * 
+     * @return The amount of states
+     */
+    public int getStateCount() {
+        return mStateMap.size() + (mOffHeapStore != null ? mOffHeapStore.getStateCount() : 0);
+    }
+
+    /**
+     * Bounds the amount of mapped states. Once the capacity is reached, mapping a new state evicts one that hasn't been
+     * visited recently, found by a clock hand that halves the visit counts of the states it passes. States whose
+     * highest action value is at least the protected value are never evicted, and neither are pinned states, so the
+     * policy can grow beyond its capacity if only protected or pinned states are mapped.
+     * 
+     * @param capacity
+     *            The maximum amount of mapped states or 0 to leave it unbounded
+     * @param protectedActionValue
+     *            The highest action value from which a state is never evicted
+     */
+    public void setCapacity(final int capacity, final double protectedActionValue) {
+        mCapacity = capacity;
+        mProtectedActionValue = protectedActionValue;
+        mClockStates = new ArrayList<State>(mStateMap.keySet());
+        mClockHand = 0;
+    }
+
+    /**
+     * Retrieves the maximum amount of mapped states.
+     * 
+     * @return The capacity or 0 if the amount is unbounded
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Retrieves the amount of retrieved properties of states that were mapped.
+     * 
+     * @return The amount of hits
+     */
+    public long getHits() {
+        return mHits;
+    }
+
+    /**
+     * Retrieves the amount of retrieved properties of states that weren't mapped yet.
+     * 
+     * @return The amount of misses
+     */
+    public long getMisses() {
+        return mMisses;
+    }
+
+    /**
+     * Retrieves the amount of states that were evicted to stay within the capacity.
+     * 
+     * @return The amount of evictions
+     */
+    public long getEvictions() {
+        return mEvictions;
+    }
+
     /**
      * Retrieves the properties for a certain state. Creates a new mapping to default properties if the state wasn't
-     * mapped yet.
+     * mapped yet, which are then initialised by the initialiser if there is one. With an approximation, the properties
+     * are provided by the approximation instead, and with an off-heap store they're read from and written to its
+     * records.
      * 
      * @param state
      *            The state for which to get the properties
@@ -52,18 +208,174 @@ public class Policy {
      * @return The state's properties
      */
     public StatePolicyProperties getProperties(final State state) {
-        final State relativeState = (mTargetAgent != null ? state.getStateWithRespectToAgent(mTargetAgent) : state);
+        if (mApproximator != null) {
+            return mApproximator.getProperties(state);
+        }
+
+        final State relativeState = getRelativeState(state);
+        if (mOffHeapStore != null) {
+            final StatePolicyProperties properties = mOffHeapStore.getProperties(relativeState, mDefaultProperties,
+                    mInitialiser);
+            if (properties != null) {
+                return properties;
+            }
+        }
+
         StatePolicyProperties properties = mStateMap.get(relativeState);
 
         // Prepare the state if it wasn't mapped yet
         if (properties == null) {
-            properties = mDefaultProperties.clone();
+            ++mMisses;
+            properties = createProperties(relativeState);
+            if (mCapacity > 0) {
+                addClockState(relativeState);
+            }
             mStateMap.put(relativeState, properties);
+
+            if (Instrumentation.isEnabled()) {
+                Instrumentation.emit(InstrumentationEvent.POLICY_GROWTH, 0, mStateMap.size(), 0);
+            }
+
+        } else {
+            ++mHits;
+            if (mCapacity > 0) {
+                properties.setVisitCount(properties.getVisitCount() + 1);
+            }
         }
 
         return properties;
     }
 
+    /**
+     * Pins a state so that a bounded policy doesn't evict it while an agent still holds on to it, for instance to
+     * update its action values after the next step. Maps the state if it wasn't mapped yet. Every pin should be
+     * released through {@link #unpinState(State)}.
+     * 
+     * @param state
+     *            The state to pin
+     */
+    public void pinState(final State state) {
+        if (mCapacity == 0 || mApproximator != null) {
+            return;
+        }
+
+        final StatePolicyProperties properties = getProperties(state);
+        properties.setPinCount(properties.getPinCount() + 1);
+    }
+
+    /**
+     * Releases a pin of a state, after which a bounded policy may evict it again once it holds no more pins.
+     * 
+     * @param state
+     *            The state to unpin
+     */
+    public void unpinState(final State state) {
+        if (mCapacity == 0) {
+            return;
+        }
+
+        final StatePolicyProperties properties = mStateMap.get(getRelativeState(state));
+        if (properties != null && properties.getPinCount() > 0) {
+            properties.setPinCount(properties.getPinCount() - 1);
+        }
+    }
+
+    /**
+     * Determines the state from the perspective of the target agent, which is how states are mapped.
+     * 
+     * @param state
+     *            The state to consider
+     * 
+     * @return The state with respect to the target agent, or the state itself if there is none
+     */
+    protected State getRelativeState(final State state) {
+        return (mTargetAgent != null ? state.getStateWithRespectToAgent(mTargetAgent) : state);
+    }
+
+    /**
+     * Creates the properties of a state that isn't mapped yet: a copy of the default properties, initialised by the
+     * initialiser if there is one.
+     * 
+     * @param relativeState
+     *            The state with respect to the target agent
+     * 
+     * @return The new properties, which aren't mapped yet
+     */
+    protected StatePolicyProperties createProperties(final State relativeState) {
+        final StatePolicyProperties properties = mDefaultProperties.clone();
+        if (mInitialiser != null) {
+            mInitialiser.initialise(relativeState, properties);
+        }
+        return properties;
+    }
+
+    /**
+     * Adds a newly mapped state to the clock, taking the place of an evicted state if the capacity is reached.
+     * 
+     * @param state
+     *            The state that's about to be mapped
+     */
+    private void addClockState(final State state) {
+        final int victim = (mStateMap.size() >= mCapacity ? findEvictableClockState() : -1);
+        if (victim < 0) {
+            mClockStates.add(state);
+            return;
+        }
+
+        mStateMap.remove(mClockStates.get(victim));
+        mClockStates.set(victim, state);
+        ++mEvictions;
+    }
+
+    /**
+     * Moves the clock hand until it finds a state that isn't protected or pinned and hasn't been visited since the
+     * hand last passed it. Halves the visit counts of the other states that it passes.
+     * 
+     * @return The position of the state to evict or -1 if all states are protected or pinned
+     */
+    private int findEvictableClockState() {
+        final int size = mClockStates.size();
+        boolean foundEvictable = false;
+
+        for (int step = 0;; ++step) {
+            if (step == size && !foundEvictable) {
+                return -1;
+            }
+
+            final int position = mClockHand;
+            mClockHand = (mClockHand + 1) % size;
+
+            final StatePolicyProperties properties = mStateMap.get(mClockStates.get(position));
+            if (properties.getPinCount() > 0 || isProtected(properties)) {
+                continue;
+            }
+            foundEvictable = true;
+
+            final int visitCount = properties.getVisitCount();
+            if (visitCount == 0) {
+                return position;
+            }
+            properties.setVisitCount(visitCount / 2);
+        }
+    }
+
+    /**
+     * Checks whether the properties of a state have an action value high enough to never be evicted.
+     * 
+     * @param properties
+     *            The properties of the state
+     * 
+     * @return True if the state is protected, false otherwise
+     */
+    private boolean isProtected(final StatePolicyProperties properties) {
+        for (final double actionValue : properties.getActionValues().values()) {
+            if (actionValue >= mProtectedActionValue) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Checks if the state is mapped in this policy.
      * 
@@ -73,8 +385,9 @@ public class Policy {
      * @return True if it's mapped, false otherwise
      */
     public boolean containsState(final State state) {
-        final State relativeState = (mTargetAgent != null ? state.getStateWithRespectToAgent(mTargetAgent) : state);
-        return mStateMap.containsKey(relativeState);
+        final State relativeState = getRelativeState(state);
+        return mStateMap.containsKey(relativeState)
+                || (mOffHeapStore != null && mOffHeapStore.contains(relativeState));
     }
 
     /**
@@ -136,6 +449,9 @@ public class Policy {
      * @return The value of the action or a default value if not set
      */
     public double getActionValue(final State state, final Action action) {
+        if (mApproximator != null) {
+            return mApproximator.getActionValue(state, action);
+        }
         return getProperties(state).getActionValue(action);
     }
 
@@ -153,6 +469,30 @@ public class Policy {
         getProperties(state).setActionProbability(action, probability);
     }
 
+    /**
+     * Replaces the action probabilities of a state by an equal probability for each of the given actions.
+     * 
+     * @param state
+     *            The state from which the actions are performed
+     * @param bestActions
+     *            The actions to choose between, at least one
+     * 
+     * @return True if the action probabilities changed, false if they remained the same
+     */
+    public boolean setBestActions(final State state, final List<Action> bestActions) {
+        final StatePolicyProperties properties = getProperties(state);
+        final Map<Action, Double> previousActionProbabilities = new HashMap<Action, Double>(
+                properties.getActionProbabilities());
+
+        properties.clearActionProbabilities();
+        final double bestActionProbability = 1.0 / bestActions.size();
+        for (final Action bestAction : bestActions) {
+            properties.setActionProbability(bestAction, bestActionProbability);
+        }
+
+        return !properties.getActionProbabilities().equals(previousActionProbabilities);
+    }
+
     /**
      * Sets the value of an action for the given state.
      * 
@@ -164,11 +504,16 @@ public class Policy {
      *            The value of the action
      */
     public void setActionValue(final State state, final Action action, final double value) {
+        if (mApproximator != null) {
+            mApproximator.setActionValue(state, action, value);
+            return;
+        }
         getProperties(state).setActionValue(action, value);
     }
 
     /**
-     * Returns a random action based on the probability within the given state.
+     * Returns a random action based on the probability within the given state. The probabilities are normalised by
+     * their sum, so rounding errors can't prevent choosing an action.
      * 
      * @param state
      *            The state to choose an action for
@@ -176,19 +521,14 @@ public class Policy {
      * @return A random action or null if no actions are available
      */
     public Action getActionBasedOnProbability(final State state) {
-        final double decision = Math.random();
-        double decisionCount = 0;
+        final StatePolicyProperties properties = getProperties(state);
+        final Action action = properties.sampleAction();
 
-        for (final Map.Entry<Action, Double> actionProb : getProperties(state).getActionProbabilities().entrySet()) {
-            decisionCount += actionProb.getValue();
-            if (decisionCount >= decision) {
-                return actionProb.getKey();
-            }
+        if (action == null) {
+            System.err.println("Error: cannot choose action!");
+            System.err.println(properties.getActionProbabilities());
         }
-
-        System.err.println("Error: cannot choose action!");
-        System.err.println(getProperties(state).getActionProbabilities());
-        return null;
+        return action;
     }
 
     /**
@@ -348,6 +688,45 @@ public class Policy {
     	}
     }
 
+    /**
+     * Takes a read-only copy of the properties of all states in this policy, whether mapped or stored off-heap, that
+     * won't change when this policy does. Approximated policies can't be copied.
+     * 
+     * @return The snapshot of this policy
+     */
+    public PolicySnapshot snapshot() {
+        if (mApproximator != null) {
+            throw new RuntimeException("An approximated policy can't be snapshotted.");
+        }
+
+        final PolicySnapshot.Builder builder = new PolicySnapshot.Builder(mTargetAgent, mDefaultProperties,
+                mInitialiser, getStateCount());
+        for (final Map.Entry<State, StatePolicyProperties> mapping : mStateMap.entrySet()) {
+            addToSnapshot(builder, mapping.getKey(), mapping.getValue());
+        }
+        if (mOffHeapStore != null) {
+            for (final State state : mOffHeapStore.getStoredStates()) {
+                addToSnapshot(builder, getRelativeState(state), getProperties(state));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Copies the properties of a state into a snapshot.
+     * 
+     * @param builder
+     *            The builder of the snapshot
+     * @param relativeState
+     *            The state with respect to the target agent
+     * @param properties
+     *            The properties of the state
+     */
+    void addToSnapshot(final PolicySnapshot.Builder builder, final State relativeState,
+            final StatePolicyProperties properties) {
+        builder.add(relativeState, properties);
+    }
+
     /**
      * Prints out the full mapped contents.
      */
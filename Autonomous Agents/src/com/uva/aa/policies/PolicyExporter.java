@@ -0,0 +1,275 @@
+package com.uva.aa.policies;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+import com.uva.aa.Location;
+import com.uva.aa.State;
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.agents.Agent;
+import com.uva.aa.enums.Action;
+
+/**
+ * Streams the states of a policy to a file, in the order of their index within a {@link StateEnumerator}. For every
+ * non-terminal state that the policy holds, the state value, the greedy action and the action probabilities are
+ * written. States are enumerated one at a time and written through a single reused buffer, so even policies with
+ * millions of states are exported without collecting them first.
+ * 
+ * The greedy action is the action with the highest value, or with the highest probability if the state has no action
+ * values, as for policies of dynamic programming.
+ * 
+ * The binary format starts with an int with the amount of actions n, followed by a record per state in big-endian
+ * byte order: a long with the state index, a double with the state value, a byte with the ordinal of the greedy
+ * action or -1 if there is none, and n floats with the probabilities of the actions in order of their ordinal.
+ * 
+ * The CSV format has a header row, followed by a row per state with the index, the locations of the agents, the state
+ * value, the greedy action and the action probabilities.
+ */
+public class PolicyExporter {
+
+    /** The size of the buffer that the output is assembled in */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The room that's kept free in the buffer for a single state */
+    private static final int MAX_STATE_SIZE = 1024;
+
+    /** The policy to export */
+    private final Policy mPolicy;
+
+    /** The enumerator used to index the states */
+    private final StateEnumerator mEnumerator;
+
+    /** The buffer that the output is assembled in before being written */
+    private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /** The builder that CSV numbers are formatted in */
+    private final StringBuilder mNumberBuilder = new StringBuilder();
+
+    /** The channel to the file that's being exported to */
+    private FileChannel mChannel;
+
+    /**
+     * Creates an exporter for the states of a policy.
+     * 
+     * @param policy
+     *            The policy to export
+     * @param enumerator
+     *            The enumerator of the states that the policy can hold
+     */
+    public PolicyExporter(final Policy policy, final StateEnumerator enumerator) {
+        mPolicy = policy;
+        mEnumerator = enumerator;
+    }
+
+    /**
+     * Exports the policy in the binary format.
+     * 
+     * @param file
+     *            The file to write to, will be overwritten
+     * 
+     * @return The amount of exported states
+     * 
+     * @throws IOException
+     *             Thrown when the file could not be written
+     */
+    public int exportBinary(final File file) throws IOException {
+        return export(file, false);
+    }
+
+    /**
+     * Exports the policy in the CSV format.
+     * 
+     * @param file
+     *            The file to write to, will be overwritten
+     * 
+     * @return The amount of exported states
+     * 
+     * @throws IOException
+     *             Thrown when the file could not be written
+     */
+    public int exportCsv(final File file) throws IOException {
+        return export(file, true);
+    }
+
+    /**
+     * Streams the states that the policy holds to a file.
+     * 
+     * @param file
+     *            The file to write to, will be overwritten
+     * @param csv
+     *            True to write CSV, false to write the binary format
+     * 
+     * @return The amount of exported states
+     * 
+     * @throws IOException
+     *             Thrown when the file could not be written
+     */
+    private int export(final File file, final boolean csv) throws IOException {
+        final Action[] actions = Action.values();
+        final Agent[] agents = mEnumerator.getAgents();
+
+        mChannel = new FileOutputStream(file).getChannel();
+        try {
+            mBuffer.clear();
+            if (csv) {
+                putHeader(agents.length, actions);
+            } else {
+                mBuffer.putInt(actions.length);
+            }
+
+            int exportedStates = 0;
+            for (final State state : mEnumerator) {
+                // Only states that the policy holds are exported, so that none are added while exporting
+                if (!mPolicy.containsState(state)) {
+                    continue;
+                }
+
+                final StatePolicyProperties properties = mPolicy.getProperties(state);
+                final long index = mEnumerator.index(state);
+                final Action greedyAction = getGreedyAction(properties);
+
+                if (csv) {
+                    putNumber(index);
+                    for (final Agent agent : agents) {
+                        final Location location = state.getAgentLocation(agent);
+                        mBuffer.put((byte) ',');
+                        putNumber(location.getX());
+                        mBuffer.put((byte) ',');
+                        putNumber(location.getY());
+                    }
+                    mBuffer.put((byte) ',');
+                    putNumber(properties.getValue());
+                    mBuffer.put((byte) ',');
+                    if (greedyAction != null) {
+                        putText(greedyAction.name());
+                    }
+                    for (final Action action : actions) {
+                        mBuffer.put((byte) ',');
+                        putNumber(properties.getActionProbability(action));
+                    }
+                    mBuffer.put((byte) '\n');
+
+                } else {
+                    mBuffer.putLong(index);
+                    mBuffer.putDouble(properties.getValue());
+                    mBuffer.put((byte) (greedyAction != null ? greedyAction.ordinal() : -1));
+                    for (final Action action : actions) {
+                        mBuffer.putFloat((float) properties.getActionProbability(action));
+                    }
+                }
+
+                ++exportedStates;
+                if (mBuffer.remaining() < MAX_STATE_SIZE) {
+                    flushBuffer();
+                }
+            }
+
+            flushBuffer();
+            return exportedStates;
+
+        } finally {
+            mChannel.close();
+            mChannel = null;
+        }
+    }
+
+    /**
+     * Determines the greedy action of a state: the action with the highest value, or with the highest probability if
+     * there are no action values.
+     * 
+     * @param properties
+     *            The properties of the state
+     * 
+     * @return The greedy action, or null if there are neither action values nor probabilities
+     */
+    private static Action getGreedyAction(final StatePolicyProperties properties) {
+        Map<Action, Double> candidates = properties.getActionValues();
+        if (candidates.isEmpty()) {
+            candidates = properties.getActionProbabilities();
+        }
+
+        Action greedyAction = null;
+        double bestCandidate = Double.NEGATIVE_INFINITY;
+        for (final Map.Entry<Action, Double> candidate : candidates.entrySet()) {
+            if (candidate.getValue() > bestCandidate) {
+                bestCandidate = candidate.getValue();
+                greedyAction = candidate.getKey();
+            }
+        }
+        return greedyAction;
+    }
+
+    /**
+     * Puts the CSV header row in the buffer.
+     * 
+     * @param agentCount
+     *            The amount of agents in each state
+     * @param actions
+     *            The actions to name the probability columns after
+     */
+    private void putHeader(final int agentCount, final Action[] actions) {
+        putText("index");
+        for (int i = 0; i < agentCount; ++i) {
+            putText(",agent" + i + "_x,agent" + i + "_y");
+        }
+        putText(",value,greedy_action");
+        for (final Action action : actions) {
+            putText(",p_" + action.name());
+        }
+        mBuffer.put((byte) '\n');
+    }
+
+    /**
+     * Puts ASCII text in the buffer.
+     * 
+     * @param text
+     *            The text to put
+     */
+    private void putText(final CharSequence text) {
+        for (int i = 0; i < text.length(); ++i) {
+            mBuffer.put((byte) text.charAt(i));
+        }
+    }
+
+    /**
+     * Puts a whole number in the buffer as text.
+     * 
+     * @param number
+     *            The number to put
+     */
+    private void putNumber(final long number) {
+        mNumberBuilder.setLength(0);
+        mNumberBuilder.append(number);
+        putText(mNumberBuilder);
+    }
+
+    /**
+     * Puts a number in the buffer as text, in the shortest form that reads back to the same value.
+     * 
+     * @param number
+     *            The number to put
+     */
+    private void putNumber(final double number) {
+        mNumberBuilder.setLength(0);
+        mNumberBuilder.append(number);
+        putText(mNumberBuilder);
+    }
+
+    /**
+     * Writes the contents of the buffer to the file and empties it.
+     * 
+     * @throws IOException
+     *             Thrown when the file could not be written
+     */
+    private void flushBuffer() throws IOException {
+        mBuffer.flip();
+        while (mBuffer.hasRemaining()) {
+            mChannel.write(mBuffer);
+        }
+        mBuffer.clear();
+    }
+}
@@ -0,0 +1,768 @@
+package com.uva.aa.policies;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+import com.uva.aa.Config;
+import com.uva.aa.Environment;
+import com.uva.aa.Location;
+import com.uva.aa.State;
+import com.uva.aa.agents.PredatorAgent;
+import com.uva.aa.agents.PreyAgent;
+import com.uva.aa.enums.Action;
+import com.uva.aa.enums.InstrumentationEvent;
+import com.uva.aa.enums.StopReason;
+import com.uva.aa.metrics.Instrumentation;
+
+/**
+ * A policy manager with the goal of improving a policy. Provides several methods for doing so:
+ * 
+ * POLICY EVALUATION (Sutton, Barto, 4.1) provided by the method evaluatePolicy(). In that method, we initialize V(s)=0
+ * for all s in S^+ (all states, including terminal states). The actual loop can be called by the function
+ * updatedStateValues(). The reason we did this is that we can then easily re-use that part for later exercises. In the
+ * policy evaluation, we at one point updated the value of a state incrementally using the Bellman equation
+ * V(s)<-sum_{a}[policy(s,a)*sum_{s'}P_{s,s'}^{a}*(R_{s,s'}^{a}+gamma*V(s'))]. This calculation is implemented in the
+ * method getUpdatedStateValue().
+ * 
+ * POLICY IMPROVEMENT (Sutton, Barto, 4.2) provided by the method improvePolicy().
+ * 
+ * POLICY ITERATION (Sutton, Barto, 4.3) provided by the method iteratePolicy(). Loops over poliva evaluation and policy
+ * improvement, until the improved policy is stable, that is it doesn't change anymore during an improvement step. The
+ * corresponding value function then fulfills the Bellman equation.
+ * 
+ * MODIFIED POLICY ITERATION (Puterman, 6.5) provided by iteratePolicyModified(). Instead of evaluating every policy to
+ * convergence from V(s)=0, the previous state values are kept and only k sweeps are done per improvement step. For
+ * comparison, iteratePolicyExactly() evaluates every policy by solving the Bellman equations as a linear system,
+ * which is only feasible for small state spaces.
+ * 
+ * VALUE ITERATION (Sutton, Barto, 4.4) provided by iterateValue(). Makes uses of the updateStateValues() which was
+ * implemented for the policy evaluation.
+ * 
+ * When the policy keeps its states in an off-heap store, such as a memory-mapped policy file, the states are swept in
+ * the order of their index instead of being collected in a set first. The store's records are then read and written
+ * sequentially, so state-spaces that don't fit in the memory can be iterated with predictable I/O.
+ * 
+ * Besides the error threshold theta, a run can be stopped by a maximum amount of sweeps, a wall-clock budget or a
+ * relative error bound. The progress of every sweep and improvement step can be followed with a ConvergenceListener.
+ */
+public class PolicyManager {
+
+    /** The policy evaluation to evaluate */
+    private final Policy mPolicy;
+
+    /** The environment in which the policy will be used */
+    private final Environment mEnvironment;
+
+    /** The agent for which the policy evaluation is done */
+    private final PredatorAgent mPredator;
+
+    /** The prey which the agent chases */
+    private final PreyAgent mPrey;
+
+    /** The configuration holding the discount factor and error threshold */
+    private final Config mConfig;
+
+    /** The maximum amount of non-terminal states for which the policy can be evaluated exactly */
+    public static final int MAX_EXACT_EVALUATION_STATES = 2000;
+
+    /** The relative difference in action values below which actions are considered equally good */
+    private static final double TIE_TOLERANCE = 1e-6;
+
+    /** The number of iterations of the latest state value update */
+    private int mUpdateStateValueIterations;
+
+    /** The total number of iterations of the latest state value update for a policy iteration */
+    private int mPolicyUpdateStateValueIterations;
+
+    /** The number of iterations of the policy iteration (evaluation + improvement = 1 iteration) */
+    private int mPolicyIterationIterations;
+
+    /** The listener that is informed of every sweep and improvement step, or null if there is none */
+    private ConvergenceListener mConvergenceListener;
+
+    /** The maximum amount of sweeps in a single run, or 0 for no maximum */
+    private int mMaxSweeps = 0;
+
+    /** The wall-clock budget in ms of a single run, or 0 for no budget */
+    private long mTimeBudget = 0;
+
+    /** The bound on the error of the state values relative to the largest state value, or 0 to not use it */
+    private double mRelativeErrorBound = 0;
+
+    /** The amount of sweeps done in the current run */
+    private int mRunSweeps;
+
+    /** The time in ms at which the current run started */
+    private long mRunStartTime;
+
+    /** The reason why the latest run stopped */
+    private StopReason mStopReason;
+
+    /** The next states of the latest determined transitions */
+    private final State[] mNextStates = new State[Action.values().length];
+
+    /** The probabilities of the latest determined transitions */
+    private final double[] mTransitionProbabilities = new double[Action.values().length];
+
+    /**
+     * Prepares the policy evaluator.
+     * 
+     * @param agent
+     *            The agent which holds a policy/policies that should be evaluated
+     * @param possibleStatesExclTerminal
+     *            All the possible states the agent can be in, excluding the terminal states
+     * @param possibleStatesInclTerminal
+     *            All the possible states the agent can be in, including the terminal states
+     */
+    public PolicyManager(final Policy policy, final Environment environment) {
+        mPolicy = policy;
+        mEnvironment = environment;
+        mPredator = environment.getPredators().get(0);
+        mPrey = environment.getPreys().get(0);
+        mConfig = environment.getGame().getConfig();
+    }
+
+    /**
+     * Iterates the estimation of the value function and the improving of the current policy, until the optimal policy
+     * is reached. See [Sutton & Barto, 4.3: Policy Iteration]. We continuously flip back and forth between estimating
+     * the value function and improving the policy until it's optimal.
+     * 
+     * Only supports one predator and prey.
+     */
+    public void iteratePolicy() {
+        iteratePolicy(0, false);
+    }
+
+    /**
+     * Iterates the policy like iteratePolicy(), but warm-starts every evaluation from the state values of the previous
+     * one and only performs a limited amount of sweeps per evaluation. Stops when the policy is stable and the state
+     * values have converged.
+     * 
+     * Only supports one predator and prey.
+     * 
+     * @param evaluationSweeps
+     *            The amount of evaluation sweeps per improvement step, at least 1
+     */
+    public void iteratePolicyModified(final int evaluationSweeps) {
+        if (evaluationSweeps < 1) {
+            throw new IllegalArgumentException("At least one evaluation sweep is required per improvement.");
+        }
+        iteratePolicy(evaluationSweeps, false);
+    }
+
+    /**
+     * Iterates the policy like iteratePolicy(), but evaluates every policy exactly with evaluatePolicyExactly().
+     * 
+     * Only supports one predator and prey and at most MAX_EXACT_EVALUATION_STATES non-terminal states.
+     */
+    public void iteratePolicyExactly() {
+        iteratePolicy(0, true);
+    }
+
+    /**
+     * Flips between evaluating and improving the policy until it's stable or the budget is exhausted.
+     * 
+     * @param evaluationSweeps
+     *            The amount of warm-started evaluation sweeps per improvement step, or 0 to evaluate to convergence
+     * @param exactEvaluation
+     *            True to evaluate by solving the linear system, false to evaluate iteratively
+     */
+    private void iteratePolicy(final int evaluationSweeps, final boolean exactEvaluation) {
+        startRun();
+        mPolicyUpdateStateValueIterations = 0;
+        mPolicyIterationIterations = 0;
+
+        // Modified policy iteration only starts from V(s)=0 once
+        if (evaluationSweeps > 0) {
+            resetStateValues();
+        }
+
+        boolean policyStable = false;
+        while (true) {
+            double maxValErrDelta = 0;
+            if (exactEvaluation) {
+                resetStateValues();
+                solveStateValues();
+            } else if (evaluationSweeps > 0) {
+                maxValErrDelta = updateStateValues(false, evaluationSweeps);
+            } else {
+                evaluateCurrentPolicy();
+            }
+
+            policyStable = improvePolicy();
+            mPolicyIterationIterations++;
+
+            // With a partial evaluation, a stable policy is only final once its state values have converged as well
+            if (policyStable && maxValErrDelta <= mConfig.getErrorThresholdTheta()) {
+                break;
+            }
+
+            // Keep the policy of the last improvement when the budget ran out
+            if (isBudgetExhausted()) {
+                policyStable = false;
+                break;
+            }
+        }
+
+        if (policyStable) {
+            mStopReason = StopReason.POLICY_STABLE;
+        }
+    }
+
+    /**
+     * Value iteration looks like Policy Evaluation, but we maximize wrt action-values to create an optimal policy.
+     */
+    public void iterateValues() {
+        startRun();
+        resetStateValues();
+        updateStateValues(true, 0);
+        improvePolicy();
+    }
+
+    /**
+     * Computes the real value function to a given policy with the iterative policy evaluation.
+     * 
+     * Uses the Iterative Policy Evaluation after Sutton, Barto, Chapter 4.1. An agent in an MDP-environment which is
+     * fully known to him can evaluate his current policy and thus estimate the true value function for that policy.
+     * 
+     * An estimation of the value function V which maps a value to each state that the agent can be in will be updated
+     * incrementally using the Bellman equation:
+     * V(s)<-sum_{a}[policy(s,a)*sum_{s'}P_{s,s'}^{a}*(R_{s,s'}^{a}+gamma*V(s'))] where the first sum is over all
+     * possible actions in state s, policy(s,a) gives the probability for taking action a in state s due to that policy,
+     * P_{s,s'}^{a} is the transition function (see environment.getTransitionProbability), R_{s,s'}^{a} is the immediate
+     * reward function (see environment.getImmediateReward), gamma is the discount factor of the Bellman equation and V
+     * is our (estimation of the) value function.
+     * 
+     * @param policy
+     *            The policy for which the value function should be estimated
+     */
+    public void evaluatePolicy() {
+        startRun();
+        evaluateCurrentPolicy();
+    }
+
+    /**
+     * Evaluates the current policy within the current run, starting from state values of 0.
+     */
+    private void evaluateCurrentPolicy() {
+        resetStateValues();
+
+        // Modify the policy's state values
+        updateStateValues(false, 0);
+    }
+
+    /**
+     * Computes the exact value function of the current policy by solving the Bellman equations
+     * V(s)=sum_{a}[policy(s,a)*sum_{s'}P_{s,s'}^{a}*(R_{s,s'}^{a}+gamma*V(s'))] for all non-terminal states at once as
+     * a linear system, with V(s')=0 for terminal states.
+     * 
+     * Only supports one predator and prey and at most MAX_EXACT_EVALUATION_STATES non-terminal states.
+     */
+    public void evaluatePolicyExactly() {
+        startRun();
+        resetStateValues();
+        solveStateValues();
+    }
+
+    /**
+     * Sets the value of all possible states, including terminal states, to 0.
+     */
+    private void resetStateValues() {
+        if (mPolicy.getOffHeapStore() == null) {
+            for (final State state : mEnvironment.getPossibleStates(true)) {
+                mPolicy.setStateValue(state, 0);
+            }
+            return;
+        }
+
+        // Terminal states aren't stored off-heap, and those that aren't mapped yet start at 0
+        for (final State state : getNonTerminalStates()) {
+            mPolicy.setStateValue(state, 0);
+        }
+        for (final StatePolicyProperties properties : mPolicy.getStateMap().values()) {
+            properties.setValue(0);
+        }
+    }
+
+    /**
+     * Retrieves the non-terminal states to sweep through. With an off-heap store, the states are enumerated in the
+     * order of their index, so that the store is accessed sequentially and the states aren't all kept in memory.
+     * 
+     * @return The non-terminal states
+     */
+    private Iterable<State> getNonTerminalStates() {
+        if (mPolicy.getOffHeapStore() != null) {
+            return mEnvironment.getStateEnumerator(false);
+        }
+        return mEnvironment.getPossibleStates(false);
+    }
+
+    /**
+     * Solves the Bellman equations of the current policy as the linear system (I - gamma*P)V = R with Gaussian
+     * elimination and stores the resulting state values. Terminal states keep their current value.
+     */
+    private void solveStateValues() {
+        final Set<State> states = mEnvironment.getPossibleStates(false);
+        final int numStates = states.size();
+        if (numStates > MAX_EXACT_EVALUATION_STATES) {
+            throw new RuntimeException("Exact policy evaluation supports at most " + MAX_EXACT_EVALUATION_STATES
+                    + " states, but there are " + numStates + ".");
+        }
+
+        // Number the states to index the rows and columns of the system
+        final State[] indexedStates = states.toArray(new State[numStates]);
+        final HashMap<State, Integer> stateIndices = new HashMap<State, Integer>();
+        for (int i = 0; i < numStates; ++i) {
+            stateIndices.put(indexedStates[i], i);
+        }
+
+        // Build the augmented matrix [I - gamma*P | R]
+        final double gamma = mConfig.getDiscountFactorGamma();
+        final double[][] system = new double[numStates][numStates + 1];
+        for (int i = 0; i < numStates; ++i) {
+            final State state = indexedStates[i];
+            system[i][i] = 1;
+
+            for (final Action predatorAction : Action.values()) {
+                final double actionProbability = mPolicy.getActionProbability(state, predatorAction);
+                if (actionProbability == 0) {
+                    continue;
+                }
+
+                final int numTransitions = determineTransitions(state, predatorAction);
+                for (int transition = 0; transition < numTransitions; ++transition) {
+                    final State nextState = mNextStates[transition];
+                    final double probability = actionProbability * mTransitionProbabilities[transition];
+                    system[i][numStates] += probability
+                            * mPredator.getImmediateReward(state, nextState, predatorAction);
+
+                    final Integer nextIndex = stateIndices.get(nextState);
+                    if (nextIndex != null) {
+                        system[i][nextIndex] -= gamma * probability;
+                    } else {
+                        // Terminal states aren't part of the system, so their value is a constant
+                        system[i][numStates] += gamma * probability * mPolicy.getStateValue(nextState);
+                    }
+                }
+            }
+        }
+
+        // Forward elimination with partial pivoting
+        for (int pivot = 0; pivot < numStates; ++pivot) {
+            int bestRow = pivot;
+            for (int row = pivot + 1; row < numStates; ++row) {
+                if (Math.abs(system[row][pivot]) > Math.abs(system[bestRow][pivot])) {
+                    bestRow = row;
+                }
+            }
+            final double[] pivotRow = system[bestRow];
+            system[bestRow] = system[pivot];
+            system[pivot] = pivotRow;
+
+            for (int row = pivot + 1; row < numStates; ++row) {
+                final double factor = system[row][pivot] / pivotRow[pivot];
+                if (factor != 0) {
+                    final double[] currentRow = system[row];
+                    for (int column = pivot; column <= numStates; ++column) {
+                        currentRow[column] -= factor * pivotRow[column];
+                    }
+                }
+            }
+        }
+
+        // Back substitution, storing the values right away
+        final double[] stateValues = new double[numStates];
+        for (int row = numStates - 1; row >= 0; --row) {
+            double sum = system[row][numStates];
+            for (int column = row + 1; column < numStates; ++column) {
+                sum -= system[row][column] * stateValues[column];
+            }
+            stateValues[row] = sum / system[row][row];
+            mPolicy.setStateValue(indexedStates[row], stateValues[row]);
+        }
+    }
+
+    /**
+     * Updates the state values of a policy based on the actions, probabilities and rewards.
+     * 
+     * @param useMaxInsteadOfSum
+     *            True if the state value should be the maximum of action values instead of the sum
+     * @param maxSweeps
+     *            The maximum amount of sweeps to perform, or 0 to sweep until the state values converge
+     * 
+     * @return The largest change of a state value during the last sweep
+     */
+    private double updateStateValues(final boolean useMaxInsteadOfSum, final int maxSweeps) {
+
+        // Reset the number of iterations
+        mUpdateStateValueIterations = 0;
+
+        // We use these variables to determine the changes we have made during a loop
+        double maxValErrDelta;
+        double sumValErrDelta;
+        double maxAbsStateValue;
+        int statesChanged;
+
+        // Update the value function until it converges
+        do {
+            // Reset the delta for this update
+            maxValErrDelta = 0;
+            sumValErrDelta = 0;
+            maxAbsStateValue = 0;
+            statesChanged = 0;
+            final long sweepStartTime = (Instrumentation.isEnabled() ? System.nanoTime() : 0);
+
+            // Sweep through the state space of non-terminal states
+            int numStates = 0;
+            for (final State state : getNonTerminalStates()) {
+                ++numStates;
+
+                // Save current estimate of the value of the current state (for later comparison)
+                final double previousStateValue = mPolicy.getStateValue(state);
+
+                // Replace the old values in place (like suggested in Sutton, Barto, Chapter 4.1)
+                double updatedStateValue;
+                if (useMaxInsteadOfSum) {
+                    updatedStateValue = getUpdatedStateValueMax(state);
+                } else {
+                    updatedStateValue = getUpdatedStateValueSum(state);
+                }
+                mPolicy.setStateValue(state, updatedStateValue);
+
+                // Update the maximum error we have
+                final double valErrDelta = Math.abs(previousStateValue - updatedStateValue);
+                maxValErrDelta = Math.max(maxValErrDelta, valErrDelta);
+                sumValErrDelta += valErrDelta;
+                maxAbsStateValue = Math.max(maxAbsStateValue, Math.abs(updatedStateValue));
+                if (valErrDelta > 0) {
+                    ++statesChanged;
+                }
+            }
+
+            // Keep track of how many iterations we've done
+            ++mUpdateStateValueIterations;
+            ++mPolicyUpdateStateValueIterations;
+            ++mRunSweeps;
+
+            if (mConvergenceListener != null) {
+                mConvergenceListener.onSweep(mUpdateStateValueIterations, maxValErrDelta,
+                        sumValErrDelta / numStates, statesChanged);
+            }
+
+            if (Instrumentation.isEnabled()) {
+                Instrumentation.emit(InstrumentationEvent.STATE_VALUE_SWEEP, System.nanoTime() - sweepStartTime,
+                        mUpdateStateValueIterations, maxValErrDelta);
+            }
+
+        } while (!shouldStopUpdating(maxValErrDelta, maxAbsStateValue)
+                && (maxSweeps == 0 || mUpdateStateValueIterations < maxSweeps));
+
+        return maxValErrDelta;
+    }
+
+    /**
+     * Checks whether the state value updates should stop after a sweep and notes why.
+     * 
+     * The relative error bound follows from the contraction by gamma: when the largest change in a sweep is delta, the
+     * state values are within gamma * delta / (1 - gamma) of their fixed point.
+     * 
+     * @param maxValErrDelta
+     *            The largest change of a state value during the latest sweep
+     * @param maxAbsStateValue
+     *            The largest absolute state value after the latest sweep
+     * 
+     * @return True if the updates should stop, false if another sweep is needed
+     */
+    private boolean shouldStopUpdating(final double maxValErrDelta, final double maxAbsStateValue) {
+        final double gamma = mConfig.getDiscountFactorGamma();
+
+        if (maxValErrDelta <= mConfig.getErrorThresholdTheta()) {
+            mStopReason = StopReason.ERROR_THRESHOLD;
+        } else if (mRelativeErrorBound > 0 && gamma < 1
+                && gamma * maxValErrDelta / (1 - gamma) <= mRelativeErrorBound * maxAbsStateValue) {
+            mStopReason = StopReason.RELATIVE_ERROR_BOUND;
+        } else if (!isBudgetExhausted()) {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts a new run for which the sweeps and time are counted against the budget.
+     */
+    private void startRun() {
+        mRunSweeps = 0;
+        mRunStartTime = System.currentTimeMillis();
+        mStopReason = null;
+    }
+
+    /**
+     * Checks whether the maximum amount of sweeps or the wall-clock budget of the current run has been used up and
+     * notes which one.
+     * 
+     * @return True if the budget is exhausted, false otherwise
+     */
+    private boolean isBudgetExhausted() {
+        if (mMaxSweeps > 0 && mRunSweeps >= mMaxSweeps) {
+            mStopReason = StopReason.MAX_SWEEPS;
+            return true;
+        }
+        if (mTimeBudget > 0 && System.currentTimeMillis() - mRunStartTime >= mTimeBudget) {
+            mStopReason = StopReason.TIME_BUDGET;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the next estimation of the state-value based on the Bellmann equation using a weighted sum.
+     * 
+     * @param state
+     *            The state for which we want to estimate the value
+     * 
+     * @return The (next) estimation of the value of the given state
+     */
+    private double getUpdatedStateValueSum(final State state) {
+        // In the outer summation: iterate over all possible actions the predator can take
+        double stateValue = 0;
+        for (final Action predatorAction : Action.values()) {
+            // When we want the maximum instead of the sum, don't care about pi(s,a)
+            double actionValue = mPolicy.getActionProbability(state, predatorAction)
+                    * getInnerSum(state, predatorAction);
+
+            // Outer sum of the Bellman equation
+            stateValue += actionValue;
+        }
+
+        return stateValue;
+    }
+
+    /**
+     * Returns the next estimation of the state-value based on the Bellmann equation using the maximum values.
+     * 
+     * @param state
+     *            The state for which we want to estimate the value
+     * 
+     * @return The (next) estimation of the value of the given state
+     */
+    private double getUpdatedStateValueMax(final State state) {
+        // In the outer summation: iterate over all possible actions the predator can take
+        double stateValue = 0;
+        for (final Action predatorAction : Action.values()) {
+            // Determine the value of this action
+            stateValue = Math.max(stateValue, getInnerSum(state, predatorAction));
+        }
+
+        return stateValue;
+    }
+
+    /**
+     * Adjusts the policy in every state to the best action according to the current state value function.
+     * 
+     * Only supports one predator and prey.
+     * 
+     * @return True if the policy has not improved, false if it remained the same
+     */
+    public boolean improvePolicy() {
+        int policyChanges = 0;
+
+        // Update actions the values for each non-terminal state
+        for (final State state : getNonTerminalStates()) {
+            final StatePolicyProperties properties = mPolicy.getProperties(state);
+
+            // Note the actions' values based on the next states' quality through the inner sum. Consider every
+            // action, also those the current policy never takes, so that none are excluded for good.
+            final Action[] actions = Action.values();
+            final double[] actionValues = new double[actions.length];
+            double bestActionValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < actions.length; ++i) {
+                actionValues[i] = getInnerSum(state, actions[i]);
+                bestActionValue = Math.max(bestActionValue, actionValues[i]);
+            }
+
+            // Actions within evaluation errors of the best are just as good, otherwise ties between equivalent actions
+            // keep flipping. Keep the current actions if they're that good. The tolerance is relative to the magnitude,
+            // so that it also holds when all actions are valued negatively.
+            final double tieThreshold = bestActionValue - Math.abs(bestActionValue) * TIE_TOLERANCE;
+            double currentActionValue = 0;
+            for (int i = 0; i < actions.length; ++i) {
+                currentActionValue += properties.getActionProbability(actions[i]) * actionValues[i];
+            }
+            if (currentActionValue >= tieThreshold) {
+                continue;
+            }
+
+            // Determine the best actions for the state
+            final List<Action> bestActions = new ArrayList<Action>();
+            for (int i = 0; i < actions.length; ++i) {
+                if (actionValues[i] >= tieThreshold) {
+                    bestActions.add(actions[i]);
+                }
+            }
+
+            // Update the action probabilities based on the best values and check whether they changed
+            if (mPolicy.setBestActions(state, bestActions)) {
+                ++policyChanges;
+            }
+        }
+
+        if (mConvergenceListener != null) {
+            mConvergenceListener.onPolicyImprovement(mPolicyIterationIterations + 1, policyChanges);
+        }
+
+        return policyChanges == 0;
+    }
+
+    /**
+     * Calculates the inner sum of DP, in the form of sum_s'{P[R+gamma*V(s')]}. The result is not weighted according to
+     * probability.
+     * 
+     * @param initialState
+     *            The state before the action is performed
+     * @param predatorAction
+     *            The action the predator will perform in the given state
+     * 
+     * @return The value of the inner sum
+     */
+    private double getInnerSum(final State initialState, final Action predatorAction) {
+        // In the inner sum: iterate over all the possible next states
+        double innerSum = 0;
+        final int numTransitions = determineTransitions(initialState, predatorAction);
+        for (int transition = 0; transition < numTransitions; ++transition) {
+            final State nextState = mNextStates[transition];
+            final double transitionProbability = mTransitionProbabilities[transition];
+            final double immediateReward = mPredator.getImmediateReward(initialState, nextState, predatorAction);
+            final double nextStateValue = mPolicy.getStateValue(nextState);
+
+            innerSum += transitionProbability * (immediateReward + mConfig.getDiscountFactorGamma() * nextStateValue);
+        }
+
+        return innerSum;
+    }
+
+    /**
+     * Determines the states that can follow when the predator performs an action together with their probabilities,
+     * and stores them in mNextStates and mTransitionProbabilities. The probabilities of the prey's actions are
+     * retrieved at once from the prey's action distribution.
+     * 
+     * @param initialState
+     *            The state before the action is performed
+     * @param predatorAction
+     *            The action the predator will perform in the given state
+     * 
+     * @return The amount of possible next states
+     */
+    private int determineTransitions(final State initialState, final Action predatorAction) {
+        final Location predatorLocation = initialState.getAgentLocation(mPredator);
+        final Location preyLocation = initialState.getAgentLocation(mPrey);
+        final Location nextPredatorLocation = predatorAction.getLocation(predatorLocation);
+
+        if (nextPredatorLocation.equals(preyLocation)) {
+            // If the predator catches the prey with its action, there is only one possible next state
+            mNextStates[0] = State.buildState(mPredator, nextPredatorLocation, mPrey, null);
+            mTransitionProbabilities[0] = 1.0;
+            return 1;
+        }
+
+        // If the predator doesn't catch the prey, the prey acts while the predator is at its next location
+        final double[] preyDistribution = mPrey.getActionDistribution(State.buildState(mPredator,
+                nextPredatorLocation, mPrey, preyLocation));
+
+        int numTransitions = 0;
+        for (final Action preyAction : Action.values()) {
+            final double probability = preyDistribution[preyAction.ordinal()];
+            if (probability > 0) {
+                final Location nextPreyLocation = preyAction.getLocation(preyLocation);
+                mNextStates[numTransitions] = State.buildState(mPredator, nextPredatorLocation, mPrey,
+                        nextPreyLocation);
+                mTransitionProbabilities[numTransitions] = probability;
+                ++numTransitions;
+            }
+        }
+
+        return numTransitions;
+    }
+
+    /**
+     * Retrieves the total number of iterations of the latest state value update.
+     * 
+     * @return The number of iterations
+     */
+    public int getUpdateStateValueIterations() {
+        return mUpdateStateValueIterations;
+    }
+
+    /**
+     * Retrieves the total number of iterations of the latest state value update for a policy iteration.
+     * 
+     * @return The number of iterations
+     */
+    public int getPolicyUpdateStateValueIterations() {
+        return mPolicyUpdateStateValueIterations;
+    }
+
+    /**
+     * Retrieves the number of iterations of the latest policy iteration (policy evaluation + policy improbement = 1
+     * iteration).
+     * 
+     * @return The number of iterations
+     */
+    public int getPolicyIterationIterations() {
+        return mPolicyIterationIterations;
+    }
+
+    /**
+     * Retrieves why the latest run stopped.
+     * 
+     * @return The reason for stopping, or null if no run has finished yet
+     */
+    public StopReason getStopReason() {
+        return mStopReason;
+    }
+
+    /**
+     * Sets the listener that is informed of every sweep and improvement step.
+     * 
+     * @param convergenceListener
+     *            The listener or null to stop informing
+     */
+    public void setConvergenceListener(final ConvergenceListener convergenceListener) {
+        mConvergenceListener = convergenceListener;
+    }
+
+    /**
+     * Sets the maximum amount of sweeps over the state space in a single policy evaluation, value iteration or policy
+     * iteration.
+     * 
+     * @param maxSweeps
+     *            The maximum amount of sweeps or 0 for no maximum
+     */
+    public void setMaxSweeps(final int maxSweeps) {
+        mMaxSweeps = maxSweeps;
+    }
+
+    /**
+     * Sets the wall-clock budget of a single policy evaluation, value iteration or policy iteration.
+     * 
+     * @param timeBudget
+     *            The budget in ms or 0 for no budget
+     */
+    public void setTimeBudget(final long timeBudget) {
+        mTimeBudget = timeBudget;
+    }
+
+    /**
+     * Sets the bound on the error of the state values relative to the largest state value. Updating stops as soon as
+     * gamma guarantees that the state values are within this bound, which may be long before theta is reached.
+     * 
+     * @param relativeErrorBound
+     *            The relative error bound, e.g. 0.001, or 0 to not use it
+     */
+    public void setRelativeErrorBound(final double relativeErrorBound) {
+        mRelativeErrorBound = relativeErrorBound;
+    }
+
+}
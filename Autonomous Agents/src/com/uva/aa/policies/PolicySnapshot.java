@@ -0,0 +1,392 @@
+package com.uva.aa.policies;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.uva.aa.State;
+import com.uva.aa.agents.Agent;
+import com.uva.aa.enums.Action;
+
+/**
+ * A read-only copy of a policy at one moment, created by {@link Policy#snapshot()}. The properties of all states are
+ * copied into a single array with a row per state, holding the state value followed by the value and probability of
+ * each action, or NaN for actions without one. States are found through an open-addressing table of row numbers.
+ * 
+ * A snapshot never changes, so any amount of threads can evaluate it while the policy it was taken from is still being
+ * trained. States that weren't mapped when the snapshot was taken get the initial properties of the policy, without
+ * being mapped.
+ */
+public class PolicySnapshot {
+
+    /** The amount of actions per state */
+    private static final int ACTION_COUNT = Action.values().length;
+
+    /** The position of the first action value within a row */
+    private static final int ACTION_VALUES = 1;
+
+    /** The position of the first action probability within a row */
+    private static final int ACTION_PROBABILITIES = ACTION_VALUES + ACTION_COUNT;
+
+    /** The size of a row */
+    private static final int ROW_SIZE = ACTION_PROBABILITIES + ACTION_COUNT;
+
+    /** The agent from whose perspective the states are considered */
+    private final Agent mTargetAgent;
+
+    /** The default properties of the policy */
+    private final StatePolicyProperties mDefaultProperties;
+
+    /** The initialiser of the policy, or null if it only uses the defaults */
+    private final StatePolicyInitialiser mInitialiser;
+
+    /** The states in order of their rows */
+    private final State[] mStates;
+
+    /** The properties of the states, a row per state */
+    private final double[] mRows;
+
+    /** The row number plus one per slot, or 0 for empty slots; the amount of slots is a power of two */
+    private final int[] mSlots;
+
+    /**
+     * Creates a snapshot from the copied properties. Should only be created through a builder.
+     * 
+     * @param builder
+     *            The builder holding the copied properties
+     */
+    private PolicySnapshot(final Builder builder) {
+        mTargetAgent = builder.mTargetAgent;
+        mDefaultProperties = builder.mDefaultProperties;
+        mInitialiser = builder.mInitialiser;
+        mStates = Arrays.copyOf(builder.mStates, builder.mStateCount);
+        mRows = Arrays.copyOf(builder.mRows, builder.mStateCount * ROW_SIZE);
+
+        int slotCount = 1;
+        while (slotCount < 2 * mStates.length) {
+            slotCount *= 2;
+        }
+        mSlots = new int[slotCount];
+        for (int row = 0; row < mStates.length; ++row) {
+            int slot = mStates[row].hashCode() & (slotCount - 1);
+            while (mSlots[slot] != 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            mSlots[slot] = row + 1;
+        }
+    }
+
+    /**
+     * Retrieves the amount of states that were mapped when the snapshot was taken.
+     * 
+     * @return The amount of states
+     */
+    public int getStateCount() {
+        return mStates.length;
+    }
+
+    /**
+     * Retrieves the states that were mapped when the snapshot was taken.
+     * 
+     * @return The unmodifiable list of states
+     */
+    public List<State> getStates() {
+        return Collections.unmodifiableList(Arrays.asList(mStates));
+    }
+
+    /**
+     * Checks if the state was mapped when the snapshot was taken.
+     * 
+     * @param state
+     *            The state to check
+     * 
+     * @return True if it was mapped, false otherwise
+     */
+    public boolean containsState(final State state) {
+        return findRow(getRelativeState(state)) >= 0;
+    }
+
+    /**
+     * Retrieves the value of the state.
+     * 
+     * @param state
+     *            The state to get the value for
+     * 
+     * @return The value of the state
+     */
+    public double getStateValue(final State state) {
+        final State relativeState = getRelativeState(state);
+        final int row = findRow(relativeState);
+        return (row >= 0 ? mRows[row * ROW_SIZE] : getInitialProperties(relativeState).getValue());
+    }
+
+    /**
+     * Retrieves the value of an action in the given state.
+     * 
+     * @param state
+     *            The state to check the action for
+     * @param action
+     *            The action to find the value for
+     * 
+     * @return The value of the action or 0 if not set
+     */
+    public double getActionValue(final State state, final Action action) {
+        final State relativeState = getRelativeState(state);
+        final int row = findRow(relativeState);
+        if (row < 0) {
+            return getInitialProperties(relativeState).getActionValue(action);
+        }
+
+        final double value = mRows[row * ROW_SIZE + ACTION_VALUES + action.ordinal()];
+        return (Double.isNaN(value) ? 0.0 : value);
+    }
+
+    /**
+     * Retrieves the values of the actions that have one in the given state.
+     * 
+     * @param state
+     *            The state to get the action values for
+     * 
+     * @return A mapping of the actions with a value
+     */
+    public Map<Action, Double> getActionValues(final State state) {
+        final State relativeState = getRelativeState(state);
+        final int row = findRow(relativeState);
+        if (row < 0) {
+            return getInitialProperties(relativeState).getActionValues();
+        }
+
+        final Map<Action, Double> actionValues = new EnumMap<Action, Double>(Action.class);
+        for (final Action action : Action.values()) {
+            final double value = mRows[row * ROW_SIZE + ACTION_VALUES + action.ordinal()];
+            if (!Double.isNaN(value)) {
+                actionValues.put(action, value);
+            }
+        }
+        return actionValues;
+    }
+
+    /**
+     * Retrieves the probability of an action in the given state.
+     * 
+     * @param state
+     *            The state to check the action for
+     * @param action
+     *            The action to find the probability for
+     * 
+     * @return The probability of the action or 0 if not set
+     */
+    public double getActionProbability(final State state, final Action action) {
+        final State relativeState = getRelativeState(state);
+        final int row = findRow(relativeState);
+        if (row < 0) {
+            return getInitialProperties(relativeState).getActionProbability(action);
+        }
+
+        final double probability = mRows[row * ROW_SIZE + ACTION_PROBABILITIES + action.ordinal()];
+        return (Double.isNaN(probability) ? 0.0 : probability);
+    }
+
+    /**
+     * Returns a random action based on the probability within the given state. A decision beyond the sum of the
+     * probabilities, due to rounding, falls to the last action with a probability.
+     * 
+     * @param state
+     *            The state to choose an action for
+     * 
+     * @return A random action or null if no actions are available
+     */
+    public Action getActionBasedOnProbability(final State state) {
+        final State relativeState = getRelativeState(state);
+        final int row = findRow(relativeState);
+        final StatePolicyProperties initialProperties = (row < 0 ? getInitialProperties(relativeState) : null);
+
+        final double decision = Math.random();
+        double decisionCount = 0;
+        Action lastAction = null;
+
+        for (final Action action : Action.values()) {
+            final double probability = (row >= 0 ? mRows[row * ROW_SIZE + ACTION_PROBABILITIES + action.ordinal()]
+                    : initialProperties.getActionProbability(action));
+            if (!(probability > 0)) {
+                continue;
+            }
+
+            decisionCount += probability;
+            lastAction = action;
+            if (decisionCount >= decision) {
+                return action;
+            }
+        }
+
+        return lastAction;
+    }
+
+    /**
+     * Finds an action with the highest value in the given state, choosing randomly between ties.
+     * 
+     * @param state
+     *            The state to choose an action for
+     * 
+     * @return The best action or null if no actions are available
+     */
+    public Action getGreedyAction(final State state) {
+        final State relativeState = getRelativeState(state);
+        final int row = findRow(relativeState);
+        final Map<Action, Double> initialActionValues = (row < 0 ? getInitialProperties(relativeState)
+                .getActionValues() : null);
+
+        Action bestAction = null;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        int bestActionCount = 0;
+
+        for (final Action action : Action.values()) {
+            final Double initialValue = (row < 0 ? initialActionValues.get(action) : null);
+            final double value = (row >= 0 ? mRows[row * ROW_SIZE + ACTION_VALUES + action.ordinal()]
+                    : (initialValue != null ? initialValue : Double.NaN));
+            if (Double.isNaN(value)) {
+                continue;
+            }
+
+            if (value > bestValue) {
+                bestAction = action;
+                bestValue = value;
+                bestActionCount = 1;
+            } else if (value == bestValue && Math.random() * ++bestActionCount < 1) {
+                bestAction = action;
+            }
+        }
+
+        return bestAction;
+    }
+
+    /**
+     * Determines the state from the perspective of the target agent, which is how states are mapped.
+     * 
+     * @param state
+     *            The state to consider
+     * 
+     * @return The state with respect to the target agent, or the state itself if there is none
+     */
+    private State getRelativeState(final State state) {
+        return (mTargetAgent != null ? state.getStateWithRespectToAgent(mTargetAgent) : state);
+    }
+
+    /**
+     * Finds the row of a state.
+     * 
+     * @param relativeState
+     *            The state with respect to the target agent
+     * 
+     * @return The row of the state, or -1 if it wasn't mapped
+     */
+    private int findRow(final State relativeState) {
+        final int mask = mSlots.length - 1;
+        for (int slot = relativeState.hashCode() & mask;; slot = (slot + 1) & mask) {
+            final int row = mSlots[slot] - 1;
+            if (row < 0 || mStates[row].equals(relativeState)) {
+                return row;
+            }
+        }
+    }
+
+    /**
+     * Creates the properties that the policy would initially give a state that isn't mapped, without mapping it.
+     * 
+     * @param relativeState
+     *            The state with respect to the target agent
+     * 
+     * @return The initial properties
+     */
+    private StatePolicyProperties getInitialProperties(final State relativeState) {
+        final StatePolicyProperties properties = mDefaultProperties.clone();
+        if (mInitialiser != null) {
+            mInitialiser.initialise(relativeState, properties);
+        }
+        return properties;
+    }
+
+    /**
+     * Copies the properties of the states of a policy, to create a snapshot of them.
+     */
+    static class Builder {
+
+        /** The agent from whose perspective the states are considered */
+        private final Agent mTargetAgent;
+
+        /** A copy of the default properties of the policy */
+        private final StatePolicyProperties mDefaultProperties;
+
+        /** The initialiser of the policy, or null if it only uses the defaults */
+        private final StatePolicyInitialiser mInitialiser;
+
+        /** The copied states in order of their rows */
+        private State[] mStates;
+
+        /** The copied properties, a row per state */
+        private double[] mRows;
+
+        /** The amount of copied states */
+        private int mStateCount = 0;
+
+        /**
+         * Prepares the copying of a policy.
+         * 
+         * @param targetAgent
+         *            The agent from whose perspective the states are considered
+         * @param defaultProperties
+         *            The default properties of the policy
+         * @param initialiser
+         *            The initialiser of the policy, or null if it only uses the defaults
+         * @param expectedStateCount
+         *            The amount of states that will probably be copied
+         */
+        Builder(final Agent targetAgent, final StatePolicyProperties defaultProperties,
+                final StatePolicyInitialiser initialiser, final int expectedStateCount) {
+            mTargetAgent = targetAgent;
+            mDefaultProperties = defaultProperties.clone();
+            mInitialiser = initialiser;
+            mStates = new State[Math.max(expectedStateCount, 16)];
+            mRows = new double[mStates.length * ROW_SIZE];
+        }
+
+        /**
+         * Copies the properties of a state into a new row.
+         * 
+         * @param relativeState
+         *            The state with respect to the target agent
+         * @param properties
+         *            The properties of the state
+         */
+        void add(final State relativeState, final StatePolicyProperties properties) {
+            if (mStateCount == mStates.length) {
+                mStates = Arrays.copyOf(mStates, 2 * mStateCount);
+                mRows = Arrays.copyOf(mRows, mStates.length * ROW_SIZE);
+            }
+
+            final int position = mStateCount * ROW_SIZE;
+            mStates[mStateCount] = relativeState;
+            mRows[position] = properties.getValue();
+            Arrays.fill(mRows, position + ACTION_VALUES, position + ROW_SIZE, Double.NaN);
+            for (final Map.Entry<Action, Double> actionValue : properties.getActionValues().entrySet()) {
+                mRows[position + ACTION_VALUES + actionValue.getKey().ordinal()] = actionValue.getValue();
+            }
+            for (final Map.Entry<Action, Double> actionProbability : properties.getActionProbabilities().entrySet()) {
+                mRows[position + ACTION_PROBABILITIES + actionProbability.getKey().ordinal()] = actionProbability
+                        .getValue();
+            }
+            ++mStateCount;
+        }
+
+        /**
+         * Creates the snapshot of the copied states.
+         * 
+         * @return The snapshot
+         */
+        PolicySnapshot build() {
+            return new PolicySnapshot(this);
+        }
+    }
+}
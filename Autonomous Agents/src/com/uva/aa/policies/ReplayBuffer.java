@@ -0,0 +1,242 @@
+package com.uva.aa.policies;
+
+import com.uva.aa.State;
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.enums.Action;
+
+/**
+ * A bounded buffer of observed transitions for experience replay with Q-Learning. Transitions are stored as state
+ * indices within a {@link StateEnumerator} in primitive arrays, overwriting the oldest ones once the buffer is full.
+ * 
+ * Mini-batches are sampled either uniformly or in proportion to the latest temporal-difference error of each
+ * transition. The transitions of a batch are replayed in order of their state index, so that consecutive transitions
+ * from the same state share a single lookup of the state's properties. A bounded policy may evict a state on any
+ * lookup, so its states are looked up again for every transition.
+ */
+public class ReplayBuffer {
+
+    /** The smallest priority of a transition, so that every transition can still be sampled */
+    private static final double MIN_PRIORITY = 0.01;
+
+    /** The enumerator used to index the states */
+    private final StateEnumerator mEnumerator;
+
+    /** The index of the initial state per transition */
+    private final long[] mStates;
+
+    /** The ordinal of the performed action per transition */
+    private final byte[] mActions;
+
+    /** The reward per transition */
+    private final double[] mRewards;
+
+    /** The index of the resulting state per transition */
+    private final long[] mNextStates;
+
+    /** Whether or not the resulting state is terminal per transition */
+    private final boolean[] mTerminals;
+
+    /** The sums of the priorities as a binary tree with the transitions as leaves, or null for uniform sampling */
+    private final double[] mPriorityTree;
+
+    /** The index of the first leaf within the priority tree */
+    private final int mFirstLeaf;
+
+    /** The highest priority so far, given to new transitions so that they're replayed at least once */
+    private double mMaxPriority = 1;
+
+    /** The slot for the next transition */
+    private int mNextSlot = 0;
+
+    /** The amount of stored transitions */
+    private int mSize = 0;
+
+    /** The slots of the transitions in the current batch */
+    private int[] mBatch = new int[0];
+
+    /**
+     * Creates an empty replay buffer.
+     * 
+     * @param enumerator
+     *            The enumerator used to index the states
+     * @param capacity
+     *            The maximum amount of transitions
+     * @param prioritized
+     *            True to sample in proportion to the temporal-difference errors, false to sample uniformly
+     */
+    public ReplayBuffer(final StateEnumerator enumerator, final int capacity, final boolean prioritized) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The replay buffer must hold at least one transition.");
+        }
+
+        mEnumerator = enumerator;
+        mStates = new long[capacity];
+        mActions = new byte[capacity];
+        mRewards = new double[capacity];
+        mNextStates = new long[capacity];
+        mTerminals = new boolean[capacity];
+
+        int firstLeaf = 1;
+        while (firstLeaf < capacity) {
+            firstLeaf *= 2;
+        }
+        mFirstLeaf = firstLeaf;
+        mPriorityTree = (prioritized ? new double[2 * firstLeaf] : null);
+    }
+
+    /**
+     * Stores an observed transition, replacing the oldest one if the buffer is full.
+     * 
+     * @param state
+     *            The state before performing the action
+     * @param action
+     *            The action performed in the state
+     * @param reward
+     *            The reward received for the transition
+     * @param nextState
+     *            The state after the transition
+     * @param terminal
+     *            Whether or not the transition ended the game, in which case the next state may be null
+     */
+    public void add(final State state, final Action action, final double reward, final State nextState,
+            final boolean terminal) {
+        final int slot = mNextSlot;
+        mStates[slot] = mEnumerator.index(state);
+        mActions[slot] = (byte) action.ordinal();
+        mRewards[slot] = reward;
+        mNextStates[slot] = (terminal ? 0 : mEnumerator.index(nextState));
+        mTerminals[slot] = terminal;
+
+        if (mPriorityTree != null) {
+            setPriority(slot, mMaxPriority);
+        }
+
+        mNextSlot = (slot + 1) % mStates.length;
+        mSize = Math.min(mSize + 1, mStates.length);
+    }
+
+    /**
+     * Retrieves the amount of stored transitions.
+     * 
+     * @return The amount of transitions
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Samples a mini-batch of transitions and applies a Q-Learning update for each of them.
+     * 
+     * @param policy
+     *            The policy holding the action values
+     * @param batchSize
+     *            The amount of transitions to sample, with replacement
+     * @param stepSizeAlpha
+     *            The step size of the updates
+     * @param discountFactorGamma
+     *            The discount factor of the updates
+     */
+    public void replay(final Policy policy, final int batchSize, final double stepSizeAlpha,
+            final double discountFactorGamma) {
+        if (mSize == 0) {
+            return;
+        }
+
+        sampleBatch(batchSize);
+
+        long currentStateIndex = -1;
+        StatePolicyProperties properties = null;
+        for (int i = 0; i < batchSize; ++i) {
+            final int slot = mBatch[i];
+
+            // Find the value of the best possible next action first, so that looking it up can't evict the properties
+            double bestNextActionValue = 0;
+            if (!mTerminals[slot]) {
+                for (final double actionValue : policy.getProperties(mEnumerator.unindex(mNextStates[slot]))
+                        .getActionValues().values()) {
+                    bestNextActionValue = Math.max(bestNextActionValue, actionValue);
+                }
+            }
+
+            // The batch is sorted, so each state is only looked up once unless the policy may have evicted it since
+            if (properties == null || mStates[slot] != currentStateIndex || policy.getCapacity() > 0) {
+                currentStateIndex = mStates[slot];
+                properties = policy.getProperties(mEnumerator.unindex(currentStateIndex));
+            }
+
+            final Action action = Action.values()[mActions[slot]];
+            final double actionValue = properties.getActionValue(action);
+            final double tdError = mRewards[slot] + discountFactorGamma * bestNextActionValue - actionValue;
+            properties.setActionValue(action, actionValue + stepSizeAlpha * tdError);
+
+            if (mPriorityTree != null) {
+                final double priority = Math.max(MIN_PRIORITY, Math.abs(tdError));
+                mMaxPriority = Math.max(mMaxPriority, priority);
+                setPriority(slot, priority);
+            }
+        }
+    }
+
+    /**
+     * Fills the batch with sampled slots, sorted by the index of their initial state.
+     * 
+     * @param batchSize
+     *            The amount of slots to sample
+     */
+    private void sampleBatch(final int batchSize) {
+        if (mBatch.length < batchSize) {
+            mBatch = new int[batchSize];
+        }
+
+        for (int i = 0; i < batchSize; ++i) {
+            final int slot = (mPriorityTree != null ? samplePrioritizedSlot() : (int) (Math.random() * mSize));
+
+            // Insertion sort, which is cheap for the small batches
+            int j = i;
+            while (j > 0 && mStates[mBatch[j - 1]] > mStates[slot]) {
+                mBatch[j] = mBatch[j - 1];
+                --j;
+            }
+            mBatch[j] = slot;
+        }
+    }
+
+    /**
+     * Samples a slot in proportion to its priority by descending the priority tree.
+     * 
+     * @return The sampled slot
+     */
+    private int samplePrioritizedSlot() {
+        double remaining = Math.random() * mPriorityTree[1];
+        int node = 1;
+        while (node < mFirstLeaf) {
+            final int left = 2 * node;
+            if (remaining < mPriorityTree[left]) {
+                node = left;
+            } else {
+                remaining -= mPriorityTree[left];
+                node = left + 1;
+            }
+        }
+
+        // Rounding errors may end up in an empty leaf
+        return Math.min(node - mFirstLeaf, mSize - 1);
+    }
+
+    /**
+     * Sets the priority of a slot and updates the sums above it.
+     * 
+     * @param slot
+     *            The slot of the transition
+     * @param priority
+     *            The new priority
+     */
+    private void setPriority(final int slot, final double priority) {
+        int node = mFirstLeaf + slot;
+        mPriorityTree[node] = priority;
+        while (node > 1) {
+            node /= 2;
+            mPriorityTree[node] = mPriorityTree[2 * node] + mPriorityTree[2 * node + 1];
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.uva.aa.policies;
+
+import com.uva.aa.State;
+
+/**
+ * Fills in the initial properties of a state when a policy first needs them, so that policies don't have to be
+ * prepared for every possible state up front.
+ */
+public interface StatePolicyInitialiser {
+
+    /**
+     * Initialises the properties of a state that wasn't mapped yet. The properties already hold a copy of the policy's
+     * default properties.
+     * 
+     * @param state
+     *            The state that is being mapped
+     * @param properties
+     *            The properties to initialise
+     */
+    void initialise(State state, StatePolicyProperties properties);
+}
@@ -2,6 +2,7 @@ package com.uva.aa.policies;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.uva.aa.enums.Action;
 
@@ -19,6 +20,15 @@ public class StatePolicyProperties {
     /** The values for actions within the state */
     private Map<Action, Double> mActionValues = new HashMap<Action, Double>();
 
+    /** The amount of recent visits to the state, used by bounded policies to decide which states to evict */
+    private int mVisitCount = 0;
+
+    /** The amount of agents that still need the state, which keeps bounded policies from evicting it */
+    private int mPinCount = 0;
+
+    /** The sampler of the action probabilities, or null until it's needed after they changed */
+    private volatile AliasSampler mSampler = null;
+
     /**
      * Retrieves the value for the state.
      * 
@@ -92,6 +102,7 @@ public class StatePolicyProperties {
      */
     public void setActionProbability(final Action action, final double probability) {
         mActionProbabilities.put(action, probability);
+        mSampler = null;
     }
 
     /**
@@ -106,11 +117,50 @@ public class StatePolicyProperties {
         mActionValues.put(action, value);
     }
 
+    /**
+     * Retrieves the amount of recent visits to the state. Only kept by bounded policies.
+     * 
+     * @return The amount of recent visits
+     */
+    public int getVisitCount() {
+        return mVisitCount;
+    }
+
+    /**
+     * Sets the amount of recent visits to the state.
+     * 
+     * @param visitCount
+     *            The amount of recent visits
+     */
+    public void setVisitCount(final int visitCount) {
+        mVisitCount = visitCount;
+    }
+
+    /**
+     * Retrieves the amount of agents that still need the state. Only kept by bounded policies.
+     * 
+     * @return The amount of pins
+     */
+    public int getPinCount() {
+        return mPinCount;
+    }
+
+    /**
+     * Sets the amount of agents that still need the state.
+     * 
+     * @param pinCount
+     *            The amount of pins
+     */
+    public void setPinCount(final int pinCount) {
+        mPinCount = pinCount;
+    }
+
     /**
      * Clears the action probabilities. Useful to reset them.
      */
     public void clearActionProbabilities() {
         mActionProbabilities.clear();
+        mSampler = null;
     }
 
     /**
@@ -120,6 +170,45 @@ public class StatePolicyProperties {
         mActionValues.clear();
     }
 
+    /**
+     * Samples an action based on the action probabilities. The sampler is only rebuilt after the probabilities changed,
+     * so that sampling takes constant time.
+     * 
+     * @return The sampled action or null if no action has a probability
+     */
+    public Action sampleAction() {
+        AliasSampler sampler = mSampler;
+        if (sampler == null) {
+            sampler = createSampler();
+            mSampler = sampler;
+        }
+        return (sampler != null ? sampler.sample() : null);
+    }
+
+    /**
+     * Builds a sampler of the current action probabilities.
+     * 
+     * @return The sampler or null if no action has a probability
+     */
+    protected AliasSampler createSampler() {
+        final double[] probabilities = new double[Action.values().length];
+        double sum = 0;
+        for (final Map.Entry<Action, Double> actionProbability : getActionProbabilities().entrySet()) {
+            probabilities[actionProbability.getKey().ordinal()] = actionProbability.getValue();
+            sum += actionProbability.getValue();
+        }
+        return (sum > 0 ? new AliasSampler(probabilities) : null);
+    }
+
+    /**
+     * Moves the action probabilities and values into concurrent maps, so that they can be read while another thread
+     * writes them. Should be called before the properties are shared between threads.
+     */
+    void makeConcurrent() {
+        mActionProbabilities = new ConcurrentHashMap<Action, Double>(mActionProbabilities);
+        mActionValues = new ConcurrentHashMap<Action, Double>(mActionValues);
+    }
+
     /**
      * Creates an identical clone of these properties.
      * 
@@ -130,6 +219,7 @@ public class StatePolicyProperties {
         clone.mActionProbabilities = new HashMap<Action, Double>(mActionProbabilities);
         clone.mActionValues = new HashMap<Action, Double>(mActionValues);
         clone.mValue = mValue;
+        clone.mSampler = mSampler;
         return clone;
     }
 
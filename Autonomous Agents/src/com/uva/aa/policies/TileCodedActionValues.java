@@ -0,0 +1,386 @@
+package com.uva.aa.policies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.uva.aa.Environment;
+import com.uva.aa.Location;
+import com.uva.aa.State;
+import com.uva.aa.agents.Agent;
+import com.uva.aa.enums.Action;
+
+/**
+ * A linear approximation of the action values of an agent, using tile coding over the toroidal offsets from the agent
+ * to each other agent. The memory used only depends on the size of the environment and the amount of tiles, not on
+ * the amount of states, so it can be used for environments in which a table of all states doesn't fit.
+ * 
+ * The offsets are centred, so that agents close to each other share tiles across the edges of the environment. Every
+ * tiling is shifted by a different amount, so that each state activates one tile per other agent per tiling. The
+ * value of an action is the sum of the weights of the active tiles for that action.
+ * 
+ * The features are computed into a reused buffer, so instances must not be used by several threads at once. Only
+ * action values are approximated: the state values and action probabilities of the properties can't be set.
+ */
+public class TileCodedActionValues {
+
+    /** The amount of actions, each of which has its own weight per tile */
+    private static final int ACTION_COUNT = Action.values().length;
+
+    /** The agent from whose location the offsets are taken */
+    private final Agent mAgent;
+
+    /** The other agents, each of which has its own tilings */
+    private final Agent[] mOtherAgents;
+
+    /** The width of the environment */
+    private final int mWidth;
+
+    /** The height of the environment */
+    private final int mHeight;
+
+    /** The amount of tilings per other agent */
+    private final int mTilings;
+
+    /** The width and height of a single tile */
+    private final int mTileWidth;
+
+    /** The amount of tiles in the x direction of a tiling */
+    private final int mTilesX;
+
+    /** The amount of tiles in the y direction of a tiling */
+    private final int mTilesY;
+
+    /** The weight per tile and action */
+    private final float[] mWeights;
+
+    /** The active tiles of the state that was last computed */
+    private final int[] mFeatures;
+
+    /** The state whose features were last computed, or null if none were */
+    private State mFeatureState = null;
+
+    /** Whether all agents were in the state whose features were last computed */
+    private boolean mHasFeatures = false;
+
+    /** The amount of times the weights changed, so that cached action values know when they're outdated */
+    private long mWeightVersion = 0;
+
+    /** The properties that were last requested, reused while the same state is requested */
+    private ApproximatedProperties mLastProperties = null;
+
+    /**
+     * Creates an approximation for the agents currently in the agent's environment. Every action starts with the
+     * default value in every state.
+     * 
+     * @param agent
+     *            The agent from whose location the offsets are taken
+     * @param tilings
+     *            The amount of tilings per other agent
+     * @param tileWidth
+     *            The width and height of a single tile
+     * @param defaultActionValue
+     *            The initial value of every action
+     */
+    public TileCodedActionValues(final Agent agent, final int tilings, final int tileWidth,
+            final double defaultActionValue) {
+        if (tilings < 1 || tileWidth < 1) {
+            throw new IllegalArgumentException("At least one tiling of tiles of at least one location is needed.");
+        }
+
+        final Environment environment = agent.getEnvironment();
+        final List<Agent> otherAgents = new ArrayList<Agent>(environment.getPredators());
+        otherAgents.addAll(environment.getPreys());
+        otherAgents.remove(agent);
+        if (otherAgents.isEmpty()) {
+            throw new RuntimeException("There are no other agents to base the features on.");
+        }
+
+        mAgent = agent;
+        mOtherAgents = otherAgents.toArray(new Agent[otherAgents.size()]);
+        mWidth = environment.getWidth();
+        mHeight = environment.getHeight();
+        mTilings = tilings;
+        mTileWidth = tileWidth;
+
+        // Shifting a tiling adds at most one tile in each direction
+        mTilesX = mWidth / tileWidth + 2;
+        mTilesY = mHeight / tileWidth + 2;
+
+        mFeatures = new int[mOtherAgents.length * tilings];
+        mWeights = new float[mFeatures.length * mTilesX * mTilesY * ACTION_COUNT];
+        Arrays.fill(mWeights, (float) (defaultActionValue / mFeatures.length));
+    }
+
+    /**
+     * Retrieves the amount of weights, which determines the memory used.
+     * 
+     * @return The amount of weights
+     */
+    public int getWeightCount() {
+        return mWeights.length;
+    }
+
+    /**
+     * Approximates the value of an action within a state.
+     * 
+     * @param state
+     *            The state from which the action is performed
+     * @param action
+     *            The action to find the value for
+     * 
+     * @return The approximated value, or 0 if not all agents are in the state
+     */
+    public double getActionValue(final State state, final Action action) {
+        if (!computeFeatures(state)) {
+            return 0;
+        }
+        return sumWeights(action.ordinal());
+    }
+
+    /**
+     * Moves the approximated value of an action within a state to the given value by spreading the difference over
+     * the weights of the active tiles. The values of similar states move along.
+     * 
+     * @param state
+     *            The state from which the action is performed
+     * @param action
+     *            The action to set the value for
+     * @param value
+     *            The new value of the action
+     */
+    public void setActionValue(final State state, final Action action, final double value) {
+        if (!computeFeatures(state)) {
+            return;
+        }
+
+        final int actionOffset = action.ordinal();
+        final float delta = (float) ((value - sumWeights(actionOffset)) / mFeatures.length);
+        for (final int feature : mFeatures) {
+            mWeights[feature * ACTION_COUNT + actionOffset] += delta;
+        }
+        ++mWeightVersion;
+    }
+
+    /**
+     * Zeroes the weights of the active tiles of a state for every action, so that all of its action values become 0.
+     * The values of the states that share those tiles move along.
+     * 
+     * @param state
+     *            The state to clear the action values of
+     */
+    public void clearActionValues(final State state) {
+        if (!computeFeatures(state)) {
+            return;
+        }
+
+        for (final int feature : mFeatures) {
+            Arrays.fill(mWeights, feature * ACTION_COUNT, (feature + 1) * ACTION_COUNT, 0f);
+        }
+        ++mWeightVersion;
+    }
+
+    /**
+     * Retrieves properties for a state which read and write the approximated action values. The properties aren't
+     * stored, so they hold no memory once they're no longer used, but those of the last requested state are reused
+     * while the same state is requested again.
+     * 
+     * @param state
+     *            The state to get the properties for
+     * 
+     * @return The properties of the state
+     */
+    public StatePolicyProperties getProperties(final State state) {
+        if (mLastProperties == null || mLastProperties.mState != state) {
+            mLastProperties = new ApproximatedProperties(state);
+        }
+        return mLastProperties;
+    }
+
+    /**
+     * Determines the active tiles of a state. States don't change, so the tiles of the last state are kept until
+     * another state is computed.
+     * 
+     * @param state
+     *            The state to compute the features for
+     * 
+     * @return True if the features were computed, false if not all agents are in the state
+     */
+    private boolean computeFeatures(final State state) {
+        if (state != mFeatureState) {
+            mHasFeatures = fillFeatures(state);
+            mFeatureState = state;
+        }
+        return mHasFeatures;
+    }
+
+    /**
+     * Computes the active tiles of a state into the buffer.
+     * 
+     * @param state
+     *            The state to compute the features for
+     * 
+     * @return True if the features were computed, false if not all agents are in the state
+     */
+    private boolean fillFeatures(final State state) {
+        final Location location = state.getAgentLocation(mAgent);
+        if (location == null) {
+            return false;
+        }
+
+        int feature = 0;
+        for (final Agent otherAgent : mOtherAgents) {
+            final Location otherLocation = state.getAgentLocation(otherAgent);
+            if (otherLocation == null) {
+                return false;
+            }
+
+            // Centre the toroidal offsets so that nearby agents are in the middle of the tilings
+            final int offsetX = wrap(otherLocation.getX() - location.getX() + mWidth / 2, mWidth);
+            final int offsetY = wrap(otherLocation.getY() - location.getY() + mHeight / 2, mHeight);
+
+            for (int tiling = 0; tiling < mTilings; ++tiling) {
+                // Shift the tilings asymmetrically so they don't all overlap along the diagonal
+                final int shiftX = tiling * mTileWidth / mTilings;
+                final int shiftY = (3 * tiling * mTileWidth / mTilings) % mTileWidth;
+                final int tileX = (offsetX + shiftX) / mTileWidth;
+                final int tileY = (offsetY + shiftY) / mTileWidth;
+                mFeatures[feature] = (feature * mTilesX + tileX) * mTilesY + tileY;
+                ++feature;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sums the weights of an action for the active tiles.
+     * 
+     * @param actionOffset
+     *            The ordinal of the action
+     * 
+     * @return The sum of the weights
+     */
+    private double sumWeights(final int actionOffset) {
+        double sum = 0;
+        for (final int feature : mFeatures) {
+            sum += mWeights[feature * ACTION_COUNT + actionOffset];
+        }
+        return sum;
+    }
+
+    /**
+     * Wraps a coordinate around the size of the environment.
+     * 
+     * @param coordinate
+     *            The coordinate to wrap
+     * @param size
+     *            The size of the environment in the coordinate's direction
+     * 
+     * @return The coordinate within [0, size)
+     */
+    private static int wrap(final int coordinate, final int size) {
+        final int wrapped = coordinate % size;
+        return (wrapped < 0 ? wrapped + size : wrapped);
+    }
+
+    /**
+     * Properties of a single state that read and write the approximated action values instead of keeping their own.
+     */
+    private class ApproximatedProperties extends StatePolicyProperties {
+
+        /** The state that the properties belong to */
+        private final State mState;
+
+        /** The approximated action values of the state, refilled when the weights changed */
+        private final Map<Action, Double> mActionValues = new EnumMap<Action, Double>(Action.class);
+
+        /** The read-only view of the approximated action values */
+        private final Map<Action, Double> mActionValuesView = Collections.unmodifiableMap(mActionValues);
+
+        /** The version of the weights that the action values were approximated with, or -1 if they weren't yet */
+        private long mActionValuesVersion = -1;
+
+        /**
+         * Creates the properties for a state.
+         * 
+         * @param state
+         *            The state that the properties belong to
+         */
+        public ApproximatedProperties(final State state) {
+            mState = state;
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * The mapping is a read-only view of the approximated values, which are only approximated again once the
+         * weights changed. It's empty if not all agents are in the state, as for terminal states.
+         */
+        @Override
+        public Map<Action, Double> getActionValues() {
+            if (mActionValuesVersion != mWeightVersion) {
+                mActionValues.clear();
+                if (computeFeatures(mState)) {
+                    for (final Action action : Action.values()) {
+                        mActionValues.put(action, sumWeights(action.ordinal()));
+                    }
+                }
+                mActionValuesVersion = mWeightVersion;
+            }
+            return mActionValuesView;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public double getActionValue(final Action action) {
+            return TileCodedActionValues.this.getActionValue(mState, action);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setActionValue(final Action action, final double value) {
+            TileCodedActionValues.this.setActionValue(mState, action, value);
+        }
+
+        /**
+         * {@inheritDoc}
+         * 
+         * Zeroes the weights of the state's active tiles.
+         */
+        @Override
+        public void clearActionValues() {
+            TileCodedActionValues.this.clearActionValues(mState);
+        }
+
+        /**
+         * Not supported, as only action values are approximated.
+         */
+        @Override
+        public void setValue(final double value) {
+            throw new UnsupportedOperationException("Approximated properties only hold action values.");
+        }
+
+        /**
+         * Not supported, as only action values are approximated.
+         */
+        @Override
+        public void setActionProbability(final Action action, final double probability) {
+            throw new UnsupportedOperationException("Approximated properties only hold action values.");
+        }
+
+        /**
+         * Not supported, as only action values are approximated.
+         */
+        @Override
+        public void clearActionProbabilities() {
+            throw new UnsupportedOperationException("Approximated properties only hold action values.");
+        }
+    }
+}
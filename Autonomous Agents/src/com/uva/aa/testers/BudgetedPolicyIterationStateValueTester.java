@@ -0,0 +1,52 @@
+package com.uva.aa.testers;
+
+import com.uva.aa.policies.ConvergenceListener;
+import com.uva.aa.policies.PolicyManager;
+
+/**
+ * Tests the state values for policy iteration with a relative error bound and a budget, printing the progress of
+ * every sweep and improvement step.
+ */
+public class BudgetedPolicyIterationStateValueTester extends StateValueTester {
+
+    /** The bound on the error of the state values relative to the largest state value */
+    private static final double RELATIVE_ERROR_BOUND = 0.001;
+
+    /** The maximum amount of sweeps over the state space */
+    private static final int MAX_SWEEPS = 50;
+
+    /** The wall-clock budget in ms */
+    private static final long TIME_BUDGET = 10000;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void improvePolicy(final PolicyManager policyManager) {
+        policyManager.setRelativeErrorBound(RELATIVE_ERROR_BOUND);
+        policyManager.setMaxSweeps(MAX_SWEEPS);
+        policyManager.setTimeBudget(TIME_BUDGET);
+        policyManager.setConvergenceListener(new ConvergenceListener() {
+            public void onSweep(final int sweep, final double maxDelta, final double meanDelta,
+                    final int statesChanged) {
+                System.out.println("Sweep " + sweep + ": max delta " + maxDelta + ", mean delta " + meanDelta + ", "
+                        + statesChanged + " states changed");
+            }
+
+            public void onPolicyImprovement(final int iteration, final int policyChanges) {
+                System.out.println("Improvement " + iteration + ": " + policyChanges + " states changed action");
+            }
+        });
+
+        policyManager.iteratePolicy();
+        System.out.println("Stopped because of " + policyManager.getStopReason());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected int getIterations(final PolicyManager policyManager) {
+        return policyManager.getPolicyUpdateStateValueIterations();
+    }
+}
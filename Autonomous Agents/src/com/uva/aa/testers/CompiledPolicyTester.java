@@ -0,0 +1,101 @@
+package com.uva.aa.testers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.uva.aa.Environment;
+import com.uva.aa.Game;
+import com.uva.aa.State;
+import com.uva.aa.StateEnumerator;
+import com.uva.aa.agents.PredatorAgent;
+import com.uva.aa.policies.CompiledPolicy;
+import com.uva.aa.policies.Policy;
+import com.uva.aa.policies.PolicyManager;
+
+/**
+ * Iterates the values of the full state-space, compiles the resulting policy and compares how fast both serve actions
+ * before playing games with the predator frozen on the compiled policy.
+ */
+public class CompiledPolicyTester {
+
+    /** The amount of times to serve an action for every state */
+    private final int mRepetitions;
+
+    /** The amount of games to play with the frozen predator */
+    private final int mGames;
+
+    /**
+     * Prepares a compiled policy test.
+     * 
+     * @param repetitions
+     *            The amount of times to serve an action for every state
+     * @param games
+     *            The amount of games to play with the frozen predator
+     */
+    public CompiledPolicyTester(final int repetitions, final int games) {
+        mRepetitions = repetitions;
+        mGames = games;
+    }
+
+    /**
+     * Performs value iteration, compiles the policy and plays the games. Prints out the duration of the compilation,
+     * the nanoseconds per action served by either policy and the average amount of rounds of the frozen games.
+     */
+    public void performTest() {
+        final Game game = new Game(11, 11);
+        game.addPrey(5, 5);
+        game.addPredator(0, 0);
+
+        final Environment environment = game.getEnvironment();
+        environment.setReducedStateSpace(false);
+        final PredatorAgent predator = environment.getPredators().get(0);
+        environment.getPreys().get(0).prepare();
+        predator.prepare();
+
+        final Policy policy = predator.getPolicy();
+        new PolicyManager(policy, environment).iterateValues();
+
+        final StateEnumerator enumerator = environment.getStateEnumerator(false);
+        long startTime = System.nanoTime();
+        final CompiledPolicy compiledPolicy = CompiledPolicy.compileProbabilities(policy, enumerator);
+        System.out.println("Compiled " + enumerator.getIndexCount() + " states in " + (System.nanoTime() - startTime)
+                / 1e6 + "ms");
+
+        // Only serve actions for the states in which there are any
+        final List<State> states = new ArrayList<State>();
+        for (final State state : enumerator) {
+            if (compiledPolicy.getAction(state) != null) {
+                states.add(state);
+            }
+        }
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < mRepetitions; ++i) {
+            for (final State state : states) {
+                policy.getActionBasedOnProbability(state);
+            }
+        }
+        System.out.println("Policy: " + (System.nanoTime() - startTime) / ((double) mRepetitions * states.size())
+                + "ns per action");
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < mRepetitions; ++i) {
+            for (final State state : states) {
+                compiledPolicy.getAction(state);
+            }
+        }
+        System.out.println("Compiled policy: " + (System.nanoTime() - startTime)
+                / ((double) mRepetitions * states.size()) + "ns per action");
+
+        predator.setCompiledPolicy(compiledPolicy);
+        game.setHumanTest(false);
+        int totalRounds = 0;
+        for (int i = 0; i < mGames; ++i) {
+            game.resetGame();
+            game.start();
+            totalRounds += game.getRoundsPlayed();
+        }
+        System.out.println("Frozen predator caught the prey in " + (double) totalRounds / mGames
+                + " rounds on average");
+    }
+}
@@ -0,0 +1,112 @@
+package com.uva.aa.testers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.uva.aa.Environment;
+import com.uva.aa.Game;
+import com.uva.aa.State;
+import com.uva.aa.enums.Action;
+import com.uva.aa.policies.ConcurrentPolicy;
+import com.uva.aa.policies.PolicyManager;
+import com.uva.aa.policies.StatePolicyInitialiser;
+import com.uva.aa.policies.StatePolicyProperties;
+
+/**
+ * Iterates the values of the full state-space into a concurrent policy, while several evaluation threads keep choosing
+ * actions from that same policy.
+ */
+public class ConcurrentPolicyTester {
+
+    /** The amount of evaluation threads */
+    private final int mEvaluatorCount;
+
+    /**
+     * Prepares a concurrent policy test.
+     * 
+     * @param evaluatorCount
+     *            The amount of evaluation threads
+     */
+    public ConcurrentPolicyTester(final int evaluatorCount) {
+        mEvaluatorCount = evaluatorCount;
+    }
+
+    /**
+     * Performs value iteration while the evaluators choose actions for the states in turn. Prints out the duration in
+     * seconds, the amount of chosen actions and the amount of times an evaluator couldn't choose an action.
+     */
+    public void performTest() {
+        final Game game = new Game(11, 11);
+        game.addPrey(5, 5);
+        game.addPredator(0, 0);
+
+        final Environment environment = game.getEnvironment();
+        environment.setReducedStateSpace(false);
+        environment.getPreys().get(0).prepare();
+        environment.getPredators().get(0).prepare();
+
+        // Start out with the same random policy as the predator
+        final ConcurrentPolicy policy = new ConcurrentPolicy();
+        policy.setInitialiser(new StatePolicyInitialiser() {
+            public void initialise(final State state, final StatePolicyProperties properties) {
+                if (state.getPreys().isEmpty()) {
+                    return;
+                }
+
+                for (final Action action : Action.values()) {
+                    properties.setActionProbability(action, 1.0 / Action.values().length);
+                }
+            }
+        });
+
+        final List<State> states = new ArrayList<State>();
+        for (final State state : environment.getStateEnumerator(false)) {
+            states.add(state);
+        }
+
+        final AtomicBoolean learning = new AtomicBoolean(true);
+        final AtomicLong chosenActions = new AtomicLong();
+        final AtomicLong failedChoices = new AtomicLong();
+        final List<Thread> evaluators = new ArrayList<Thread>();
+        for (int i = 0; i < mEvaluatorCount; ++i) {
+            final int offset = i * states.size() / mEvaluatorCount;
+            final Thread evaluator = new Thread(new Runnable() {
+                public void run() {
+                    long chosen = 0;
+                    long failed = 0;
+                    for (int j = offset; learning.get(); j = (j + 1) % states.size()) {
+                        if (policy.getActionBasedOnProbability(states.get(j)) != null) {
+                            ++chosen;
+                        } else {
+                            ++failed;
+                        }
+                    }
+                    chosenActions.addAndGet(chosen);
+                    failedChoices.addAndGet(failed);
+                }
+            }, "Evaluator " + i);
+            evaluator.start();
+            evaluators.add(evaluator);
+        }
+
+        final long startTime = System.nanoTime();
+        new PolicyManager(policy, environment).iterateValues();
+        final double duration = (System.nanoTime() - startTime) / 1e9;
+
+        learning.set(false);
+        for (final Thread evaluator : evaluators) {
+            try {
+                evaluator.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        System.out.println("Iterated values of " + policy.getStateCount() + " states in " + duration + "s while "
+                + mEvaluatorCount + " evaluators chose " + chosenActions.get() + " actions and failed "
+                + failedChoices.get() + " times");
+    }
+}
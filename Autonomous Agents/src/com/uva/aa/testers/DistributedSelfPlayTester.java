@@ -0,0 +1,137 @@
+package com.uva.aa.testers;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.uva.aa.distributed.SelfPlayCoordinator;
+import com.uva.aa.distributed.SelfPlayWorker;
+
+/**
+ * Runs a distributed self-play with a coordinator in this process and its workers in separate processes. The output
+ * of each worker is prefixed with its number.
+ */
+public class DistributedSelfPlayTester {
+
+    /** The amount of worker processes */
+    private final int mWorkerCount;
+
+    /** The amount of batches per worker */
+    private final int mBatches;
+
+    /** The amount of games per batch */
+    private final int mGamesPerBatch;
+
+    /**
+     * Prepares a distributed self-play test.
+     * 
+     * @param workerCount
+     *            The amount of worker processes
+     * @param batches
+     *            The amount of batches per worker
+     * @param gamesPerBatch
+     *            The amount of games per batch
+     */
+    public DistributedSelfPlayTester(final int workerCount, final int batches, final int gamesPerBatch) {
+        mWorkerCount = workerCount;
+        mBatches = batches;
+        mGamesPerBatch = gamesPerBatch;
+    }
+
+    /**
+     * Starts the coordinator and the workers and waits for them to finish. Prints out the amount of learned transitions
+     * and states, and the duration in seconds. When a worker fails, the coordinator is closed so that the other workers
+     * stop as well.
+     * 
+     * @throws IOException
+     *             Thrown when the coordinator or a worker could not be started, or when the coordinator failed
+     */
+    public void performTest() throws IOException {
+        final long startTime = System.nanoTime();
+
+        final SelfPlayCoordinator coordinator = new SelfPlayCoordinator(mWorkerCount);
+        final AtomicReference<IOException> coordinatorFailure = new AtomicReference<IOException>();
+        final Thread coordinatorThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    coordinator.run();
+                } catch (final IOException e) {
+                    coordinatorFailure.set(e);
+                }
+            }
+        }, "Self-play coordinator");
+        coordinatorThread.setDaemon(true);
+        coordinatorThread.start();
+
+        final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        final List<Process> workers = new ArrayList<Process>();
+        for (int i = 0; i < mWorkerCount; ++i) {
+            final ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    SelfPlayWorker.class.getName(), String.valueOf(coordinator.getPort()), String.valueOf(mBatches),
+                    String.valueOf(mGamesPerBatch));
+            builder.redirectErrorStream(true);
+
+            final Process worker;
+            try {
+                worker = builder.start();
+            } catch (final IOException e) {
+                coordinator.close();
+                throw e;
+            }
+            pumpOutput(worker, "Worker " + (i + 1) + ": ");
+            workers.add(worker);
+        }
+
+        try {
+            for (final Process worker : workers) {
+                if (worker.waitFor() != 0) {
+                    coordinator.close();
+                    throw new RuntimeException("A worker exited with code " + worker.exitValue() + ".");
+                }
+            }
+            coordinatorThread.join();
+        } catch (final InterruptedException e) {
+            coordinator.close();
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (coordinatorFailure.get() != null) {
+            throw new IOException("The coordinator failed.", coordinatorFailure.get());
+        }
+
+        System.out.println("Learned from " + coordinator.getTransitionCount() + " transitions in "
+                + coordinator.getPolicy().getStateCount() + " states in " + (System.nanoTime() - startTime) / 1e9
+                + "s");
+    }
+
+    /**
+     * Prints the output of a worker process on a separate thread.
+     * 
+     * @param worker
+     *            The worker process
+     * @param prefix
+     *            The text to print in front of each line
+     */
+    private void pumpOutput(final Process worker, final String prefix) {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(worker.getInputStream()));
+        final Thread pumpThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        System.out.println(prefix + line);
+                    }
+                } catch (final IOException e) {
+                    // The worker is gone, so there is nothing left to print
+                }
+            }
+        });
+        pumpThread.setDaemon(true);
+        pumpThread.start();
+    }
+}
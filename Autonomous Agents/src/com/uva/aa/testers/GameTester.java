@@ -1,6 +1,8 @@
 package com.uva.aa.testers;
 
+import com.uva.aa.Config;
 import com.uva.aa.Game;
+import com.uva.aa.metrics.EpisodeMetricsRecorder;
 
 /**
  * A tester class that performs multiple tests and finds the mean average.
@@ -25,6 +27,45 @@ public abstract class GameTester extends MeanTester {
      */
     public abstract Game getGame();
 
+    /**
+     * Sets the configuration used by the tested game and its agents. Should be set before running the tests.
+     * 
+     * @param config
+     *            The configuration to test with
+     */
+    public void setConfig(final Config config) {
+        mGame.setConfig(config);
+    }
+
+    /**
+     * Sets the recorder that the metrics of each tested game are recorded to.
+     * 
+     * @param metricsRecorder
+     *            The recorder for the metrics or null to stop recording
+     */
+    public void setMetricsRecorder(final EpisodeMetricsRecorder metricsRecorder) {
+        mGame.setMetricsRecorder(metricsRecorder);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Also closes the policy files of the game's agents afterwards, so the tests can only be run once.
+     */
+    @Override
+    public void runTests(final int numRuns) {
+        super.runTests(numRuns);
+        close();
+    }
+
+    /**
+     * Writes the policies of the game's agents back to their files and closes them. Should be called once no more
+     * single tests will be performed; running the tests calls it by itself.
+     */
+    public void close() {
+        mGame.close();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -40,8 +40,9 @@ public class OffPolicyMCGameTester extends GameTester {
         // Perform the test
         mGame.start();
 
-        // Make the predator follow the trained policy
+        // Make the predator follow a snapshot of the trained policy
         predator.setTraining(false);
+        predator.setEvaluationSnapshot(predator.getPolicy().snapshot());
 
         // Return the amount of rounds it took to finish the game as a result
         return super.performSingleTest(numRun);
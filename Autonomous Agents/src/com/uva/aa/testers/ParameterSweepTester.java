@@ -0,0 +1,346 @@
+package com.uva.aa.testers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.uva.aa.Config;
+import com.uva.aa.enums.ConfigParameter;
+
+/**
+ * A tester that sweeps over the parameters of the configuration with a grid or random search. The game testers of the
+ * configurations run in parallel up to each checkpoint, after which the configurations that are clearly losing against
+ * the best one at that checkpoint are stopped early. As every configuration reaches a checkpoint before any is judged,
+ * the stops don't depend on the order of the configurations or on how their tests are scheduled. A results table is
+ * printed once all configurations have finished.
+ */
+public abstract class ParameterSweepTester {
+
+    /** The number of checkpoints at which the configurations are compared to each other */
+    private static final int CHECKPOINTS = 10;
+
+    /** The factor by which a mean result may exceed the best mean at a checkpoint before being considered as losing */
+    private static final double EARLY_STOP_FACTOR = 2.0;
+
+    /** The configuration that the swept parameters are applied to */
+    private Config mBaseConfig = new Config();
+
+    /** The values to try for each parameter during a grid search */
+    private final Map<ConfigParameter, double[]> mGridValues = new LinkedHashMap<ConfigParameter, double[]>();
+
+    /** The minimum and maximum value for each parameter during a random search */
+    private final Map<ConfigParameter, double[]> mRandomRanges = new LinkedHashMap<ConfigParameter, double[]>();
+
+    /**
+     * Creates a new game tester that will be run for a single configuration.
+     * 
+     * @return The game tester
+     */
+    protected abstract GameTester createTester();
+
+    /**
+     * Sets the configuration that the swept parameters are applied to.
+     * 
+     * @param baseConfig
+     *            The base configuration
+     */
+    public void setBaseConfig(final Config baseConfig) {
+        mBaseConfig = baseConfig;
+    }
+
+    /**
+     * Sets the values to try for a parameter during a grid search.
+     * 
+     * @param parameter
+     *            The parameter to sweep over
+     * @param values
+     *            The values to try
+     */
+    public void setGridValues(final ConfigParameter parameter, final double... values) {
+        mGridValues.put(parameter, values);
+    }
+
+    /**
+     * Sets the range in which values for a parameter are drawn uniformly during a random search.
+     * 
+     * @param parameter
+     *            The parameter to sweep over
+     * @param min
+     *            The minimum value of the parameter
+     * @param max
+     *            The maximum value of the parameter
+     */
+    public void setRandomRange(final ConfigParameter parameter, final double min, final double max) {
+        mRandomRanges.put(parameter, new double[] { min, max });
+    }
+
+    /**
+     * Runs the tests for each combination of the grid values.
+     * 
+     * @param numRuns
+     *            The amount of tests to perform per configuration
+     */
+    public void runGridSearch(final int numRuns) {
+        List<Config> configs = new ArrayList<Config>();
+        configs.add(mBaseConfig.clone());
+
+        // Expand the configurations with every value of every parameter
+        for (final Map.Entry<ConfigParameter, double[]> gridValues : mGridValues.entrySet()) {
+            final List<Config> expandedConfigs = new ArrayList<Config>();
+            for (final Config config : configs) {
+                for (final double value : gridValues.getValue()) {
+                    final Config expandedConfig = config.clone();
+                    gridValues.getKey().setValue(expandedConfig, value);
+                    expandedConfigs.add(expandedConfig);
+                }
+            }
+            configs = expandedConfigs;
+        }
+
+        runSweep(configs, new ArrayList<ConfigParameter>(mGridValues.keySet()), numRuns);
+    }
+
+    /**
+     * Runs the tests for a number of configurations with values drawn from the random ranges.
+     * 
+     * @param numConfigs
+     *            The amount of configurations to try
+     * @param numRuns
+     *            The amount of tests to perform per configuration
+     */
+    public void runRandomSearch(final int numConfigs, final int numRuns) {
+        final List<Config> configs = new ArrayList<Config>();
+        for (int i = 0; i < numConfigs; ++i) {
+            final Config config = mBaseConfig.clone();
+            for (final Map.Entry<ConfigParameter, double[]> randomRange : mRandomRanges.entrySet()) {
+                final double min = randomRange.getValue()[0];
+                final double max = randomRange.getValue()[1];
+                randomRange.getKey().setValue(config, min + Math.random() * (max - min));
+            }
+            configs.add(config);
+        }
+
+        runSweep(configs, new ArrayList<ConfigParameter>(mRandomRanges.keySet()), numRuns);
+    }
+
+    /**
+     * Runs the tests for all configurations in parallel and prints the results table.
+     * 
+     * @param configs
+     *            The configurations to test
+     * @param parameters
+     *            The parameters that were swept, to show in the results table
+     * @param numRuns
+     *            The amount of tests to perform per configuration
+     */
+    private void runSweep(final List<Config> configs, final List<ConfigParameter> parameters, final int numRuns) {
+        final List<SweepResult> results = new ArrayList<SweepResult>();
+        List<SweepResult> running = new ArrayList<SweepResult>();
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (final Config config : configs) {
+                final SweepResult result = new SweepResult(config, createTester());
+                results.add(result);
+                running.add(result);
+            }
+
+            final int checkpointInterval = Math.max(1, numRuns / CHECKPOINTS);
+            for (int checkpoint = 1; !running.isEmpty(); ++checkpoint) {
+                final int targetRuns = (checkpoint <= CHECKPOINTS ? Math.min(numRuns, checkpoint * checkpointInterval)
+                        : numRuns);
+                runUntil(executor, running, targetRuns);
+
+                // Stop the configurations that are finished or clearly losing against the best one at the checkpoint
+                double bestMean = Double.POSITIVE_INFINITY;
+                for (final SweepResult result : running) {
+                    bestMean = Math.min(bestMean, result.getMean());
+                }
+                final List<SweepResult> stillRunning = new ArrayList<SweepResult>();
+                for (final SweepResult result : running) {
+                    if (targetRuns < numRuns && result.getMean() > bestMean * EARLY_STOP_FACTOR) {
+                        result.mStoppedEarly = true;
+                    }
+                    if (targetRuns < numRuns && !result.mStoppedEarly) {
+                        stillRunning.add(result);
+                    } else {
+                        result.close();
+                    }
+                }
+                running = stillRunning;
+            }
+        } finally {
+            executor.shutdownNow();
+            for (final SweepResult result : running) {
+                result.close();
+            }
+        }
+
+        printResults(results, parameters);
+    }
+
+    /**
+     * Runs the tests of each of the configurations in parallel until they have all performed an amount of tests.
+     * 
+     * @param executor
+     *            The executor to run the tests of the configurations on
+     * @param results
+     *            The results of the configurations to perform tests for
+     * @param targetRuns
+     *            The amount of tests that each configuration should have performed afterwards
+     */
+    private void runUntil(final ExecutorService executor, final List<SweepResult> results, final int targetRuns) {
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final SweepResult result : results) {
+            futures.add(executor.submit(new Callable<Void>() {
+                public Void call() {
+                    while (result.mRuns < targetRuns) {
+                        result.addResult(result.mTester.performSingleTest(result.mRuns));
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        // Wait for all configurations, even after a failure, so no tester is closed while it's still testing
+        Throwable failure = null;
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                throw new RuntimeException("The parameter sweep was interrupted.", e);
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure != null) {
+            throw new RuntimeException("A configuration failed during the parameter sweep.", failure);
+        }
+    }
+
+    /**
+     * Prints the results table, with the finished configurations sorted by their mean result.
+     * 
+     * @param results
+     *            The results of all configurations
+     * @param parameters
+     *            The parameters that were swept
+     */
+    private void printResults(final List<SweepResult> results, final List<ConfigParameter> parameters) {
+        Collections.sort(results, new Comparator<SweepResult>() {
+            public int compare(final SweepResult first, final SweepResult second) {
+                if (first.mStoppedEarly != second.mStoppedEarly) {
+                    return (first.mStoppedEarly ? 1 : -1);
+                }
+                return Double.compare(first.getMean(), second.getMean());
+            }
+        });
+
+        // Print the header
+        final StringBuilder header = new StringBuilder();
+        for (final ConfigParameter parameter : parameters) {
+            header.append(String.format("%-28s", parameter.name()));
+        }
+        header.append(String.format("%8s %12s %12s  %s", "Runs", "Mean", "Std. dev.", "Status"));
+        System.out.println(header);
+
+        // Print a row for each configuration
+        for (final SweepResult result : results) {
+            final StringBuilder row = new StringBuilder();
+            for (final ConfigParameter parameter : parameters) {
+                row.append(String.format("%-28.6g", parameter.getValue(result.mConfig)));
+            }
+            row.append(String.format("%8d %12.3f %12.3f  %s", result.mRuns, result.getMean(),
+                    result.getStandardDeviation(), (result.mStoppedEarly ? "stopped early" : "finished")));
+            System.out.println(row);
+        }
+        System.out.println();
+    }
+
+    /**
+     * The results of the tests for a single configuration.
+     */
+    private static class SweepResult {
+
+        /** The configuration that was tested */
+        private final Config mConfig;
+
+        /** The game tester performing the tests, null once it's closed */
+        private GameTester mTester;
+
+        /** The amount of tests performed */
+        private int mRuns = 0;
+
+        /** The sum of the test results */
+        private long mResultSum = 0;
+
+        /** The sum of the squared test results */
+        private long mSquaredSum = 0;
+
+        /** Whether the tests were stopped early because the configuration was clearly losing */
+        private boolean mStoppedEarly = false;
+
+        /**
+         * Prepares the results for a configuration.
+         * 
+         * @param config
+         *            The configuration that is tested
+         * @param tester
+         *            The game tester to perform the tests with
+         */
+        public SweepResult(final Config config, final GameTester tester) {
+            mConfig = config;
+            mTester = tester;
+            mTester.setConfig(config);
+        }
+
+        /**
+         * Closes the game tester once no more tests will be performed for the configuration.
+         */
+        public void close() {
+            if (mTester != null) {
+                mTester.close();
+                mTester = null;
+            }
+        }
+
+        /**
+         * Adds the result of a single test.
+         * 
+         * @param result
+         *            The result value of the test
+         */
+        public void addResult(final int result) {
+            ++mRuns;
+            mResultSum += result;
+            mSquaredSum += (long) result * result;
+        }
+
+        /**
+         * Retrieves the mean average of the results.
+         * 
+         * @return The mean result
+         */
+        public double getMean() {
+            return ((double) mResultSum) / mRuns;
+        }
+
+        /**
+         * Retrieves the standard deviation of the results.
+         * 
+         * @return The standard deviation
+         */
+        public double getStandardDeviation() {
+            return Math.sqrt(((double) mSquaredSum) / mRuns - Math.pow(getMean(), 2));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.uva.aa.testers;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.uva.aa.Environment;
+import com.uva.aa.Game;
+import com.uva.aa.agents.PredatorAgent;
+import com.uva.aa.policies.PolicyExporter;
+import com.uva.aa.policies.PolicyManager;
+
+/**
+ * Iterates the values of the full state-space and streams the resulting policy to a binary and a CSV file.
+ */
+public class PolicyExportTester {
+
+    /** The file to write the binary export to */
+    private final File mBinaryFile;
+
+    /** The file to write the CSV export to */
+    private final File mCsvFile;
+
+    /**
+     * Prepares an export test.
+     * 
+     * @param binaryFile
+     *            The file to write the binary export to
+     * @param csvFile
+     *            The file to write the CSV export to
+     */
+    public PolicyExportTester(final File binaryFile, final File csvFile) {
+        mBinaryFile = binaryFile;
+        mCsvFile = csvFile;
+    }
+
+    /**
+     * Performs value iteration and exports the policy in both formats. Prints out the amount of exported states and
+     * the duration of each export in seconds.
+     * 
+     * @throws IOException
+     *             Thrown when the policy could not be exported
+     */
+    public void performTest() throws IOException {
+        final Game game = new Game(11, 11);
+        game.addPrey(5, 5);
+        game.addPredator(0, 0);
+
+        final Environment environment = game.getEnvironment();
+        environment.setReducedStateSpace(false);
+        final PredatorAgent predator = environment.getPredators().get(0);
+        environment.getPreys().get(0).prepare();
+        predator.prepare();
+
+        new PolicyManager(predator.getPolicy(), environment).iterateValues();
+
+        final PolicyExporter exporter = new PolicyExporter(predator.getPolicy(), environment.getStateEnumerator(false));
+
+        long startTime = System.nanoTime();
+        int exportedStates = exporter.exportBinary(mBinaryFile);
+        System.out.println("Exported " + exportedStates + " states to " + mBinaryFile + " in "
+                + (System.nanoTime() - startTime) / 1e9 + "s");
+
+        startTime = System.nanoTime();
+        exportedStates = exporter.exportCsv(mCsvFile);
+        System.out.println("Exported " + exportedStates + " states to " + mCsvFile + " in "
+                + (System.nanoTime() - startTime) / 1e9 + "s");
+    }
+}
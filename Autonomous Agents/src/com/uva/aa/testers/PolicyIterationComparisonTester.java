@@ -0,0 +1,80 @@
+package com.uva.aa.testers;
+
+import com.uva.aa.Environment;
+import com.uva.aa.Game;
+import com.uva.aa.Location;
+import com.uva.aa.State;
+import com.uva.aa.agents.PredatorAgent;
+import com.uva.aa.agents.PreyAgent;
+import com.uva.aa.policies.PolicyManager;
+
+/**
+ * Compares policy iteration with modified policy iteration and exact policy evaluation on the reduced state-space.
+ */
+public class PolicyIterationComparisonTester {
+
+    /** The amounts of evaluation sweeps per improvement step to test modified policy iteration with */
+    private static final int[] EVALUATION_SWEEPS = { 1, 3, 10 };
+
+    /**
+     * Performs several tests to demonstrate the difference between the policy evaluation methods.
+     */
+    public void performTest() {
+        performIteratePolicyTest(0, false);
+        for (final int evaluationSweeps : EVALUATION_SWEEPS) {
+            performIteratePolicyTest(evaluationSweeps, false);
+        }
+        performIteratePolicyTest(0, true);
+    }
+
+    /**
+     * Prepares a game and times the policy iteration done for it. Prints out the test duration in seconds, the
+     * iterations and the value of the initial state.
+     * 
+     * @param evaluationSweeps
+     *            The amount of evaluation sweeps per improvement step for modified policy iteration, or 0 to evaluate
+     *            to convergence
+     * @param exactEvaluation
+     *            True to evaluate the policies exactly
+     */
+    private void performIteratePolicyTest(final int evaluationSweeps, final boolean exactEvaluation) {
+        // Creates a game with a prey and predator
+        final Game game = new Game(11, 11);
+        game.addPrey(5, 5);
+        game.addPredator(0, 0);
+
+        final Environment environment = game.getEnvironment();
+        environment.setReducedStateSpace(true);
+        final PreyAgent prey = environment.getPreys().get(0);
+        final PredatorAgent predator = environment.getPredators().get(0);
+
+        prey.prepare();
+        predator.prepare();
+
+        final PolicyManager policyManager = new PolicyManager(predator.getPolicy(), environment);
+
+        final double startTime = System.nanoTime();
+        if (exactEvaluation) {
+            policyManager.iteratePolicyExactly();
+        } else if (evaluationSweeps > 0) {
+            policyManager.iteratePolicyModified(evaluationSweeps);
+        } else {
+            policyManager.iteratePolicy();
+        }
+        final double testDuration = (System.nanoTime() - startTime) / Math.pow(10, 9);
+
+        final State initialState = State.buildState(predator, new Location(environment, 0, 0), prey, new Location(
+                environment, 5, 5));
+
+        System.out.println((exactEvaluation ? "Exact policy iteration" : (evaluationSweeps > 0 ? "Modified policy "
+                + "iteration with " + evaluationSweeps + " sweeps" : "Policy iteration"))
+                + ": "
+                + testDuration
+                + "s for "
+                + policyManager.getPolicyIterationIterations()
+                + " improvements and "
+                + policyManager.getPolicyUpdateStateValueIterations()
+                + " sweeps, V(initial state) = "
+                + predator.getPolicy().getStateValue(initialState));
+    }
+}
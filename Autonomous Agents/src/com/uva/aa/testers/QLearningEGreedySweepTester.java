@@ -0,0 +1,14 @@
+package com.uva.aa.testers;
+
+/**
+ * Sweeps over the parameters of a Q-Learning e-Greedy predator.
+ */
+public class QLearningEGreedySweepTester extends ParameterSweepTester {
+
+    /**
+     * {@inheritDoc}
+     */
+    protected GameTester createTester() {
+        return new QLearningEGreedyGameTester();
+    }
+}
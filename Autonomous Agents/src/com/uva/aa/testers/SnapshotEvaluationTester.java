@@ -0,0 +1,170 @@
+package com.uva.aa.testers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.uva.aa.Config;
+import com.uva.aa.Game;
+import com.uva.aa.State;
+import com.uva.aa.agents.PredatorAgent;
+import com.uva.aa.enums.Action;
+import com.uva.aa.policies.Policy;
+import com.uva.aa.policies.PolicySnapshot;
+
+/**
+ * Trains a Q-Learning e-Greedy predator while an evaluation thread compares snapshots of its policy, taken after every
+ * so many games. The test is done for a single predator, and for two parallel predators that consider the states from
+ * their own perspective while keeping them off-heap.
+ */
+public class SnapshotEvaluationTester {
+
+    /** The amount of games to train for */
+    private final int mGames;
+
+    /** The amount of games between snapshots */
+    private final int mGamesPerSnapshot;
+
+    /**
+     * Prepares a snapshot evaluation test.
+     * 
+     * @param games
+     *            The amount of games to train for
+     * @param gamesPerSnapshot
+     *            The amount of games between snapshots
+     */
+    public SnapshotEvaluationTester(final int games, final int gamesPerSnapshot) {
+        mGames = games;
+        mGamesPerSnapshot = gamesPerSnapshot;
+    }
+
+    /**
+     * Trains the predators of both games and evaluates each snapshot on a separate thread while training continues.
+     * Prints out the size of each snapshot, how long it took to take it, in how many states it differs from the policy
+     * it was taken of and in how many states the greedy action changed since the previous snapshot.
+     */
+    public void performTest() {
+        final Game game = new Game(11, 11);
+        game.addPrey(5, 5);
+        game.addQLearningEGreedyPredator(0, 0);
+        System.out.println("Single predator:");
+        performTest(game);
+
+        final Game parallelGame = new Game(11, 11);
+        parallelGame.setParallelActions(true);
+        parallelGame.addParallelQLearningEGreedyPrey(5, 5);
+        parallelGame.addParallelQLearningEGreedyPredator(0, 0);
+        parallelGame.addParallelQLearningEGreedyPredator(10, 0);
+        final Config config = new Config();
+        config.setOffHeapPolicy(true);
+        parallelGame.setConfig(config);
+        System.out.println("Parallel predators with an off-heap policy:");
+        performTest(parallelGame);
+    }
+
+    /**
+     * Trains the first predator of a game and evaluates each snapshot of its policy on a separate thread while training
+     * continues.
+     * 
+     * @param game
+     *            The game to train in
+     */
+    private void performTest(final Game game) {
+        game.setHumanTest(false);
+        final PredatorAgent predator = game.getEnvironment().getPredators().get(0);
+
+        final ExecutorService evaluator = Executors.newSingleThreadExecutor();
+        PolicySnapshot previousSnapshot = null;
+
+        for (int i = 1; i <= mGames; ++i) {
+            game.resetGame();
+            game.start();
+
+            if (i % mGamesPerSnapshot == 0) {
+                final long startTime = System.nanoTime();
+                final PolicySnapshot snapshot = predator.getPolicy().snapshot();
+                final double duration = (System.nanoTime() - startTime) / 1e6;
+
+                // The policy only changes during games, so it can be compared with the snapshot right away
+                final int differingStates = countDifferingStates(predator.getPolicy(), snapshot);
+
+                final int games = i;
+                final PolicySnapshot comparedSnapshot = previousSnapshot;
+                evaluator.execute(new Runnable() {
+                    public void run() {
+                        System.out.println("After " + games + " games: snapshot of " + snapshot.getStateCount()
+                                + " states in " + duration + "ms, differing from the policy in " + differingStates
+                                + " states, greedy action changed in "
+                                + countChangedGreedyActions(comparedSnapshot, snapshot) + " states");
+                    }
+                });
+                previousSnapshot = snapshot;
+            }
+        }
+
+        evaluator.shutdown();
+        try {
+            evaluator.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts the states of a snapshot in which an action value differs from the one in the policy.
+     * 
+     * @param policy
+     *            The policy that the snapshot was taken of
+     * @param snapshot
+     *            The snapshot to compare
+     * 
+     * @return The amount of states with a differing action value
+     */
+    private int countDifferingStates(final Policy policy, final PolicySnapshot snapshot) {
+        int differingStates = 0;
+        for (final State state : snapshot.getStates()) {
+            for (final Action action : Action.values()) {
+                if (snapshot.getActionValue(state, action) != policy.getActionValue(state, action)) {
+                    ++differingStates;
+                    break;
+                }
+            }
+        }
+        return differingStates;
+    }
+
+    /**
+     * Counts the states of a snapshot in which the greedy action of the previous snapshot is no longer one of the best
+     * actions.
+     * 
+     * @param previousSnapshot
+     *            The previous snapshot, or null if there is none
+     * @param snapshot
+     *            The snapshot to compare
+     * 
+     * @return The amount of states with a changed greedy action
+     */
+    private int countChangedGreedyActions(final PolicySnapshot previousSnapshot, final PolicySnapshot snapshot) {
+        int changedGreedyActions = 0;
+        for (final State state : snapshot.getStates()) {
+            if (previousSnapshot == null || !previousSnapshot.containsState(state)) {
+                ++changedGreedyActions;
+                continue;
+            }
+
+            final Action previousGreedyAction = previousSnapshot.getGreedyAction(state);
+            if (previousGreedyAction == null) {
+                continue;
+            }
+
+            final double previousGreedyValue = snapshot.getActionValue(state, previousGreedyAction);
+            for (final Action action : Action.values()) {
+                if (snapshot.getActionValue(state, action) > previousGreedyValue) {
+                    ++changedGreedyActions;
+                    break;
+                }
+            }
+        }
+        return changedGreedyActions;
+    }
+}
@@ -0,0 +1,93 @@
+package com.uva.aa.testers;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.uva.aa.Environment;
+import com.uva.aa.Game;
+import com.uva.aa.State;
+import com.uva.aa.StateEnumerator;
+
+/**
+ * Enumerates the states of games with several predators in parallel to demonstrate the state enumerator.
+ */
+public class StateEnumerationTester {
+
+    /** The size of the environment in both directions */
+    private static final int SIZE = 7;
+
+    /** The maximum amount of predators to enumerate the states for */
+    private static final int MAX_PREDATORS = 3;
+
+    /**
+     * Enumerates the states for an increasing amount of predators, both with the full and the reduced state-space.
+     */
+    public void performTest() {
+        for (int numPredators = 1; numPredators <= MAX_PREDATORS; ++numPredators) {
+            performEnumerationTest(numPredators, false);
+            performEnumerationTest(numPredators, true);
+        }
+    }
+
+    /**
+     * Prepares a game and enumerates its non-terminal states with a thread per processor. Verifies that every state
+     * maps back onto itself through its index. Prints out the amount of states and the test duration in seconds.
+     * 
+     * @param numPredators
+     *            The amount of predators in the game
+     * @param reducedStateSpace
+     *            Whether or not to use a reduced state-space
+     */
+    private void performEnumerationTest(final int numPredators, final boolean reducedStateSpace) {
+        final Game game = new Game(SIZE, SIZE);
+        game.addPrey(SIZE / 2, SIZE / 2);
+        for (int i = 0; i < numPredators; ++i) {
+            game.addPredator(i, 0);
+        }
+
+        final Environment environment = game.getEnvironment();
+        environment.setReducedStateSpace(reducedStateSpace);
+        final StateEnumerator enumerator = environment.getStateEnumerator(false);
+
+        final AtomicLong stateCount = new AtomicLong();
+        final AtomicLong mismatchCount = new AtomicLong();
+        final List<Iterable<State>> ranges = enumerator.split(Runtime.getRuntime().availableProcessors());
+        final Thread[] threads = new Thread[ranges.size()];
+
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < threads.length; ++i) {
+            final Iterable<State> range = ranges.get(i);
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long states = 0;
+                    long mismatches = 0;
+                    for (final State state : range) {
+                        ++states;
+                        if (!enumerator.unindex(enumerator.index(state)).equals(state)) {
+                            ++mismatches;
+                        }
+                    }
+                    stateCount.addAndGet(states);
+                    mismatchCount.addAndGet(mismatches);
+                }
+            });
+            threads[i].start();
+        }
+
+        for (final Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        final double testDuration = (System.nanoTime() - startTime) / Math.pow(10, 9);
+
+        System.out.println(numPredators + " predator(s) with " + (reducedStateSpace ? "reduced" : "full")
+                + " state-space: " + stateCount.get() + " states of " + enumerator.getIndexCount() + " indices in "
+                + testDuration + "s on " + threads.length + " thread(s), " + mismatchCount.get()
+                + " index mismatches");
+    }
+}
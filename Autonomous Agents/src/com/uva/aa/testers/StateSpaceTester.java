@@ -1,6 +1,5 @@
 package com.uva.aa.testers;
 
-import com.uva.aa.Config;
 import com.uva.aa.Environment;
 import com.uva.aa.Game;
 import com.uva.aa.agents.PredatorAgent;
@@ -63,7 +62,7 @@ public class StateSpaceTester {
 
         System.out.println((policyIterationInsteadOfValue ? "Policy" : "Value")
                 + " iteration with theta "
-                + Config.ERROR_THRESHOLD_THETA
+                + game.getConfig().getErrorThresholdTheta()
                 + " and "
                 + (reducedStateSpace ? "reduced" : "full")
                 + " state-space: "
@@ -34,6 +34,9 @@ public abstract class StateValueTester {
     /** Whether the printing should be done for copy-pasting to LaTeX */
     private boolean mPrintForLatex = false;
 
+    /** The format of the printed state values */
+    private final NumberFormat mFormatter;
+
     /**
      * Prepares a new policy evaluation test by creating a game and setting up the agents.
      */
@@ -55,6 +58,11 @@ public abstract class StateValueTester {
         mPredator.prepare();
 
         mPolicy = mPredator.getPolicy();
+
+        final DecimalFormatSymbols otherSymbols = new DecimalFormatSymbols(Locale.getDefault());
+        otherSymbols.setDecimalSeparator('.');
+        otherSymbols.setGroupingSeparator(',');
+        mFormatter = new DecimalFormat((mPrintForLatex ? "#" : "0") + "0.000", otherSymbols);
     }
 
     /**
@@ -115,11 +123,6 @@ public abstract class StateValueTester {
 
         // Since we have evaluated the policy, we can now ask for the state value
         final double stateValue = mPolicy.getStateValue(state);
-
-        DecimalFormatSymbols otherSymbols = new DecimalFormatSymbols(Locale.getDefault());
-        otherSymbols.setDecimalSeparator('.');
-        otherSymbols.setGroupingSeparator(',');
-        final NumberFormat formatter = new DecimalFormat((mPrintForLatex ? "#" : "0") + "0.000", otherSymbols);
-        System.out.print((mPrintForLatex ? " & " : "    ") + formatter.format(stateValue));
+        System.out.print((mPrintForLatex ? " & " : "    ") + mFormatter.format(stateValue));
     }
 }